@@ -81,6 +81,20 @@ public class AutoRefactorPlugin extends AbstractUIPlugin {
         log.log(new Status(severity, PLUGIN_ID, message, e));
     }
 
+    /**
+     * Logs an informational message into Eclipse workspace logs.
+     * <p>
+     * Unlike warnings and errors, informational messages never interrupt the refactoring, even in debug mode.
+     *
+     * @param message the message to log
+     */
+    public static void logInfo(String message) {
+        final AutoRefactorPlugin instance = getDefault();
+        if (instance != null) {
+            instance.getLog().log(new Status(IStatus.INFO, PLUGIN_ID, message));
+        }
+    }
+
     /**
      * Logs a warning into Eclipse workspace logs.
      *
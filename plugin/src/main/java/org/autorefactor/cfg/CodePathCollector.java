@@ -31,6 +31,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.autorefactor.refactoring.TimeBudget;
 import org.autorefactor.util.IllegalStateException;
 
 /**
@@ -53,6 +54,7 @@ public class CodePathCollector {
     }
 
     private void collectPathes(CFGBasicBlock block) {
+        TimeBudget.checkpoint();
         if (block.isExitBlock()) {
             // this is the end of this path,
             // let's take a copy of the stack
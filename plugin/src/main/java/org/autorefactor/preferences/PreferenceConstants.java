@@ -46,7 +46,43 @@ public enum PreferenceConstants {
     REMOVE_THIS_FOR_NON_STATIC_METHOD_ACCESS(
             "remove_this_for_non_static_method_access",
             "Remove 'this' qualifier for non static method accesses",
-            Boolean.TRUE);
+            Boolean.TRUE),
+
+    /** Preference that configures whether to skip the files already refactored with the same rules and options. */
+    FIXPOINT_CACHE_ON(
+            "fixpoint_cache_on",
+            "Skip the files already refactored with the same rules and options",
+            Boolean.TRUE),
+
+    /** Preference that configures the directory where the files already refactored are recorded. */
+    FIXPOINT_CACHE_DIRECTORY(
+            "fixpoint_cache_directory",
+            "Directory of the cache of refactored files (empty for the plugin state location)",
+            ""),
+
+    /** Preference that configures whether to analyze large files in parallel. */
+    PARALLEL_ANALYSIS_ON(
+            "parallel_analysis_on",
+            "Analyze large files in parallel with groups of refactoring rules",
+            Boolean.FALSE),
+
+    /** Preference that configures the maximum time spent refactoring one file. */
+    FILE_TIME_BUDGET(
+            "file_time_budget",
+            "Maximum time spent refactoring one file, in seconds (0 for no limit)",
+            600),
+
+    /** Preference that configures the maximum time spent by a refactoring rule on one node. */
+    RULE_TIME_BUDGET(
+            "rule_time_budget",
+            "Maximum time spent by a refactoring rule on one node, in seconds (0 for no limit)",
+            60),
+
+    /** Preference that configures the additional factory methods whose results can be hoisted into constants. */
+    HOISTED_FACTORY_METHODS(
+            "hoisted_factory_methods",
+            "Additional immutable factory methods to hoist into constants (comma separated, like com.acme.Money#of)",
+            "");
 
     /** TODO use this for preferences initialization. */
     private static final String JDT_ALWAYS_USE_THIS_FOR_NON_STATIC_METHOD_ACCESS =
@@ -51,4 +51,51 @@ public interface Preferences {
      */
     boolean addCurlyBracketsToStatementBodies();
 
+    /**
+     * Returns whether to skip the files already refactored with the same rules and options.
+     *
+     * @return true if must skip the files already refactored with the same rules and options, false otherwise
+     */
+    boolean fixpointCacheOn();
+
+    /**
+     * Returns the directory where the files already refactored are recorded.
+     *
+     * @return the directory where the files already refactored are recorded,
+     *         or an empty string to use the plugin state location
+     */
+    String fixpointCacheDirectory();
+
+    /**
+     * Returns whether to analyze large files in parallel with groups of refactoring rules.
+     *
+     * @return true if must analyze large files in parallel with groups of refactoring rules, false otherwise
+     */
+    boolean parallelAnalysisOn();
+
+    /**
+     * Returns the maximum time spent refactoring one file.
+     *
+     * @return the maximum time spent refactoring one file, in seconds, or 0 for no limit
+     */
+    int fileTimeBudget();
+
+    /**
+     * Returns the maximum time spent by a refactoring rule on one node.
+     *
+     * @return the maximum time spent by a refactoring rule on one node, in seconds, or 0 for no limit
+     */
+    int ruleTimeBudget();
+
+    /**
+     * Returns the additional factory methods returning immutable and thread-safe objects,
+     * which can be hoisted into constants when called with constant arguments.
+     * <p>
+     * Factory methods are separated by commas and written <code>qualified.TypeName#methodName</code>,
+     * or <code>qualified.TypeName#new</code> for constructors.
+     *
+     * @return the additional factory methods, separated by commas
+     */
+    String hoistedFactoryMethods();
+
 }
@@ -30,7 +30,6 @@ import java.util.Collection;
 import java.util.List;
 
 import org.autorefactor.util.IllegalArgumentException;
-import org.autorefactor.util.NotImplementedException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ArrayCreation;
@@ -41,15 +40,25 @@ import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CastExpression;
 import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.ConditionalExpression;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.InstanceofExpression;
 import org.eclipse.jdt.core.dom.MarkerAnnotation;
 import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Modifier.ModifierKeyword;
 import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.NullLiteral;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.ParameterizedType;
 import org.eclipse.jdt.core.dom.ParenthesizedExpression;
@@ -65,6 +74,10 @@ import org.eclipse.jdt.core.dom.StructuralPropertyDescriptor;
 import org.eclipse.jdt.core.dom.ThrowStatement;
 import org.eclipse.jdt.core.dom.TryStatement;
 import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeLiteral;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 import static org.autorefactor.util.Utils.*;
@@ -136,6 +149,18 @@ public class ASTBuilder {
         return ast.newBooleanLiteral(boolValue);
     }
 
+    /**
+     * Builds a new {@link CharacterLiteral} instance.
+     *
+     * @param charValue the character literal value
+     * @return a new character literal
+     */
+    public CharacterLiteral char0(char charValue) {
+        final CharacterLiteral cl = ast.newCharacterLiteral();
+        cl.setCharValue(charValue);
+        return cl;
+    }
+
     /**
      * Builds a new {@link CastExpression} instance.
      *
@@ -150,13 +175,14 @@ public class ASTBuilder {
         return ce;
     }
 
-    private Type type(String typeName) {
-        final String[] names = typeName.split("\\.");
-        if (names.length == 1) {
-            return ast.newSimpleType(ast.newSimpleName(names[0]));
-        } else {
-            throw new NotImplementedException(null);
-        }
+    /**
+     * Builds a new {@link Type} instance for a simple or qualified type name.
+     *
+     * @param typeName the simple or qualified type name
+     * @return a new type
+     */
+    public Type type(String typeName) {
+        return newSimpleType(typeName);
     }
 
     /**
@@ -180,6 +206,109 @@ public class ASTBuilder {
         return cc;
     }
 
+    /**
+     * Builds a new {@link TypeDeclaration} instance for a class without any members.
+     *
+     * @param className the class name
+     * @param modifiers the class modifiers
+     * @return a new class declaration
+     */
+    public TypeDeclaration declareClass(String className, Modifier... modifiers) {
+        final TypeDeclaration td = ast.newTypeDeclaration();
+        td.setName(simpleName(className));
+        for (Modifier modifier : modifiers) {
+            modifiers(td).add(modifier);
+        }
+        return td;
+    }
+
+    /**
+     * Builds a new {@link FieldDeclaration} instance.
+     *
+     * @param type the declared type of the field
+     * @param fragment the fragment declaring the field name and initializer
+     * @param modifiers the field modifiers
+     * @return a new field declaration
+     */
+    public FieldDeclaration declareField(Type type, VariableDeclarationFragment fragment, Modifier... modifiers) {
+        final FieldDeclaration fd = ast.newFieldDeclaration(fragment);
+        fd.setType(type);
+        for (Modifier modifier : modifiers) {
+            modifiers(fd).add(modifier);
+        }
+        return fd;
+    }
+
+    /**
+     * Builds a new {@link VariableDeclarationFragment} instance.
+     *
+     * @param varName the declared variable name
+     * @param initializer the variable initializer, can be null
+     * @return a new variable declaration fragment
+     */
+    public VariableDeclarationFragment declareFragment(SimpleName varName, Expression initializer) {
+        final VariableDeclarationFragment vdf = ast.newVariableDeclarationFragment();
+        vdf.setName(varName);
+        vdf.setInitializer(initializer);
+        return vdf;
+    }
+
+    /**
+     * Builds a new {@link VariableDeclarationStatement} instance.
+     *
+     * @param type the declared type of the variable
+     * @param varName the declared variable name
+     * @param initializer the variable initializer, can be null
+     * @return a new variable declaration statement
+     */
+    public VariableDeclarationStatement declareStmt(Type type, SimpleName varName, Expression initializer) {
+        final VariableDeclarationStatement vds =
+                ast.newVariableDeclarationStatement(declareFragment(varName, initializer));
+        vds.setType(type);
+        return vds;
+    }
+
+    /**
+     * Builds a new {@link FieldAccess} instance.
+     *
+     * @param expression the expression holding the field
+     * @param fieldName the field name
+     * @return a new field access
+     */
+    public FieldAccess fieldAccess(Expression expression, String fieldName) {
+        final FieldAccess fa = ast.newFieldAccess();
+        fa.setExpression(expression);
+        fa.setName(simpleName(fieldName));
+        return fa;
+    }
+
+    /**
+     * Builds a new {@link Modifier} instance for the "final" keyword.
+     *
+     * @return a new final modifier
+     */
+    public Modifier final0() {
+        return ast.newModifier(ModifierKeyword.FINAL_KEYWORD);
+    }
+
+    /**
+     * Builds a new {@link Modifier} instance for the "private" keyword.
+     *
+     * @return a new private modifier
+     */
+    public Modifier private0() {
+        return ast.newModifier(ModifierKeyword.PRIVATE_KEYWORD);
+    }
+
+    /**
+     * Builds a new {@link Modifier} instance for the "static" keyword.
+     *
+     * @return a new static modifier
+     */
+    public Modifier static0() {
+        return ast.newModifier(ModifierKeyword.STATIC_KEYWORD);
+    }
+
     /**
      * Returns a copy of the provided {@link ASTNode}.
      *
@@ -263,6 +392,23 @@ public class ASTBuilder {
         return ASTNode.copySubtrees(ast, nodes);
     }
 
+    /**
+     * Builds a new {@link ConditionalExpression} instance.
+     *
+     * @param condition the condition
+     * @param thenExpression the expression evaluated when the condition is true
+     * @param elseExpression the expression evaluated when the condition is false
+     * @return a new conditional expression
+     */
+    public ConditionalExpression conditionalExpr(Expression condition, Expression thenExpression,
+            Expression elseExpression) {
+        final ConditionalExpression ce = ast.newConditionalExpression();
+        ce.setExpression(condition);
+        ce.setThenExpression(thenExpression);
+        ce.setElseExpression(elseExpression);
+        return ce;
+    }
+
     /**
      * Builds a new {@link IfStatement} instance.
      *
@@ -292,6 +438,48 @@ public class ASTBuilder {
         return is;
     }
 
+    /**
+     * Builds a new {@link ImportDeclaration} instance.
+     *
+     * @param qualifiedName the qualified name of the imported type
+     * @return a new import declaration
+     */
+    public ImportDeclaration import0(String qualifiedName) {
+        final ImportDeclaration id = ast.newImportDeclaration();
+        id.setName(ast.newName(qualifiedName));
+        return id;
+    }
+
+    /**
+     * Builds a new {@link Initializer} instance.
+     *
+     * @param body the initializer body
+     * @param modifiers the initializer modifiers
+     * @return a new initializer
+     */
+    public Initializer initializer(Block body, Modifier... modifiers) {
+        final Initializer i = ast.newInitializer();
+        i.setBody(body);
+        for (Modifier modifier : modifiers) {
+            modifiers(i).add(modifier);
+        }
+        return i;
+    }
+
+    /**
+     * Builds a new {@link InstanceofExpression} instance.
+     *
+     * @param leftOperand the expression to check
+     * @param rightOperand the type to check against
+     * @return a new instanceof expression
+     */
+    public InstanceofExpression instanceof0(Expression leftOperand, Type rightOperand) {
+        final InstanceofExpression ioe = ast.newInstanceofExpression();
+        ioe.setLeftOperand(leftOperand);
+        ioe.setRightOperand(rightOperand);
+        return ioe;
+    }
+
     /**
      * Builds a new {@link InfixExpression} instance.
      *
@@ -445,6 +633,20 @@ public class ASTBuilder {
         return cic;
     }
 
+    /**
+     * Builds a new {@link ClassInstanceCreation} instance.
+     *
+     * @param type the instantiated type
+     * @param arguments the constructor invocation arguments
+     * @return a new class instance creation
+     */
+    public ClassInstanceCreation new0(Type type, Expression... arguments) {
+        final ClassInstanceCreation cic = ast.newClassInstanceCreation();
+        cic.setType(type);
+        addAll(arguments(cic), arguments);
+        return cic;
+    }
+
     /**
      * Builds a new {@link ClassInstanceCreation} instance.
      *
@@ -520,6 +722,15 @@ public class ASTBuilder {
         return prefixExpr(PrefixExpression.Operator.NOT, expr);
     }
 
+    /**
+     * Builds a new {@link NullLiteral} instance.
+     *
+     * @return a new null literal
+     */
+    public NullLiteral null0() {
+        return ast.newNullLiteral();
+    }
+
     /**
      * Builds a new {@link NumberLiteral} instance.
      *
@@ -635,6 +846,18 @@ public class ASTBuilder {
         return tryS;
     }
 
+    /**
+     * Builds a new {@link TypeLiteral} instance.
+     *
+     * @param type the type of the type literal
+     * @return a new type literal
+     */
+    public TypeLiteral typeLiteral(Type type) {
+        final TypeLiteral tl = ast.newTypeLiteral();
+        tl.setType(type);
+        return tl;
+    }
+
     /**
      * Parenthesizes the provided expression if its type requires it.
      *
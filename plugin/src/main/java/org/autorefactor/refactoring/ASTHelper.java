@@ -34,7 +34,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 import org.autorefactor.util.IllegalStateException;
 import org.autorefactor.util.NotImplementedException;
@@ -581,6 +580,18 @@ public final class ASTHelper {
         return node.tags();
     }
 
+    /**
+     * Generecized version of the equivalent JDT method.
+     *
+     * @param node the node on which to call the equivalent JDT method
+     * @return a List of names
+     * @see MethodDeclaration#thrownExceptions()
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Name> thrownExceptions(MethodDeclaration node) {
+        return node.thrownExceptions();
+    }
+
     /**
      * Generecized version of the equivalent JDT method.
      *
@@ -605,6 +616,18 @@ public final class ASTHelper {
         return node.types();
     }
 
+    /**
+     * Generecized version of the equivalent JDT method.
+     *
+     * @param node the node on which to call the equivalent JDT method
+     * @return a List of types
+     * @see UnionType#types()
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Type> types(UnionType node) {
+        return node.types();
+    }
+
     /**
      * Generecized version of the equivalent JDT method.
      *
@@ -780,65 +803,11 @@ public final class ASTHelper {
     }
 
     private static BodyDeclaration getSibling(BodyDeclaration node, boolean lookForPrevious) {
-        if (node.getParent() instanceof TypeDeclaration) {
-            final TypeDeclaration parent = (TypeDeclaration) node.getParent();
-            return getSibling(node, parent, lookForPrevious);
-        } else if (node.getParent() instanceof CompilationUnit) {
-            final CompilationUnit cu = (CompilationUnit) node.getParent();
-            final List<AbstractTypeDeclaration> types = types(cu);
-            final int index = types.indexOf(node);
-            if (index != -1 && index + 1 < types.size()) {
-                return types.get(index + 1);
-            }
-        }
-        return null;
-    }
-
-    private static BodyDeclaration getSibling(BodyDeclaration node,
-            final TypeDeclaration parent, boolean lookForPrevious) {
-        final TreeSet<BodyDeclaration> children = new TreeSet<BodyDeclaration>(new NodeStartPositionComparator());
-        for (FieldDeclaration fieldDecl : parent.getFields()) {
-            children.add(fieldDecl);
-        }
-        for (MethodDeclaration methodDecl : parent.getMethods()) {
-            children.add(methodDecl);
-        }
-        for (BodyDeclaration decl : bodyDeclarations(parent)) {
-            children.add(decl);
-        }
-        for (TypeDeclaration typeDecl : parent.getTypes()) {
-            children.add(typeDecl);
-        }
-
-        BodyDeclaration previous = null;
-        boolean returnNext = false;
-        for (BodyDeclaration child : children) {
-            if (lookForPrevious) {
-                if (child.equals(node)) {
-                    return previous;
-                }
-            } else {
-                if (returnNext) {
-                    return child;
-                }
-            }
-            previous = child;
-            returnNext = child.equals(node);
-        }
-        return null;
+        return (BodyDeclaration) SiblingIndex.getSibling(node, lookForPrevious);
     }
 
     private static Statement getSibling(Statement node, boolean isPrevious) {
-        if (node.getParent() instanceof Block) {
-            final List<Statement> stmts = asList((Statement) node.getParent());
-            final int indexOfNode = stmts.indexOf(node);
-            final int siblingIndex = isPrevious ? indexOfNode - 1
-                    : indexOfNode + 1;
-            if (0 <= siblingIndex && siblingIndex < stmts.size()) {
-                return stmts.get(siblingIndex);
-            }
-        }
-        return null;
+        return (Statement) SiblingIndex.getSibling(node, isPrevious);
     }
 
     /**
@@ -958,7 +927,15 @@ public final class ASTHelper {
                     .contains(typeBinding.getQualifiedName());
     }
 
-    private static ITypeBinding findImplementedType(ITypeBinding typeBinding, String qualifiedTypeName) {
+    /**
+     * Returns the type binding of the provided type or of one of its super types
+     * which erasure has the provided qualified name.
+     *
+     * @param typeBinding the type binding to analyze
+     * @param qualifiedTypeName the qualified type name of the super type to find
+     * @return the type binding of the implemented type, or null if the provided type does not implement it
+     */
+    public static ITypeBinding findImplementedType(ITypeBinding typeBinding, String qualifiedTypeName) {
         if (typeBinding == null) {
             return null;
         }
@@ -1025,6 +1002,37 @@ public final class ASTHelper {
         return isLoop(node) || node instanceof SwitchStatement;
     }
 
+    /**
+     * Returns whether the provided expression is passive, i.e. evaluating it has no side effects,
+     * does not allocate memory and always yields the same result when evaluated several times in a row.
+     *
+     * @param expr the expression to check
+     * @return true if the provided expression is passive, false otherwise
+     */
+    public static boolean isPassive(Expression expr) {
+        if (expr == null) {
+            return false;
+        }
+        switch (expr.getNodeType()) {
+        case BOOLEAN_LITERAL:
+        case CHARACTER_LITERAL:
+        case NULL_LITERAL:
+        case NUMBER_LITERAL:
+        case STRING_LITERAL:
+        case THIS_EXPRESSION:
+        case TYPE_LITERAL:
+        case SIMPLE_NAME:
+        case QUALIFIED_NAME:
+            return true;
+        case FIELD_ACCESS:
+            return isPassive(((FieldAccess) expr).getExpression());
+        case PARENTHESIZED_EXPRESSION:
+            return isPassive(((ParenthesizedExpression) expr).getExpression());
+        default:
+            return false;
+        }
+    }
+
     /**
      * Returns whether the provided qualified name accesses a field with the provided signature.
      *
@@ -1080,9 +1088,11 @@ public final class ASTHelper {
             boolean isInstanceOf, IMethodBinding methodBinding, String[] parameterTypesQualifiedNames) {
         if (implementedType != null) {
             final ITypeBinding erasure = implementedType.getErasure();
-            if (erasure.isGenericType() || erasure.isParameterizedType()) {
-                return parameterizedTypesMatch(implementedType, erasure, methodBinding);
+            if ((erasure.isGenericType() || erasure.isParameterizedType())
+                    && parameterizedTypesMatch(implementedType, erasure, methodBinding)) {
+                return true;
             }
+            // static methods of generic types, like Class.forName(String), are declared by the generic type
         }
         return isInstanceOf && concreteTypesMatch(methodBinding.getParameterTypes(), parameterTypesQualifiedNames);
     }
@@ -1252,6 +1262,11 @@ public final class ASTHelper {
      */
     public static boolean match(ASTMatcher matcher, ASTNode node1, ASTNode node2) {
         if (sameClass(node1, node2)) {
+            // only the default matcher can rely on structural hashes:
+            // subclasses may match nodes with different structures, e.g. "Boolean.TRUE" and "true"
+            if (matcher.getClass() == ASTMatcher.class && !StructuralHashes.mayMatch(node1, node2)) {
+                return false;
+            }
             // FIXME JNR implement all expressions
             // TODO JNR
             // can we match "this.ast" and the unqualified "ast" for example?
@@ -0,0 +1,306 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.PrimitiveType;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.WildcardType;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Adds import declarations to the compilation unit being refactored.
+ * <p>
+ * Imports added during a refactoring pass are remembered,
+ * so several refactoring rules asking for the same import only add it once.
+ */
+public class ImportsRewriter {
+
+    private final Refactorings refactorings;
+    private final ASTBuilder astBuilder;
+    /** Simple names of the types imported during this refactoring pass, mapped to their qualified names. */
+    private final Map<String, String> addedImports = new HashMap<String, String>();
+    /** Import declarations added during this refactoring pass, sorted by the qualified names they import. */
+    private final TreeMap<String, ImportDeclaration> newImportDecls = new TreeMap<String, ImportDeclaration>();
+    /** Simple names referencing types in the compilation unit, mapped to the qualified names of these types. */
+    private Map<String, Set<String>> typeNamesInUse;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param refactorings the refactorings where to record the new imports
+     * @param astBuilder the builder for the new import declarations
+     */
+    public ImportsRewriter(Refactorings refactorings, ASTBuilder astBuilder) {
+        this.refactorings = refactorings;
+        this.astBuilder = astBuilder;
+    }
+
+    /**
+     * Adds an import for the provided type to the compilation unit containing the provided node,
+     * unless such an import is not required.
+     * <p>
+     * When the simple name of the provided type would conflict with another type
+     * used or declared in the compilation unit, no import is added
+     * and the caller must then use the qualified name.
+     *
+     * @param node a node from the compilation unit where to add the import
+     * @param qualifiedName the qualified name of the type to import
+     * @return the name to use in the code for referencing the provided type:
+     *         either the simple name or the qualified name
+     */
+    public String addImport(ASTNode node, String qualifiedName) {
+        final int lastDot = qualifiedName.lastIndexOf('.');
+        if (lastDot == -1) {
+            return qualifiedName;
+        }
+        final String simpleName = qualifiedName.substring(lastDot + 1);
+        final String packageName = qualifiedName.substring(0, lastDot);
+        final CompilationUnit cu = (CompilationUnit) node.getRoot();
+
+        final String alreadyAdded = addedImports.get(simpleName);
+        if (alreadyAdded != null) {
+            return alreadyAdded.equals(qualifiedName) ? simpleName : qualifiedName;
+        }
+        if (conflictsWithTypeInUse(cu, simpleName, qualifiedName)) {
+            return qualifiedName;
+        }
+
+        final List<ImportDeclaration> imports = imports(cu);
+        ImportDeclaration insertBefore = null;
+        ImportDeclaration lastImport = null;
+        for (ImportDeclaration importDecl : imports) {
+            if (importDecl.isStatic()) {
+                continue;
+            }
+            final String importName = importDecl.getName().getFullyQualifiedName();
+            if (importDecl.isOnDemand()) {
+                if (importName.equals(packageName)) {
+                    return simpleName;
+                }
+            } else if (importName.equals(qualifiedName)) {
+                return simpleName;
+            } else if (importName.endsWith("." + simpleName)) {
+                return qualifiedName;
+            }
+            if (insertBefore == null && importName.compareTo(qualifiedName) > 0) {
+                insertBefore = importDecl;
+            }
+            lastImport = importDecl;
+        }
+        if ("java.lang".equals(packageName) || isSamePackage(cu, packageName)) {
+            return simpleName;
+        }
+
+        // keep imports added during this pass sorted among themselves too
+        final Map.Entry<String, ImportDeclaration> nextNewImport = newImportDecls.higherEntry(qualifiedName);
+        if (nextNewImport != null
+                && (insertBefore == null || nameOf(insertBefore).compareTo(nextNewImport.getKey()) > 0)) {
+            insertBefore = nextNewImport.getValue();
+        }
+        if (insertBefore == null && !newImportDecls.isEmpty()
+                && (lastImport == null || nameOf(lastImport).compareTo(newImportDecls.lastKey()) < 0)) {
+            lastImport = newImportDecls.lastEntry().getValue();
+        }
+
+        final ImportDeclaration newImport = astBuilder.import0(qualifiedName);
+        if (insertBefore != null) {
+            refactorings.insertBefore(newImport, insertBefore, CompilationUnit.IMPORTS_PROPERTY, cu);
+        } else if (lastImport != null) {
+            refactorings.insertAfter(newImport, lastImport, CompilationUnit.IMPORTS_PROPERTY, cu);
+        } else {
+            refactorings.insertAt(newImport, 0, CompilationUnit.IMPORTS_PROPERTY, cu);
+        }
+        addedImports.put(simpleName, qualifiedName);
+        newImportDecls.put(qualifiedName, newImport);
+        return simpleName;
+    }
+
+    /**
+     * Returns whether imports have been added during this refactoring pass.
+     *
+     * @return true if imports have been added during this refactoring pass, false otherwise
+     */
+    public boolean hasNewImports() {
+        return !newImportDecls.isEmpty();
+    }
+
+    private String nameOf(ImportDeclaration importDecl) {
+        return importDecl.getName().getFullyQualifiedName();
+    }
+
+    /**
+     * Builds a new {@link Type} referencing the provided type binding
+     * and adds the imports it requires to the compilation unit containing the provided node.
+     *
+     * @param node a node from the compilation unit where the type will be used
+     * @param typeBinding the type binding
+     * @return a new type, or null if the provided type binding cannot be referenced from source code,
+     *         like anonymous types, local types or captures
+     */
+    public Type newType(ASTNode node, ITypeBinding typeBinding) {
+        if (!canReference(typeBinding)) {
+            return null;
+        }
+        return newType0(node, typeBinding);
+    }
+
+    private boolean canReference(ITypeBinding typeBinding) {
+        if (typeBinding == null
+                || typeBinding.isAnonymous()
+                || typeBinding.isLocal()
+                || typeBinding.isCapture()
+                || typeBinding.isNullType()) {
+            return false;
+        } else if (typeBinding.isArray()) {
+            return canReference(typeBinding.getElementType());
+        } else if (typeBinding.isWildcardType()) {
+            return typeBinding.getBound() == null || canReference(typeBinding.getBound());
+        }
+        for (ITypeBinding typeArg : typeBinding.getTypeArguments()) {
+            if (!canReference(typeArg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Type newType0(ASTNode node, ITypeBinding typeBinding) {
+        final AST ast = astBuilder.getAST();
+        if (typeBinding.isPrimitive()) {
+            return ast.newPrimitiveType(PrimitiveType.toCode(typeBinding.getName()));
+        } else if (typeBinding.isArray()) {
+            return ast.newArrayType(newType0(node, typeBinding.getElementType()), typeBinding.getDimensions());
+        } else if (typeBinding.isTypeVariable()) {
+            return astBuilder.type(typeBinding.getName());
+        } else if (typeBinding.isWildcardType()) {
+            final WildcardType wildcardType = ast.newWildcardType();
+            if (typeBinding.getBound() != null) {
+                wildcardType.setBound(newType0(node, typeBinding.getBound()), typeBinding.isUpperbound());
+            }
+            return wildcardType;
+        }
+        final Type rawType = isMemberOfEnclosingType(node, typeBinding)
+                ? astBuilder.type(typeBinding.getErasure().getName())
+                : astBuilder.type(addImport(node, typeBinding.getErasure().getQualifiedName()));
+        if (!typeBinding.isParameterizedType()) {
+            return rawType;
+        }
+        final ParameterizedType parameterizedType = ast.newParameterizedType(rawType);
+        for (ITypeBinding typeArg : typeBinding.getTypeArguments()) {
+            typeArguments(parameterizedType).add(newType0(node, typeArg));
+        }
+        return parameterizedType;
+    }
+
+    /**
+     * Returns whether the provided type is a member type of one of the types enclosing the provided node,
+     * in which case its simple name can be used without import.
+     */
+    private boolean isMemberOfEnclosingType(ASTNode node, ITypeBinding typeBinding) {
+        final ITypeBinding declaringClass = typeBinding.getErasure().getDeclaringClass();
+        if (declaringClass == null || typeBinding.isLocal()) {
+            return false;
+        }
+        for (ASTNode parent = node; parent != null; parent = parent.getParent()) {
+            if (parent instanceof AbstractTypeDeclaration) {
+                final ITypeBinding enclosingType = ((AbstractTypeDeclaration) parent).resolveBinding();
+                if (enclosingType != null && declaringClass.isEqualTo(enclosingType.getErasure())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSamePackage(CompilationUnit cu, String packageName) {
+        final PackageDeclaration pkg = cu.getPackage();
+        if (pkg == null) {
+            return packageName.length() == 0;
+        }
+        return pkg.getName().getFullyQualifiedName().equals(packageName);
+    }
+
+    private boolean conflictsWithTypeInUse(CompilationUnit cu, String simpleName, String qualifiedName) {
+        if (typeNamesInUse == null) {
+            typeNamesInUse = collectTypeNamesInUse(cu);
+        }
+        final Set<String> qualifiedNames = typeNamesInUse.get(simpleName);
+        if (qualifiedNames == null) {
+            return false;
+        }
+        return qualifiedNames.size() > 1 || !qualifiedNames.contains(qualifiedName);
+    }
+
+    private Map<String, Set<String>> collectTypeNamesInUse(CompilationUnit cu) {
+        final Map<String, Set<String>> results = new HashMap<String, Set<String>>();
+        cu.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(ImportDeclaration node) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(PackageDeclaration node) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (binding != null && binding.getKind() == IBinding.TYPE) {
+                    final String identifier = node.getIdentifier();
+                    Set<String> qualifiedNames = results.get(identifier);
+                    if (qualifiedNames == null) {
+                        qualifiedNames = new HashSet<String>();
+                        results.put(identifier, qualifiedNames);
+                    }
+                    qualifiedNames.add(((ITypeBinding) binding).getErasure().getQualifiedName());
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return results;
+    }
+}
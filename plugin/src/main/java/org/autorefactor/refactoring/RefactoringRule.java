@@ -57,7 +57,7 @@ public interface RefactoringRule {
     /**
      * Sets the refactoring context before analysis.
      *
-     * @param ctx the refactoring context
+     * @param ctx the refactoring context, or null to release the resources held since the last analysis
      */
     void setRefactoringContext(RefactoringContext ctx);
 
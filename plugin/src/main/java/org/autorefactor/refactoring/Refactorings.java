@@ -28,16 +28,15 @@ package org.autorefactor.refactoring;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 
 import org.autorefactor.util.Pair;
 import org.autorefactor.util.UnhandledException;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.BlockComment;
@@ -60,12 +59,14 @@ public class Refactorings {
 
     private boolean hasRefactorings;
     private final ASTRewrite rewrite;
+    /** The options used to format the new code, the global options are used when null. */
+    private final Map<String, String> options;
     private final Map<Pair<ASTNode, ChildListPropertyDescriptor>, ListRewrite> listRewriteCache =
             new HashMap<Pair<ASTNode, ChildListPropertyDescriptor>, ListRewrite>();
     private final ASTCommentRewriter commentRewriter = new ASTCommentRewriter();
     private final SourceRewriter sourceRewriter = new SourceRewriter();
-    /** Nodes that cannot be visited. */
-    private final Set<ASTNode> forbiddenNodes = new HashSet<ASTNode>();
+    /** Source ranges touched by the refactorings, nodes overlapping them cannot be visited. */
+    private final SourceRanges touchedRanges = new SourceRanges();
 
     /**
      * Builds an instance of this class.
@@ -73,7 +74,26 @@ public class Refactorings {
      * @param ast the AST
      */
     public Refactorings(AST ast) {
+        this(ast, null);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param ast the AST
+     * @param options the options overriding the global options to format the new code,
+     *        like the source level, or null to use the global options
+     */
+    public Refactorings(AST ast, Map<String, String> options) {
         this.rewrite = ASTRewrite.create(ast);
+        this.options = options != null ? withGlobalOptions(options) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> withGlobalOptions(Map<String, String> options) {
+        final Map<String, String> results = JavaCore.getOptions();
+        results.putAll(options);
+        return results;
     }
 
     /**
@@ -87,16 +107,42 @@ public class Refactorings {
 
     /**
      * Returns whether the provided node can be visited.
+     * <p>
+     * Nodes lying inside the source code already touched by refactorings cannot be visited.
+     * Nodes only partially overlapping it can still be visited,
+     * so that their untouched children can be refactored.
      *
      * @param node the node that might be visited
      * @return true if the provided node can be visited, false otherwise
      */
     public boolean canVisit(ASTNode node) {
-        return !forbiddenNodes.contains(node);
+        final int start = node.getStartPosition();
+        return start < 0 || !touchedRanges.contains(start, start + Math.max(node.getLength(), 1));
+    }
+
+    /**
+     * Returns whether the provided node can be refactored.
+     * <p>
+     * Nodes overlapping the source code already touched by refactorings cannot be refactored,
+     * so that refactorings never conflict with each other.
+     *
+     * @param node the node that might be refactored
+     * @return true if the provided node can be refactored, false otherwise
+     */
+    public boolean canRefactor(ASTNode node) {
+        final int start = node.getStartPosition();
+        return start < 0 || !touchedRanges.overlaps(start, start + Math.max(node.getLength(), 1));
     }
 
     private void doNotVisit(ASTNode node) {
-        forbiddenNodes.add(node);
+        doNotVisit(node, node);
+    }
+
+    private void doNotVisit(ASTNode first, ASTNode last) {
+        final int start = first.getStartPosition();
+        if (start >= 0) {
+            touchedRanges.add(start, Math.max(SourceLocation.getEndPosition(last), start + 1));
+        }
     }
 
     /**
@@ -112,6 +158,7 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createCopyTarget(T node) {
+        doNotVisit(node);
         return (T) rewrite.createCopyTarget(node);
     }
 
@@ -129,6 +176,7 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createCopyTarget(T first, T last) {
+        doNotVisit(first, last);
         return (T) getListRewrite(first).createCopyTarget(first, last);
     }
 
@@ -160,7 +208,7 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createMoveTarget(T node) {
-        this.forbiddenNodes.equals(node);
+        doNotVisit(node);
         return (T) rewrite.createMoveTarget(node);
     }
 
@@ -220,6 +268,7 @@ public class Refactorings {
     public void replace(Comment comment, String replacement) {
         hasRefactorings = true;
         commentRewriter.replace(comment, replacement);
+        doNotVisit(comment);
     }
 
     /**
@@ -246,6 +295,7 @@ public class Refactorings {
     public void remove(SourceLocation toRemove) {
         hasRefactorings = true;
         sourceRewriter.remove(toRemove);
+        touchedRanges.add(toRemove.getStartPosition(), toRemove.getEndPosition());
     }
 
     /**
@@ -319,6 +369,57 @@ public class Refactorings {
         getListRewrite(element).insertAfter(nodeToInsert, element, null);
     }
 
+    /**
+     * Inserts the provided node before the provided element of a list in a node.
+     * <p>
+     * Unlike {@link #insertBefore(ASTNode, ASTNode)}, the element can be a node inserted during this refactoring.
+     *
+     * @param nodeToInsert the node to insert
+     * @param element the node serving as a reference location
+     * @param locationInParent the insert location description
+     * @param listHolder the node holding the list where to insert
+     * @see ListRewrite#insertBefore(ASTNode, ASTNode, org.eclipse.text.edits.TextEditGroup)
+     */
+    public void insertBefore(ASTNode nodeToInsert, ASTNode element,
+            StructuralPropertyDescriptor locationInParent, ASTNode listHolder) {
+        hasRefactorings = true;
+        final ListRewrite listRewrite = getListRewrite(listHolder, (ChildListPropertyDescriptor) locationInParent);
+        listRewrite.insertBefore(nodeToInsert, element, null);
+    }
+
+    /**
+     * Inserts the provided node after the provided element of a list in a node.
+     * <p>
+     * Unlike {@link #insertAfter(ASTNode, ASTNode)}, the element can be a node inserted during this refactoring.
+     *
+     * @param nodeToInsert the node to insert
+     * @param element the node serving as a reference location
+     * @param locationInParent the insert location description
+     * @param listHolder the node holding the list where to insert
+     * @see ListRewrite#insertAfter(ASTNode, ASTNode, org.eclipse.text.edits.TextEditGroup)
+     */
+    public void insertAfter(ASTNode nodeToInsert, ASTNode element,
+            StructuralPropertyDescriptor locationInParent, ASTNode listHolder) {
+        hasRefactorings = true;
+        final ListRewrite listRewrite = getListRewrite(listHolder, (ChildListPropertyDescriptor) locationInParent);
+        listRewrite.insertAfter(nodeToInsert, element, null);
+    }
+
+    /**
+     * Inserts the provided node at the end of a list in a node.
+     *
+     * @param nodeToInsert the node to insert
+     * @param locationInParent the insert location description
+     * @param listHolder the node holding the list where to insert
+     * @see ListRewrite#insertLast(ASTNode, org.eclipse.text.edits.TextEditGroup)
+     */
+    public void insertLast(ASTNode nodeToInsert, StructuralPropertyDescriptor locationInParent,
+            ASTNode listHolder) {
+        hasRefactorings = true;
+        final ListRewrite listRewrite = getListRewrite(listHolder, (ChildListPropertyDescriptor) locationInParent);
+        listRewrite.insertLast(nodeToInsert, null);
+    }
+
     /**
      * Adds the provided line comment to convert to javadoc.
      *
@@ -328,6 +429,7 @@ public class Refactorings {
     public void toJavadoc(LineComment lineComment, ASTNode nextNode) {
         hasRefactorings = true;
         commentRewriter.toJavadoc(lineComment, nextNode);
+        doNotVisit(lineComment);
     }
 
     /**
@@ -338,6 +440,7 @@ public class Refactorings {
     public void toJavadoc(BlockComment blockComment) {
         hasRefactorings = true;
         commentRewriter.toJavadoc(blockComment);
+        doNotVisit(blockComment);
     }
 
     /**
@@ -350,6 +453,8 @@ public class Refactorings {
      */
     public void set(ASTNode node, StructuralPropertyDescriptor property, Object value) {
         hasRefactorings = true;
+        final Object oldValue = node.getStructuralProperty(property);
+        doNotVisit(oldValue instanceof ASTNode ? (ASTNode) oldValue : node);
         rewrite.set(node, property, value, null);
     }
 
@@ -360,13 +465,30 @@ public class Refactorings {
      * @throws BadLocationException if trying to access a non existing position
      */
     public void applyTo(final IDocument document) throws BadLocationException {
-        final TextEdit edits = rewrite.rewriteAST(document, null);
+        applyTo(toTextEdit(document), document);
+    }
+
+    /**
+     * Returns the text edits corresponding to the accumulated refactorings, without applying them.
+     *
+     * @param document the document to refactor
+     * @return the text edits corresponding to the accumulated refactorings
+     */
+    public TextEdit toTextEdit(final IDocument document) {
+        final TextEdit edits = rewrite.rewriteAST(document, options);
         commentRewriter.addEdits(document, edits);
         sourceRewriter.addEdits(document, edits);
-        applyEditsToDocument(edits, document);
+        return edits;
     }
 
-    private void applyEditsToDocument(final TextEdit edits, final IDocument document) throws BadLocationException {
+    /**
+     * Applies the provided text edits to the provided document.
+     *
+     * @param edits the text edits to apply
+     * @param document the document to refactor
+     * @throws BadLocationException if trying to access a non existing position
+     */
+    public static void applyTo(final TextEdit edits, final IDocument document) throws BadLocationException {
         // Call this operation on the SWT Display Thread with syncExec(),
         // because it changes or adds something to the GUI.
         // Otherwise it would throw an Invalid thread access Exception.
@@ -0,0 +1,150 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.autorefactor.refactoring.ASTHelper.NodeStartPositionComparator;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Index of the siblings of statements and body declarations, allowing constant time
+ * lookups of the previous and next siblings of a node.
+ * <p>
+ * One index is attached to each {@link CompilationUnit} and the siblings of each parent node
+ * are only indexed the first time one of its children is looked up.
+ * Refactorings never modify the original AST in place (they go through {@link Refactorings}),
+ * but an entry is nevertheless rebuilt when its parent's children no longer match it.
+ */
+final class SiblingIndex {
+
+    private static final String PROPERTY_NAME = SiblingIndex.class.getName();
+
+    /** Parent node => its children sorted by start position. */
+    private final Map<ASTNode, List<? extends ASTNode>> childrenByParent =
+            new IdentityHashMap<ASTNode, List<? extends ASTNode>>();
+    /** Child node => its index in the list of its parent's children. */
+    private final Map<ASTNode, Integer> indexes = new IdentityHashMap<ASTNode, Integer>();
+
+    private SiblingIndex() {
+        super();
+    }
+
+    /**
+     * Returns the previous or next sibling of the provided node.
+     *
+     * @param node the node for which to find a sibling
+     * @param lookForPrevious true to return the previous sibling, false to return the next sibling
+     * @return the previous or next sibling of the provided node, null if it does not exist
+     */
+    static ASTNode getSibling(ASTNode node, boolean lookForPrevious) {
+        final ASTNode parent = node.getParent();
+        if (parent == null) {
+            return null;
+        }
+        final SiblingIndex index = getIndex(node.getRoot());
+        final List<? extends ASTNode> children = index.getChildren(parent, node);
+        if (children == null) {
+            return null;
+        }
+        final Integer indexOfNode = index.indexes.get(node);
+        if (indexOfNode == null) {
+            return null;
+        }
+        final int siblingIndex = lookForPrevious ? indexOfNode - 1 : indexOfNode + 1;
+        if (0 <= siblingIndex && siblingIndex < children.size()) {
+            return children.get(siblingIndex);
+        }
+        return null;
+    }
+
+    private static SiblingIndex getIndex(ASTNode root) {
+        if (!(root instanceof CompilationUnit)) {
+            // detached node: do not cache anything
+            return new SiblingIndex();
+        }
+        SiblingIndex index = (SiblingIndex) root.getProperty(PROPERTY_NAME);
+        if (index == null) {
+            index = new SiblingIndex();
+            root.setProperty(PROPERTY_NAME, index);
+        }
+        return index;
+    }
+
+    private List<? extends ASTNode> getChildren(ASTNode parent, ASTNode node) {
+        List<? extends ASTNode> children = childrenByParent.get(parent);
+        if (children == null || !isUpToDate(children, parent, node)) {
+            children = orderedChildren(parent);
+            if (children == null) {
+                return null;
+            }
+            childrenByParent.put(parent, children);
+            for (int i = 0; i < children.size(); i++) {
+                indexes.put(children.get(i), i);
+            }
+        }
+        return children;
+    }
+
+    private boolean isUpToDate(List<? extends ASTNode> children, ASTNode parent, ASTNode node) {
+        final Integer indexOfNode = indexes.get(node);
+        return indexOfNode != null
+                && indexOfNode < children.size()
+                && children.get(indexOfNode) == node
+                && children.size() == liveChildren(parent).size();
+    }
+
+    private static List<? extends ASTNode> orderedChildren(ASTNode parent) {
+        if (parent instanceof TypeDeclaration) {
+            final List<BodyDeclaration> children =
+                    new ArrayList<BodyDeclaration>(bodyDeclarations((TypeDeclaration) parent));
+            Collections.sort(children, new NodeStartPositionComparator());
+            return children;
+        }
+        return liveChildren(parent);
+    }
+
+    private static List<? extends ASTNode> liveChildren(ASTNode parent) {
+        if (parent instanceof Block) {
+            return statements((Block) parent);
+        } else if (parent instanceof TypeDeclaration) {
+            return bodyDeclarations((TypeDeclaration) parent);
+        } else if (parent instanceof CompilationUnit) {
+            return types((CompilationUnit) parent);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Set of source ranges, merged into disjoint intervals so that overlap checks run in logarithmic time.
+ * <p>
+ * Ranges are half-open intervals: the start position is included, the end position is excluded.
+ */
+public final class SourceRanges {
+
+    /** Start position => end position of disjoint intervals. */
+    private final TreeMap<Integer, Integer> intervals = new TreeMap<Integer, Integer>();
+
+    /**
+     * Adds the provided range to this set.
+     *
+     * @param start the start position of the range
+     * @param end the end position of the range
+     */
+    public void add(int start, int end) {
+        int newStart = start;
+        int newEnd = end;
+        final Entry<Integer, Integer> previous = intervals.floorEntry(start);
+        if (previous != null && previous.getValue() >= start) {
+            newStart = previous.getKey();
+            newEnd = Math.max(newEnd, previous.getValue());
+        }
+        Entry<Integer, Integer> next = intervals.ceilingEntry(newStart);
+        while (next != null && next.getKey() <= newEnd) {
+            newEnd = Math.max(newEnd, next.getValue());
+            intervals.remove(next.getKey());
+            next = intervals.higherEntry(next.getKey());
+        }
+        intervals.put(newStart, newEnd);
+    }
+
+    /**
+     * Adds all the ranges of the provided set to this set.
+     *
+     * @param ranges the ranges to add
+     */
+    public void addAll(SourceRanges ranges) {
+        for (Entry<Integer, Integer> interval : ranges.intervals.entrySet()) {
+            add(interval.getKey(), interval.getValue());
+        }
+    }
+
+    /**
+     * Returns whether any range of the provided set overlaps any range of this set.
+     *
+     * @param ranges the ranges to check
+     * @return true if any range of the provided set overlaps any range of this set, false otherwise
+     */
+    public boolean overlaps(SourceRanges ranges) {
+        for (Entry<Integer, Integer> interval : ranges.intervals.entrySet()) {
+            if (overlaps(interval.getKey(), interval.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided range overlaps any range of this set.
+     *
+     * @param start the start position of the range
+     * @param end the end position of the range
+     * @return true if the provided range overlaps any range of this set, false otherwise
+     */
+    public boolean overlaps(int start, int end) {
+        final Entry<Integer, Integer> candidate = intervals.lowerEntry(end);
+        return candidate != null && candidate.getValue() > start;
+    }
+
+    /**
+     * Returns whether the provided range lies entirely inside a range of this set.
+     *
+     * @param start the start position of the range
+     * @param end the end position of the range
+     * @return true if the provided range lies entirely inside a range of this set, false otherwise
+     */
+    public boolean contains(int start, int end) {
+        final Entry<Integer, Integer> candidate = intervals.floorEntry(start);
+        return candidate != null && candidate.getValue() >= end;
+    }
+}
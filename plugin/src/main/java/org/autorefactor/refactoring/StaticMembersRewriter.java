@@ -0,0 +1,337 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.autorefactor.util.Pair;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Adds private static members to the types of the compilation unit being refactored.
+ * <p>
+ * Members added during a refactoring pass are remembered,
+ * so several refactorings asking for the same constant share a single field.
+ * The names of the new members are chosen so that they do not shadow and are not shadowed
+ * by any other name used in the compilation unit.
+ * <p>
+ * Constants which must only be computed when first used are each added to their own private static nested class,
+ * the lazy holder, which the JVM only initializes on the first access to its field.
+ * Using one holder per constant ensures that a failure to compute one constant
+ * does not prevent reading the other ones.
+ */
+public class StaticMembersRewriter {
+
+    private static final String LAZY_HOLDER_SUFFIX = "Holder";
+
+    private final Refactorings refactorings;
+    private final ASTBuilder astBuilder;
+    /** Constants added during this refactoring pass, per type and per caller supplied key. */
+    private final Map<Pair<TypeDeclaration, String>, String> addedConstants =
+            new HashMap<Pair<TypeDeclaration, String>, String>();
+    /** Number of members added to each type, new members are added after them to preserve their order. */
+    private final Map<TypeDeclaration, Integer> nbAddedMembers = new HashMap<TypeDeclaration, Integer>();
+    /** Names which must not be used for new members. */
+    private Set<String> reservedNames;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param refactorings the refactorings where to record the new members
+     * @param astBuilder the builder for the new members
+     */
+    public StaticMembersRewriter(Refactorings refactorings, ASTBuilder astBuilder) {
+        this.refactorings = refactorings;
+        this.astBuilder = astBuilder;
+    }
+
+    /**
+     * Returns the innermost type declaration enclosing the provided node where private static members can be declared.
+     * <p>
+     * Interfaces, enums, anonymous, local and inner classes cannot declare such members,
+     * so the search continues with their enclosing types.
+     *
+     * @param node the node from where to start the search
+     * @return the innermost type declaration where private static members can be declared,
+     *         or null if none can be found
+     */
+    public TypeDeclaration getEnclosingStaticMembersHolder(ASTNode node) {
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            if (n instanceof TypeDeclaration) {
+                final TypeDeclaration typeDecl = (TypeDeclaration) n;
+                if (!typeDecl.isInterface() && canDeclareStaticMembers(typeDecl)) {
+                    return typeDecl;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean canDeclareStaticMembers(TypeDeclaration typeDecl) {
+        final ASTNode parent = typeDecl.getParent();
+        if (parent instanceof CompilationUnit) {
+            return true;
+        } else if (parent instanceof TypeDeclaration) {
+            return ((TypeDeclaration) parent).isInterface()
+                    || Modifier.isStatic(typeDecl.getModifiers());
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the constant added during this refactoring pass for the provided type and key.
+     *
+     * @param typeDecl the type declaring the constant
+     * @param key the key identifying the value of the constant
+     * @return the name of the constant, qualified with the name of the lazy holder class for lazy constants,
+     *         or null if no such constant has been added
+     */
+    public String getConstant(TypeDeclaration typeDecl, String key) {
+        return addedConstants.get(Pair.of(typeDecl, key));
+    }
+
+    /**
+     * Adds a <code>private static final</code> field to the provided type.
+     * The field is added before the other members,
+     * so it is initialized before any other static initializer of the type can use it.
+     *
+     * @param typeDecl the type where to add the field, as returned by
+     *            {@link #getEnclosingStaticMembersHolder(ASTNode)}
+     * @param key the key identifying the value of the constant, see {@link #getConstant(TypeDeclaration, String)}
+     * @param baseName the preferred field name, a numeric suffix is appended if it is not available
+     * @param fieldType the field type
+     * @param initializer the field initializer
+     * @return the name of the new field
+     */
+    public String addConstant(TypeDeclaration typeDecl, String key, String baseName, Type fieldType,
+            Expression initializer) {
+        final String name = newMemberName(typeDecl, baseName);
+        final ASTBuilder b = astBuilder;
+        final FieldDeclaration field = b.declareField(fieldType,
+                b.declareFragment(b.simpleName(name), initializer),
+                b.private0(), b.static0(), b.final0());
+        addMember(typeDecl, field);
+        addedConstants.put(Pair.of(typeDecl, key), name);
+        return name;
+    }
+
+    /**
+     * Adds a <code>static final</code> field to a new lazy holder class nested in the provided type,
+     * so its initializer is only evaluated the first time the field is read.
+     * The lazy holder class is named after the field, for example <code>FooMethodHolder</code>
+     * for a field named <code>FOO_METHOD</code>.
+     * <p>
+     * The field is not private, so that reading it from the enclosing type does not need a synthetic accessor.
+     *
+     * @param typeDecl the type where to add the field, as returned by
+     *            {@link #getEnclosingStaticMembersHolder(ASTNode)}
+     * @param key the key identifying the value of the constant, see {@link #getConstant(TypeDeclaration, String)}
+     * @param baseName the preferred field name, a numeric suffix is appended if it is not available
+     * @param fieldType the field type
+     * @param initializer the field initializer
+     * @param checkedExceptionNames the names of the checked exceptions thrown by the initializer,
+     *            they are wrapped in an {@link ExceptionInInitializerError}
+     * @return the name of the new field, qualified with the name of the lazy holder class
+     */
+    public String addLazyConstant(TypeDeclaration typeDecl, String key, String baseName, Type fieldType,
+            Expression initializer, String... checkedExceptionNames) {
+        final ASTBuilder b = astBuilder;
+        final TypeDeclaration lazyHolder = b.declareClass(
+                newMemberName(typeDecl, toClassName(baseName) + LAZY_HOLDER_SUFFIX),
+                b.private0(), b.static0(), b.final0());
+        final String name = newMemberName(typeDecl, baseName);
+        final List<BodyDeclaration> members = bodyDeclarations(lazyHolder);
+        if (checkedExceptionNames.length == 0) {
+            members.add(b.declareField(fieldType,
+                    b.declareFragment(b.simpleName(name), initializer), b.static0(), b.final0()));
+        } else {
+            members.add(b.declareField(fieldType,
+                    b.declareFragment(b.simpleName(name), null), b.static0(), b.final0()));
+            final CatchClause[] catchClauses = new CatchClause[checkedExceptionNames.length];
+            for (int i = 0; i < checkedExceptionNames.length; i++) {
+                catchClauses[i] = b.catch0(checkedExceptionNames[i], "e",
+                        b.throw0(b.new0("ExceptionInInitializerError", b.simpleName("e"))));
+            }
+            members.add(b.initializer(
+                    b.block(b.try0(b.block(b.toStmt(b.assign(b.simpleName(name), Assignment.Operator.ASSIGN,
+                            initializer))), catchClauses)),
+                    b.static0()));
+        }
+        refactorings.insertLast(lazyHolder, TypeDeclaration.BODY_DECLARATIONS_PROPERTY, typeDecl);
+        final String qualifiedName = lazyHolder.getName().getIdentifier() + "." + name;
+        addedConstants.put(Pair.of(typeDecl, key), qualifiedName);
+        return qualifiedName;
+    }
+
+    private void addMember(TypeDeclaration typeDecl, ASTNode member) {
+        final Integer nbAdded = nbAddedMembers.get(typeDecl);
+        final int index = nbAdded != null ? nbAdded : 0;
+        refactorings.insertAt(member, index, TypeDeclaration.BODY_DECLARATIONS_PROPERTY, typeDecl);
+        nbAddedMembers.put(typeDecl, index + 1);
+    }
+
+    /**
+     * Returns a new member name derived from the provided base name,
+     * which does not clash with any other name used in the compilation unit.
+     * The returned name is reserved for the rest of this refactoring pass.
+     *
+     * @param node a node from the compilation unit where the name will be used
+     * @param baseName the preferred name
+     * @return a unique name
+     */
+    public String newMemberName(ASTNode node, String baseName) {
+        if (reservedNames == null) {
+            reservedNames = collectReservedNames((CompilationUnit) node.getRoot());
+        }
+        String name = baseName;
+        for (int i = 2; reservedNames.contains(name); i++) {
+            name = baseName + "_" + i;
+        }
+        reservedNames.add(name);
+        return name;
+    }
+
+    /**
+     * Returns whether new members have been named during this refactoring pass.
+     *
+     * @return true if new members have been named during this refactoring pass, false otherwise
+     */
+    public boolean hasNewMembers() {
+        return reservedNames != null;
+    }
+
+    private Set<String> collectReservedNames(CompilationUnit cu) {
+        final Set<String> results = new HashSet<String>();
+        cu.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                results.add(node.getIdentifier());
+                return VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(TypeDeclaration node) {
+                addInheritedFieldNames(node.resolveBinding(), results);
+                return VISIT_SUBTREE;
+            }
+        });
+        return results;
+    }
+
+    private void addInheritedFieldNames(ITypeBinding typeBinding, Set<String> results) {
+        if (typeBinding == null) {
+            return;
+        }
+        final ITypeBinding superclass = typeBinding.getSuperclass();
+        if (superclass != null) {
+            addFieldNames(superclass, results);
+            addInheritedFieldNames(superclass, results);
+        }
+        for (ITypeBinding itf : typeBinding.getInterfaces()) {
+            addFieldNames(itf, results);
+            addInheritedFieldNames(itf, results);
+        }
+    }
+
+    private void addFieldNames(ITypeBinding typeBinding, Set<String> results) {
+        for (IVariableBinding field : typeBinding.getDeclaredFields()) {
+            results.add(field.getName());
+        }
+    }
+
+    /**
+     * Converts the provided constant name into a name following the Java naming conventions for classes.
+     * For example "SPLIT_WORDS" becomes "SplitWords".
+     */
+    private static String toClassName(String constantName) {
+        final StringBuilder sb = new StringBuilder(constantName.length());
+        boolean upperCaseNext = true;
+        for (int i = 0; i < constantName.length(); i++) {
+            final char c = constantName.charAt(i);
+            if (c == '_') {
+                upperCaseNext = true;
+            } else {
+                sb.append(upperCaseNext ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upperCaseNext = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts the provided name into a name following the Java naming conventions for constants.
+     * For example "splitWords" becomes "SPLIT_WORDS".
+     *
+     * @param name the name to convert
+     * @return the name following the Java naming conventions for constants
+     */
+    public static String toConstantName(String name) {
+        final StringBuilder sb = new StringBuilder(name.length() + 8);
+        boolean lastIsUnderscore = true;
+        char previous = 0;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c) && c < 128) {
+                if (Character.isUpperCase(c) && !lastIsUnderscore
+                        && (Character.isLowerCase(previous) || Character.isDigit(previous))) {
+                    sb.append('_');
+                }
+                sb.append(Character.toUpperCase(c));
+                lastIsUnderscore = false;
+            } else if (!lastIsUnderscore) {
+                sb.append('_');
+                lastIsUnderscore = true;
+            }
+            previous = c;
+        }
+        if (lastIsUnderscore && sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+        }
+        if (sb.length() > 0 && Character.isDigit(sb.charAt(0))) {
+            sb.insert(0, '_');
+        }
+        return sb.toString();
+    }
+}
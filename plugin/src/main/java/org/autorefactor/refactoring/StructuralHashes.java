@@ -0,0 +1,129 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTMatcher;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ChildListPropertyDescriptor;
+import org.eclipse.jdt.core.dom.ChildPropertyDescriptor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Javadoc;
+import org.eclipse.jdt.core.dom.StructuralPropertyDescriptor;
+
+/**
+ * Structural hashes of AST subtrees, used to quickly reject nodes which cannot match
+ * before running a full {@link ASTMatcher} comparison.
+ * <p>
+ * Hashes are computed bottom-up from the node types and the values of their structural properties,
+ * so two subtrees matched by a default {@link ASTMatcher} always have the same hash.
+ * Names are hashed by identifier, like {@link ASTMatcher} compares them.
+ * Javadocs do not contribute to the hash because {@link ASTMatcher} may ignore them.
+ * <p>
+ * The hashes of the nodes of a {@link CompilationUnit} are cached on it.
+ * Refactorings never modify the original AST in place (they go through {@link Refactorings}),
+ * so cached hashes remain valid for the whole refactoring pass.
+ */
+final class StructuralHashes {
+
+    private static final String PROPERTY_NAME = StructuralHashes.class.getName();
+
+    /** Node => structural hash of the subtree rooted at this node. */
+    private final Map<ASTNode, Integer> hashes = new IdentityHashMap<ASTNode, Integer>();
+
+    private StructuralHashes() {
+        super();
+    }
+
+    /**
+     * Returns whether the two provided nodes may structurally match.
+     *
+     * @param node1 the first node to compare
+     * @param node2 the second node to compare
+     * @return false if the two provided nodes cannot structurally match, true if they may match
+     */
+    static boolean mayMatch(ASTNode node1, ASTNode node2) {
+        return hash(node1) == hash(node2);
+    }
+
+    /**
+     * Returns the structural hash of the subtree rooted at the provided node.
+     *
+     * @param node the root of the subtree to hash
+     * @return the structural hash of the subtree rooted at the provided node
+     */
+    static int hash(ASTNode node) {
+        return getHashes(node.getRoot()).hash0(node);
+    }
+
+    private static StructuralHashes getHashes(ASTNode root) {
+        if (!(root instanceof CompilationUnit)) {
+            // detached node: do not cache anything
+            return new StructuralHashes();
+        }
+        StructuralHashes hashes = (StructuralHashes) root.getProperty(PROPERTY_NAME);
+        if (hashes == null) {
+            hashes = new StructuralHashes();
+            root.setProperty(PROPERTY_NAME, hashes);
+        }
+        return hashes;
+    }
+
+    private int hash0(ASTNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node instanceof Javadoc) {
+            return ASTNode.JAVADOC;
+        }
+        final Integer cachedHash = hashes.get(node);
+        if (cachedHash != null) {
+            return cachedHash;
+        }
+
+        int hash = node.getNodeType();
+        for (Object prop : node.structuralPropertiesForType()) {
+            final StructuralPropertyDescriptor descriptor = (StructuralPropertyDescriptor) prop;
+            final Object value = node.getStructuralProperty(descriptor);
+            if (descriptor instanceof ChildPropertyDescriptor) {
+                hash = 31 * hash + hash0((ASTNode) value);
+            } else if (descriptor instanceof ChildListPropertyDescriptor) {
+                for (Object child : (List<?>) value) {
+                    hash = 31 * hash + hash0((ASTNode) child);
+                }
+                hash = 31 * hash + ((List<?>) value).size();
+            } else if (value != null) {
+                // simple property: identifier, literal token, operator, modifier flags, etc.
+                hash = 31 * hash + value.hashCode();
+            }
+        }
+        hashes.put(node, hash);
+        return hash;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.autorefactor.util.TimeBudgetExceededException;
+
+/**
+ * Wall-clock time budgets for refactoring one file and for each invocation of a refactoring rule.
+ * <p>
+ * Refactoring rules and their long running helpers cooperate by calling {@link #checkpoint()}:
+ * it throws a {@link TimeBudgetExceededException} once the current rule invocation ran out of time.
+ * They must call it before recording any refactoring, so that no partial refactoring is ever applied.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TimeBudget {
+
+    /** Deadline of the rule invocation running in the current thread, as a {@link System#nanoTime()}. */
+    private static final ThreadLocal<Long> RULE_DEADLINE = new ThreadLocal<Long>();
+
+    private final long fileDeadline;
+    private final int fileBudgetSeconds;
+    private final int ruleBudgetSeconds;
+    private final List<String> overBudgetEvents = new ArrayList<String>();
+
+    /**
+     * Builds an instance of this class, starting the time budget of a file.
+     *
+     * @param fileBudgetSeconds the time budget for refactoring one file, in seconds, 0 for no limit
+     * @param ruleBudgetSeconds the time budget for each invocation of a refactoring rule, in seconds,
+     *        0 for no limit
+     */
+    public TimeBudget(int fileBudgetSeconds, int ruleBudgetSeconds) {
+        this.fileDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(fileBudgetSeconds);
+        this.fileBudgetSeconds = fileBudgetSeconds;
+        this.ruleBudgetSeconds = ruleBudgetSeconds;
+    }
+
+    /**
+     * Returns whether the time budget for refactoring the file ran out.
+     *
+     * @return true if the time budget for refactoring the file ran out, false otherwise
+     */
+    public boolean isFileBudgetExceeded() {
+        return fileBudgetSeconds > 0 && System.nanoTime() - fileDeadline > 0;
+    }
+
+    /**
+     * Returns the time budget for refactoring one file, in seconds.
+     *
+     * @return the time budget for refactoring one file, in seconds
+     */
+    public int getFileBudgetSeconds() {
+        return fileBudgetSeconds;
+    }
+
+    /**
+     * Returns the time budget for each invocation of a refactoring rule, in seconds.
+     *
+     * @return the time budget for each invocation of a refactoring rule, in seconds
+     */
+    public int getRuleBudgetSeconds() {
+        return ruleBudgetSeconds;
+    }
+
+    /** Starts the time budget of a refactoring rule invocation in the current thread. */
+    public void startRule() {
+        if (ruleBudgetSeconds > 0) {
+            RULE_DEADLINE.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(ruleBudgetSeconds));
+        }
+    }
+
+    /**
+     * Stops the time budget of the refactoring rule invocation in the current thread.
+     *
+     * @return true if the refactoring rule invocation ran out of time, false otherwise
+     */
+    public boolean stopRule() {
+        final Long deadline = RULE_DEADLINE.get();
+        RULE_DEADLINE.remove();
+        return deadline != null && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Throws a {@link TimeBudgetExceededException} if the refactoring rule invocation running in the current thread
+     * ran out of time. Does nothing when no time budget was started in the current thread.
+     */
+    public static void checkpoint() {
+        final Long deadline = RULE_DEADLINE.get();
+        if (deadline != null && System.nanoTime() - deadline > 0) {
+            throw new TimeBudgetExceededException(null, "The refactoring rule ran out of time");
+        }
+    }
+
+    /**
+     * Records that a time budget ran out.
+     *
+     * @param event the description of the time budget which ran out
+     */
+    public synchronized void addOverBudgetEvent(String event) {
+        overBudgetEvents.add(event);
+    }
+
+    /**
+     * Returns the descriptions of the time budgets which ran out.
+     *
+     * @return the descriptions of the time budgets which ran out
+     */
+    public synchronized List<String> getOverBudgetEvents() {
+        return new ArrayList<String>(overBudgetEvents);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+/**
+ * Optional interface for the refactoring rules which can only refactor source code containing some tokens,
+ * typically the names of the methods or types they refactor.
+ * <p>
+ * Before parsing a compilation unit, the rules none of whose trigger tokens appear in its source are dropped.
+ * The compilation unit is not parsed at all when no rules remain.
+ * Rules are selected once per compilation unit, from its source before any refactoring is applied.
+ */
+public interface TriggerTokensRefactoringRule extends RefactoringRule {
+
+    /**
+     * Returns the tokens triggering this refactoring rule.
+     * <p>
+     * Tokens are searched as substrings of the raw source, without parsing it.
+     * Any code refactored by this rule must therefore literally contain at least one of them,
+     * whatever the imports, the qualification or the inheritance hierarchy used by this code.
+     *
+     * @return the tokens triggering this refactoring rule
+     */
+    String[] getTriggerTokens();
+
+}
@@ -0,0 +1,96 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Generates names for the local variables introduced by the refactoring rules.
+ * <p>
+ * Generated names do not clash with any name used in the enclosing body declaration,
+ * so they neither shadow nor are shadowed by other variables.
+ * They are reserved for the rest of the refactoring pass,
+ * so several refactorings in the same body declaration never generate the same name.
+ */
+public class VariableNameGenerator {
+
+    private final Map<BodyDeclaration, Set<String>> reservedNames = new HashMap<BodyDeclaration, Set<String>>();
+
+    /**
+     * Returns a new local variable name derived from the provided base name,
+     * for a variable declared in the body declaration enclosing the provided node.
+     *
+     * @param node the node where the local variable will be declared
+     * @param baseName the preferred name
+     * @return a local variable name which does not clash with any other name
+     */
+    public String newLocalVariableName(ASTNode node, String baseName) {
+        final BodyDeclaration bodyDecl = getAncestor(node, BodyDeclaration.class);
+        Set<String> names = reservedNames.get(bodyDecl);
+        if (names == null) {
+            names = collectNames(bodyDecl);
+            reservedNames.put(bodyDecl, names);
+        }
+        String name = baseName;
+        for (int i = 2; names.contains(name); i++) {
+            name = baseName + i;
+        }
+        names.add(name);
+        return name;
+    }
+
+    /**
+     * Returns the body declarations where new local variable names have been generated during this pass.
+     *
+     * @return the body declarations where new local variable names have been generated during this pass
+     */
+    public Set<BodyDeclaration> getBodyDeclarationsWithNewNames() {
+        return Collections.unmodifiableSet(reservedNames.keySet());
+    }
+
+    private Set<String> collectNames(BodyDeclaration bodyDecl) {
+        final Set<String> results = new HashSet<String>();
+        bodyDecl.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                results.add(node.getIdentifier());
+                return VISIT_SUBTREE;
+            }
+        });
+        return results;
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -41,8 +42,10 @@ import org.autorefactor.preferences.Preferences;
 import org.autorefactor.refactoring.JavaRefactoringRule;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TimeBudget;
 import org.autorefactor.util.AutoRefactorException;
 import org.autorefactor.util.NotImplementedException;
+import org.autorefactor.util.TimeBudgetExceededException;
 import org.autorefactor.util.UnhandledException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
@@ -136,8 +139,12 @@ import static org.autorefactor.refactoring.ASTHelper.*;
 
 /**
  * Aggregates running several visitors into only one visitor to increase performances.
- * When one visitor refactors a subtree of the AST, visitors coming after will not be able to visit it.
+ * When one visitor refactors a subtree of the AST, visitors coming after will not be able to visit
+ * the parts of this subtree touched by the refactoring.
+ * They can still refactor the parts which do not overlap any previous refactoring in the same run,
+ * so that more refactorings are applied per run.
  * Visitors throwing exceptions are isolated and ignored for the rest of a run for stability.
+ * Visitors running out of their time budget are ignored for the rest of the file.
  */
 public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRule {
 
@@ -151,6 +158,11 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
 
     private RefactoringContext ctx;
     private final List<ASTVisitor> visitorsContributingRefactoring = new ArrayList<ASTVisitor>();
+    /** Visitor => root of the subtree it refactored and does not want to visit. */
+    private final Map<ASTVisitor, ASTNode> skippedSubtrees = new HashMap<ASTVisitor, ASTNode>();
+    private TimeBudget timeBudget;
+    /** Visitors which ran out of their time budget, disabled for the rest of the file. */
+    private final Set<ASTVisitor> overBudgetVisitors = new HashSet<ASTVisitor>();
 
     /**
      * Builds an instance of this class.
@@ -242,6 +254,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
             v.setRefactoringContext(ctx);
         }
         this.visitorsContributingRefactoring.clear();
+        this.skippedSubtrees.clear();
     }
 
     /** {@inheritDoc} */
@@ -251,6 +264,15 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         return this.ctx.getRefactorings();
     }
 
+    /**
+     * Sets the time budgets to enforce while visiting the file.
+     *
+     * @param timeBudget the time budgets to enforce while visiting the file, null for no limit
+     */
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     /**
      * Returns the visitors that contributed refactorings in the last run.
      *
@@ -271,20 +293,81 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
      *         false otherwise
      */
     private boolean continueVisiting(boolean continueVisiting, ASTVisitor v, ASTNode node) {
+        if (timeBudget != null && timeBudget.stopRule()) {
+            disableOverBudgetVisitor(v, node);
+        }
         if (!continueVisiting) {
             if (!this.ctx.getRefactorings().hasRefactorings()) {
                 logBadlyBehavedVisitor(v, node);
-            } else {
-                visitorsContributingRefactoring.add(v);
+                return false;
             }
-            // changes will be made to this node.
-            // no other visitors can make any more changes to it
-            // => do not let other visitors visit this node
+            visitorsContributingRefactoring.add(v);
+            // changes have been made to this node or its subtree.
+            // the current visitor does not want to visit the subtree any more,
+            // but the other visitors can still visit (and refactor) the nodes
+            // which do not overlap any of these changes
+            skippedSubtrees.put(v, node);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the provided visitor can visit the provided node.
+     * <p>
+     * A visitor cannot visit nodes from the subtree it refactored,
+     * nor nodes overlapping any refactoring already done in the current run.
+     *
+     * @param v the visitor
+     * @param node the node to visit
+     * @return true if the provided visitor can visit the provided node, false otherwise
+     */
+    private boolean canVisit(ASTVisitor v, ASTNode node) {
+        return !isSkippingSubtree(v, node) && this.ctx.getRefactorings().canRefactor(node);
+    }
+
+    /**
+     * Returns whether the provided visitor can visit the provided node,
+     * and if so starts the time budget of this visit.
+     *
+     * @param v the visitor
+     * @param node the node to visit
+     * @return true if the provided visitor can visit the provided node, false otherwise
+     */
+    private boolean startVisit(ASTVisitor v, ASTNode node) {
+        if (!canVisit(v, node)) {
             return false;
         }
+        if (timeBudget != null) {
+            if (overBudgetVisitors.contains(v) || timeBudget.isFileBudgetExceeded()) {
+                return false;
+            }
+            timeBudget.startRule();
+        }
         return true;
     }
 
+    private void disableOverBudgetVisitor(ASTVisitor v, ASTNode node) {
+        if (overBudgetVisitors.add(v)) {
+            timeBudget.addOverBudgetEvent("Visitor " + v.getClass().getName()
+                    + " ran out of its time budget of " + timeBudget.getRuleBudgetSeconds() + "s"
+                    + " at " + getSourceLocation(node) + ", it has been disabled for this file.");
+        }
+    }
+
+    private boolean isSkippingSubtree(ASTVisitor v, ASTNode node) {
+        if (skippedSubtrees.isEmpty()) {
+            return false;
+        }
+        final ASTNode subtreeRoot = skippedSubtrees.get(v);
+        return subtreeRoot != null && subtreeRoot != node;
+    }
+
+    private void stopSkippingSubtree(ASTNode node) {
+        if (!skippedSubtrees.isEmpty()) {
+            skippedSubtrees.values().removeAll(Collections.singleton(node));
+        }
+    }
+
     private void logBadlyBehavedVisitor(ASTVisitor v, ASTNode node) {
         String message = "Visitor " + v.getClass().getName() + " is badly behaved:"
                 + " it reported doing a refactoring, but it did not actually contribute any refactoring.";
@@ -292,6 +375,13 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
     }
 
     private void logFaultyVisitor(ASTVisitor v, ASTNode node, Exception e) {
+        if (timeBudget != null) {
+            timeBudget.stopRule();
+        }
+        if (e instanceof TimeBudgetExceededException) {
+            disableOverBudgetVisitor(v, node);
+            return;
+        }
         String message = "Visitor " + v.getClass().getName() + " is faulty,"
                 + " it will be disabled for the rest of this run.";
         logError(message, new UnhandledException(node, message, e));
@@ -347,6 +437,13 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
             }
             System.out.println(".iterator(); iter.hasNext();) {");
             System.out.println("\t\tfinal ASTVisitor v = iter.next();");
+            if (isVisit) {
+                System.out.println("\t\tif (!startVisit(v, node)) {");
+            } else {
+                System.out.println("\t\tif (isSkippingSubtree(v, node)) {");
+            }
+            System.out.println("\t\t\tcontinue;");
+            System.out.println("\t\t}");
             System.out.println("\t\ttry {");
             if (isPrevisit2) {
                 System.out.println("\t\t\tif (!v." + m.getName() + "(node)) {");
@@ -364,6 +461,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
             System.out.println("\t\t\titer.remove();");
             System.out.println("\t\t}");
             System.out.println("\t}");
+            if (is("postVisit", m)) {
+                System.out.println("\tstopSkippingSubtree(node);");
+            }
             if (Boolean.TYPE.equals(m.getReturnType())) {
                 System.out.println("\treturn VISIT_SUBTREE;");
             }
@@ -378,6 +478,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, AnnotationTypeDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -393,6 +496,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, AnnotationTypeMemberDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -408,6 +514,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, AnonymousClassDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -423,6 +532,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ArrayAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -438,6 +550,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ArrayCreation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -453,6 +568,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ArrayInitializer.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -468,6 +586,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ArrayType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -483,6 +604,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, AssertStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -498,6 +622,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, Assignment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -513,6 +640,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, Block.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -528,6 +658,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, BlockComment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -543,6 +676,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, BooleanLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -558,6 +694,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, BreakStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -573,6 +712,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, CastExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -588,6 +730,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, CatchClause.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -603,6 +748,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, CharacterLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -618,6 +766,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ClassInstanceCreation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -633,6 +784,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, CompilationUnit.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -648,6 +802,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ConditionalExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -663,6 +820,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ConstructorInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -678,6 +838,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ContinueStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -693,6 +856,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, DoStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -708,6 +874,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, EmptyStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -723,6 +892,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, EnhancedForStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -738,6 +910,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, EnumConstantDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -753,6 +928,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, EnumDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -768,6 +946,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ExpressionStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -783,6 +964,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, FieldAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -798,6 +982,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, FieldDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -813,6 +1000,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ForStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -828,6 +1018,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, IfStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -843,6 +1036,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ImportDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -858,6 +1054,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, InfixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -873,6 +1072,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, Initializer.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -888,6 +1090,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, InstanceofExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -903,6 +1108,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, Javadoc.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -918,6 +1126,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, LabeledStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -933,6 +1144,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, LineComment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -948,6 +1162,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MarkerAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -963,6 +1180,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MemberRef.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -978,6 +1198,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MemberValuePair.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -993,6 +1216,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MethodDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1008,6 +1234,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MethodInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1023,6 +1252,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MethodRef.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1038,6 +1270,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, MethodRefParameter.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1053,6 +1288,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, Modifier.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1068,6 +1306,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, NormalAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1083,6 +1324,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, NullLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1098,6 +1342,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, NumberLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1113,6 +1360,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, PackageDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1128,6 +1378,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ParameterizedType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1143,6 +1396,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ParenthesizedExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1158,6 +1414,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, PostfixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1173,6 +1432,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, PrefixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1188,6 +1450,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, PrimitiveType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1203,6 +1468,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, QualifiedName.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1218,6 +1486,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, QualifiedType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1233,6 +1504,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ReturnStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1248,6 +1522,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SimpleName.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1263,6 +1540,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SimpleType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1278,6 +1558,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SingleMemberAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1293,6 +1576,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SingleVariableDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1308,6 +1594,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, StringLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1323,6 +1612,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SuperConstructorInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1338,6 +1630,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SuperFieldAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1353,6 +1648,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SuperMethodInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1368,6 +1666,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SwitchCase.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1383,6 +1684,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SwitchStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1398,6 +1702,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, SynchronizedStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1413,6 +1720,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TagElement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1428,6 +1738,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TextElement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1443,6 +1756,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ThisExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1458,6 +1774,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, ThrowStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1473,6 +1792,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TryStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1488,6 +1810,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TypeDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1503,6 +1828,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TypeDeclarationStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1518,6 +1846,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TypeLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1533,6 +1864,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, TypeParameter.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1548,6 +1882,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, UnionType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1563,6 +1900,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, VariableDeclarationExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1578,6 +1918,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, VariableDeclarationFragment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1593,6 +1936,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, VariableDeclarationStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1608,6 +1954,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, WhileStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1623,6 +1972,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(endVisitorsMap, WildcardType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.endVisit(node);
             } catch (Exception e) {
@@ -1637,6 +1989,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
     public void postVisit(ASTNode node) {
         for (Iterator<ASTVisitor> iter = postVisitors.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.postVisit(node);
             } catch (Exception e) {
@@ -1644,6 +1999,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
                 iter.remove();
             }
         }
+        stopSkippingSubtree(node);
     }
 
     /** {@inheritDoc} */
@@ -1651,6 +2007,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
     public void preVisit(ASTNode node) {
         for (Iterator<ASTVisitor> iter = preVisitors.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 v.preVisit(node);
             } catch (Exception e) {
@@ -1665,6 +2024,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
     public boolean preVisit2(ASTNode node) {
         for (Iterator<ASTVisitor> iter = preVisitors2.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (isSkippingSubtree(v, node)) {
+                continue;
+            }
             try {
                 if (!v.preVisit2(node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1683,6 +2045,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, AnnotationTypeDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1701,6 +2066,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, AnnotationTypeMemberDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1719,6 +2087,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, AnonymousClassDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1737,6 +2108,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ArrayAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1755,6 +2129,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ArrayCreation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1773,6 +2150,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ArrayInitializer.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1791,6 +2171,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ArrayType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1809,6 +2192,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, AssertStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1827,6 +2213,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, Assignment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1845,6 +2234,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, Block.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1863,6 +2255,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, BlockComment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1881,6 +2276,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, BooleanLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1899,6 +2297,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, BreakStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1917,6 +2318,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, CastExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1935,6 +2339,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, CatchClause.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1953,6 +2360,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, CharacterLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1971,6 +2381,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ClassInstanceCreation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -1989,6 +2402,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, CompilationUnit.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2007,6 +2423,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ConditionalExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2025,6 +2444,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ConstructorInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2043,6 +2465,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ContinueStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2061,6 +2486,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, DoStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2079,6 +2507,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, EmptyStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2097,6 +2528,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, EnhancedForStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2115,6 +2549,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, EnumConstantDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2133,6 +2570,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, EnumDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2151,6 +2591,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ExpressionStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2169,6 +2612,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, FieldAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2187,6 +2633,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, FieldDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2205,6 +2654,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ForStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2223,6 +2675,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, IfStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2241,6 +2696,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ImportDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2259,6 +2717,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, InfixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2277,6 +2738,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, Initializer.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2295,6 +2759,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, InstanceofExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2313,6 +2780,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, Javadoc.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2331,6 +2801,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, LabeledStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2349,6 +2822,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, LineComment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2367,6 +2843,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MarkerAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2385,6 +2864,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MemberRef.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2403,6 +2885,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MemberValuePair.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2421,6 +2906,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MethodDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2439,6 +2927,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MethodInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2457,6 +2948,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MethodRef.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2475,6 +2969,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, MethodRefParameter.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2493,6 +2990,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, Modifier.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2511,6 +3011,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, NormalAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2529,6 +3032,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, NullLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2547,6 +3053,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, NumberLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2565,6 +3074,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, PackageDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2583,6 +3095,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ParameterizedType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2601,6 +3116,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ParenthesizedExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2619,6 +3137,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, PostfixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2637,6 +3158,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, PrefixExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2655,6 +3179,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, PrimitiveType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2673,6 +3200,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, QualifiedName.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2691,6 +3221,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, QualifiedType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2709,6 +3242,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ReturnStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2727,6 +3263,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SimpleName.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2745,6 +3284,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SimpleType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2763,6 +3305,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SingleMemberAnnotation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2781,6 +3326,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SingleVariableDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2799,6 +3347,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, StringLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2817,6 +3368,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SuperConstructorInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2835,6 +3389,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SuperFieldAccess.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2853,6 +3410,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SuperMethodInvocation.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2871,6 +3431,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SwitchCase.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2889,6 +3452,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SwitchStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2907,6 +3473,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, SynchronizedStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2925,6 +3494,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TagElement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2943,6 +3515,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TextElement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2961,6 +3536,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ThisExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2979,6 +3557,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, ThrowStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -2997,6 +3578,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TryStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3015,6 +3599,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TypeDeclaration.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3033,6 +3620,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TypeDeclarationStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3051,6 +3641,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TypeLiteral.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3069,6 +3662,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, TypeParameter.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3087,6 +3683,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, UnionType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3105,6 +3704,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, VariableDeclarationExpression.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3123,6 +3725,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, VariableDeclarationFragment.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3141,6 +3746,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, VariableDeclarationStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3159,6 +3767,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, WhileStatement.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -3177,6 +3788,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         final List<ASTVisitor> visitorList = getVisitors(visitorsMap, WildcardType.class);
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
+            if (!startVisit(v, node)) {
+                continue;
+            }
             try {
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
@@ -69,6 +69,7 @@ public final class AllRefactoringRules {
                 new RemoveUselessNullCheckRefactoring(),
                 new WorkWithNullCheckedExpressionFirstRefactoring(),
                 new VectorOldToNewAPIRefactoring(),
+                new RemoveUselessSynchronizationRefactoring(),
                 new PrimitiveWrapperCreationRefactoring(),
                 new BooleanRefactoring(),
                 new AddBracketsToControlStatementRefactoring(),
@@ -85,6 +86,13 @@ public final class AllRefactoringRules {
                 // TODO JNR complete it
                 // new GenerecizeRefactoring(),
                 new CollectionRefactoring(),
+                new MapRefactoring(),
+                new EnumCollectionsRefactoring(),
+                new CollectionComplexityRefactoring(),
+                new UseSetContainsInLoopsRefactoring(),
+                new UseBufferedStreamsRefactoring(),
+                new LoggingRefactoring(),
+                new NoExceptionForControlFlowRefactoring(),
                 new NoAssignmentInIfConditionRefactoring(),
                 new IfStatementRefactoring(),
                 // TODO JNR implement
@@ -93,6 +101,10 @@ public final class AllRefactoringRules {
                 // new ReduceVariableScopeRefactoring(),
                 new StringBuilderRefactoring(),
                 new UseStringContainsRefactoring(),
+                new PrecompileRegexRefactoring(),
+                new HoistConstantsRefactoring(),
+                new HoistAnonymousClassesRefactoring(),
+                new HoistReflectionLookupsRefactoring(),
                 new PushNegationDownRefactoring(),
                 new CommentsRefactoring(),
                 new RemoveFieldsDefaultValuesRefactoring(),
@@ -28,6 +28,7 @@ package org.autorefactor.refactoring.rules;
 import java.math.BigDecimal;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.Expression;
@@ -52,12 +53,18 @@ import static org.autorefactor.refactoring.JavaConstants.*;
  * {@link BigDecimal#compareTo(BigDecimal)}</li>
  * </ul>
  */
-public class BigDecimalRefactoring extends AbstractRefactoringRule {
+public class BigDecimalRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
 
     private int getJavaMinorVersion() {
         return ctx.getJavaProjectOptions().getJavaSERelease().getMinorVersion();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "BigDecimal", "valueOf", "equals" };
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean visit(ClassInstanceCreation node) {
@@ -192,7 +192,7 @@ public class BooleanRefactoring extends AbstractRefactoringRule {
     @Override
     public void setRefactoringContext(RefactoringContext ctx) {
         super.setRefactoringContext(ctx);
-        b = ctx.getASTBuilder();
+        b = ctx != null ? ctx.getASTBuilder() : null;
     }
 
     private int getJavaMinorVersion() {
@@ -0,0 +1,505 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.ForLoopHelper.ContainerType;
+import org.autorefactor.refactoring.ForLoopHelper.ForLoopContent;
+import org.autorefactor.refactoring.ForLoopHelper.IterationType;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.ArrayCreation;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BooleanLiteral;
+import org.eclipse.jdt.core.dom.CharacterLiteral;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.NumberLiteral;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeLiteral;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+import static org.autorefactor.AutoRefactorPlugin.*;
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.autorefactor.refactoring.ForLoopHelper.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Replaces collection usages with an accidental quadratic or linear complexity
+ * by their equivalent with the expected complexity:
+ * <ul>
+ * <li>loops over the indexes of a <code>LinkedList</code> calling <code>get(i)</code>
+ * become foreach loops,</li>
+ * <li>local <code>ArrayList</code>s used as queues, by calling <code>remove(0)</code> in a loop,
+ * become <code>ArrayDeque</code>s,</li>
+ * <li><code>size()</code> compared to zero on a <code>ConcurrentLinkedQueue</code>
+ * or a <code>ConcurrentLinkedDeque</code>, which must count all the elements,
+ * becomes <code>isEmpty()</code>.</li>
+ * </ul>
+ * The other occurrences of these patterns cannot be rewritten safely
+ * and are reported in the Eclipse workspace logs.
+ */
+public class CollectionComplexityRefactoring extends AbstractRefactoringRule
+        implements TriggerTokensRefactoringRule {
+
+    /** Source locations already reported, to avoid reporting them again on each refactoring pass. */
+    private final Set<String> reportedLocations = new HashSet<String>();
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "LinkedList", "ArrayList", "ConcurrentLinked" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ForStatement node) {
+        final ForLoopContent loopContent = iterateOverContainer(node);
+        if (loopContent == null
+                || loopContent.getContainerType() != ContainerType.COLLECTION
+                || loopContent.getIterationType() != IterationType.INDEX
+                || !instanceOf(loopContent.getContainerVariable().resolveTypeBinding(), "java.util.LinkedList")) {
+            return VISIT_SUBTREE;
+        }
+        final List<MethodInvocation> getCalls = getIndexedGetCalls(node, loopContent);
+        if (getCalls != null && replaceWithForeach(node, loopContent, getCalls)) {
+            return DO_NOT_VISIT_SUBTREE;
+        }
+        if (getCalls == null || !getCalls.isEmpty()) {
+            report(node, "LinkedList.get(int) is called in a loop over the list indexes, which is O(n^2)."
+                    + " Consider iterating over the list with an iterator.");
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the <code>container.get(i)</code> calls from the body of the provided for loop,
+     * or null if the loop variable or the container are used in any other way.
+     */
+    private List<MethodInvocation> getIndexedGetCalls(ForStatement node, final ForLoopContent loopContent) {
+        final IBinding loopVariable = loopContent.getLoopVariable().resolveBinding();
+        final IBinding container = loopContent.getContainerVariable().resolveBinding();
+        if (loopVariable == null || container == null) {
+            return null;
+        }
+        final List<MethodInvocation> results = new ArrayList<MethodInvocation>();
+        final boolean[] otherUses = { false };
+        node.getBody().accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (loopVariable.equals(binding)) {
+                    final MethodInvocation mi = node.getLocationInParent() == MethodInvocation.ARGUMENTS_PROPERTY
+                            ? (MethodInvocation) node.getParent() : null;
+                    if (mi != null
+                            && isMethod(mi, "java.util.List", "get", "int")
+                            && mi.getExpression() instanceof SimpleName
+                            && container.equals(((SimpleName) mi.getExpression()).resolveBinding())) {
+                        results.add(mi);
+                    } else {
+                        otherUses[0] = true;
+                    }
+                } else if (container.equals(binding)) {
+                    final MethodInvocation mi = node.getLocationInParent() == MethodInvocation.EXPRESSION_PROPERTY
+                            ? (MethodInvocation) node.getParent() : null;
+                    if (!isMethod(mi, "java.util.List", "get", "int")
+                            || !isSameVariable(arguments(mi).get(0), loopContent.getLoopVariable())) {
+                        otherUses[0] = true;
+                    }
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return !otherUses[0] ? results : null;
+    }
+
+    private boolean replaceWithForeach(ForStatement node, ForLoopContent loopContent,
+            List<MethodInvocation> getCalls) {
+        final IBinding container = loopContent.getContainerVariable().resolveBinding();
+        if (getCalls.isEmpty()
+                || !(initializers(node).get(0) instanceof VariableDeclarationExpression)
+                || !(container instanceof IVariableBinding)
+                || ((IVariableBinding) container).isField()) {
+            return false;
+        }
+        final ITypeBinding elementType = getCalls.get(0).resolveTypeBinding();
+        if (elementType == null || elementType.isCapture() || elementType.isWildcardType()) {
+            return false;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final AST ast = b.getAST();
+        final Refactorings r = this.ctx.getRefactorings();
+        final SingleVariableDeclaration element = ast.newSingleVariableDeclaration();
+        final VariableDeclarationStatement elementDecl = getElementDeclaration(node, getCalls);
+        final String elementName;
+        if (elementDecl != null) {
+            final VariableDeclarationFragment fragment = fragments(elementDecl).get(0);
+            if (Modifier.isFinal(elementDecl.getModifiers())) {
+                modifiers(element).add(b.final0());
+            }
+            element.setType(b.copy(elementDecl.getType()));
+            elementName = fragment.getName().getIdentifier();
+            r.remove(elementDecl);
+        } else {
+            final Type type = this.ctx.getImportsRewriter().newType(node, elementType);
+            if (type == null) {
+                return false;
+            }
+            element.setType(type);
+            elementName = this.ctx.getVariableNameGenerator().newLocalVariableName(node,
+                    getElementName(loopContent.getContainerVariable()));
+        }
+        element.setName(b.simpleName(elementName));
+        for (MethodInvocation getCall : getCalls) {
+            if (elementDecl == null || getCall.getParent() != fragments(elementDecl).get(0)) {
+                r.replace(getCall, b.simpleName(elementName));
+            }
+        }
+
+        final EnhancedForStatement foreach = ast.newEnhancedForStatement();
+        foreach.setParameter(element);
+        foreach.setExpression(b.copy(loopContent.getContainerVariable()));
+        foreach.setBody(b.move(node.getBody()));
+        r.replace(node, foreach);
+        return true;
+    }
+
+    /**
+     * Returns the statement declaring the element at the beginning of the loop body, if any.
+     * The element variable must never be assigned, otherwise the other <code>get(i)</code> calls
+     * would read the new value once replaced with it.
+     */
+    private VariableDeclarationStatement getElementDeclaration(ForStatement node, List<MethodInvocation> getCalls) {
+        final List<Statement> stmts = node.getBody() instanceof Block ? statements((Block) node.getBody()) : null;
+        if (stmts != null && !stmts.isEmpty() && stmts.get(0) instanceof VariableDeclarationStatement) {
+            final VariableDeclarationStatement vds = (VariableDeclarationStatement) stmts.get(0);
+            final List<VariableDeclarationFragment> fragments = fragments(vds);
+            if (fragments.size() == 1
+                    && fragments.get(0).getExtraDimensions() == 0
+                    && (vds.getModifiers() & ~Modifier.FINAL) == 0
+                    && vds.modifiers().size() <= 1
+                    && getCalls.contains(fragments.get(0).getInitializer())
+                    && !isAssigned(fragments.get(0).resolveBinding(), node.getBody())) {
+                return vds;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAssigned(final IVariableBinding varBinding, Statement body) {
+        if (varBinding == null) {
+            return true;
+        }
+        final boolean[] result = { false };
+        body.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(Assignment node) {
+                return visitAssigned(node.getLeftHandSide());
+            }
+
+            @Override
+            public boolean visit(PrefixExpression node) {
+                if (PrefixExpression.Operator.INCREMENT.equals(node.getOperator())
+                        || PrefixExpression.Operator.DECREMENT.equals(node.getOperator())) {
+                    return visitAssigned(node.getOperand());
+                }
+                return VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(PostfixExpression node) {
+                return visitAssigned(node.getOperand());
+            }
+
+            private boolean visitAssigned(Expression expr) {
+                final SimpleName name = as(removeParentheses(expr), SimpleName.class);
+                if (name != null && varBinding.equals(name.resolveBinding())) {
+                    result[0] = true;
+                }
+                return !result[0];
+            }
+        });
+        return result[0];
+    }
+
+    private String getElementName(Name containerVariable) {
+        final String name = ((SimpleName) containerVariable).getIdentifier();
+        if (name.length() > 1 && name.endsWith("s")) {
+            return name.substring(0, name.length() - 1);
+        }
+        return "element";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(VariableDeclarationStatement node) {
+        final List<VariableDeclarationFragment> fragments = fragments(node);
+        if (fragments.size() != 1) {
+            return VISIT_SUBTREE;
+        }
+        final List<MethodInvocation> queueCalls = getQueueCalls(fragments.get(0));
+        if (queueCalls == null) {
+            return VISIT_SUBTREE;
+        }
+
+        final Refactorings r = this.ctx.getRefactorings();
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String newDeclaredType = hasType(node.getType().resolveBinding(), "java.util.List")
+                ? "java.util.Deque" : "java.util.ArrayDeque";
+        replaceRawType(node.getType(), newDeclaredType);
+        replaceRawType(((ClassInstanceCreation) fragments.get(0).getInitializer()).getType(), "java.util.ArrayDeque");
+        for (MethodInvocation mi : queueCalls) {
+            final String methodName = "remove".equals(mi.getName().getIdentifier()) ? "removeFirst" : "getFirst";
+            r.replace(mi, b.invoke(b.copy(mi.getExpression()), methodName));
+        }
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private void replaceRawType(Type type, String qualifiedTypeName) {
+        final String typeName = this.ctx.getImportsRewriter().addImport(type, qualifiedTypeName);
+        final Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getType() : type;
+        this.ctx.getRefactorings().replace(rawType, this.ctx.getASTBuilder().type(typeName));
+    }
+
+    /**
+     * Returns the <code>remove(0)</code> and <code>get(0)</code> calls to replace
+     * when the provided local variable is an <code>ArrayList</code> used as a queue,
+     * or null if it cannot be replaced with an <code>ArrayDeque</code>.
+     * <p>
+     * The variable must only be used through the methods shared with <code>ArrayDeque</code>,
+     * and the added elements must not be null, which <code>ArrayDeque</code> rejects.
+     */
+    private List<MethodInvocation> getQueueCalls(final VariableDeclarationFragment fragment) {
+        final VariableDeclarationStatement vds = fragment.getParent() instanceof VariableDeclarationStatement
+                ? (VariableDeclarationStatement) fragment.getParent() : null;
+        final ClassInstanceCreation cic = as(fragment.getInitializer(), ClassInstanceCreation.class);
+        if (vds == null
+                || fragment.getExtraDimensions() != 0
+                || !hasType(vds.getType().resolveBinding(), "java.util.List", "java.util.ArrayList")
+                || !isArrayListCreation(cic)) {
+            return null;
+        }
+        final IVariableBinding varBinding = fragment.resolveBinding();
+        if (varBinding == null) {
+            return null;
+        }
+
+        final List<MethodInvocation> results = new ArrayList<MethodInvocation>();
+        final boolean[] canReplace = { true };
+        final boolean[] isQueue = { false };
+        vds.getParent().accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                if (!canReplace[0]
+                        || node == fragment.getName()
+                        || !varBinding.equals(node.resolveBinding())) {
+                    return canReplace[0];
+                }
+                if (node.getLocationInParent() == EnhancedForStatement.EXPRESSION_PROPERTY) {
+                    return VISIT_SUBTREE;
+                } else if (node.getLocationInParent() != MethodInvocation.EXPRESSION_PROPERTY) {
+                    canReplace[0] = false;
+                    return DO_NOT_VISIT_SUBTREE;
+                }
+                final MethodInvocation mi = (MethodInvocation) node.getParent();
+                if (isMethod(mi, "java.util.List", "remove", "int") && isZero(arguments(mi).get(0))) {
+                    isQueue[0] |= isInLoop(mi);
+                    results.add(mi);
+                } else if (isMethod(mi, "java.util.List", "get", "int") && isZero(arguments(mi).get(0))) {
+                    results.add(mi);
+                } else if (isMethod(mi, "java.util.Collection", "add", "java.lang.Object")) {
+                    canReplace[0] = isNotNull(arguments(mi).get(0));
+                } else if (!isMethod(mi, "java.util.Collection", "clear")
+                        && !isMethod(mi, "java.util.Collection", "contains", "java.lang.Object")
+                        && !isMethod(mi, "java.util.Collection", "isEmpty")
+                        && !isMethod(mi, "java.util.Collection", "size")) {
+                    canReplace[0] = false;
+                }
+                return canReplace[0];
+            }
+        });
+        return canReplace[0] && isQueue[0] ? results : null;
+    }
+
+    private boolean isArrayListCreation(ClassInstanceCreation cic) {
+        if (cic == null
+                || cic.getExpression() != null
+                || cic.getAnonymousClassDeclaration() != null
+                || !hasType(cic.resolveTypeBinding(), "java.util.ArrayList")) {
+            return false;
+        }
+        final List<Expression> args = arguments(cic);
+        return args.isEmpty() || (args.size() == 1 && isPrimitive(args.get(0), "int"));
+    }
+
+    private boolean isNotNull(Expression expr) {
+        final Expression e = removeParentheses(expr);
+        return e instanceof ClassInstanceCreation
+                || e instanceof ArrayCreation
+                || e instanceof StringLiteral
+                || e instanceof NumberLiteral
+                || e instanceof CharacterLiteral
+                || e instanceof BooleanLiteral
+                || e instanceof TypeLiteral
+                || isPrimitive(e)
+                || (e instanceof InfixExpression && hasType(e, "java.lang.String"));
+    }
+
+    private boolean isZero(Expression expr) {
+        final Object value = expr.resolveConstantExpressionValue();
+        return value instanceof Integer && ((Integer) value).intValue() == 0;
+    }
+
+    private boolean isInLoop(ASTNode node) {
+        for (ASTNode n = node.getParent(); n != null && !(n instanceof BodyDeclaration); n = n.getParent()) {
+            if (isLoop(n)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(InfixExpression node) {
+        final MethodInvocation sizeCall = getConcurrentQueueSizeComparedToZero(node);
+        if (sizeCall == null) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final MethodInvocation isEmpty = b.invoke(b.copy(sizeCall.getExpression()), "isEmpty");
+        if (EQUALS.equals(node.getOperator())) {
+            this.ctx.getRefactorings().replace(node, isEmpty);
+        } else {
+            this.ctx.getRefactorings().replace(node, b.not(isEmpty));
+        }
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the <code>size()</code> call on a concurrent linked queue
+     * if the provided expression compares it to zero, null otherwise.
+     */
+    private MethodInvocation getConcurrentQueueSizeComparedToZero(InfixExpression node) {
+        if (node.hasExtendedOperands()) {
+            return null;
+        }
+        final InfixExpression.Operator operator = node.getOperator();
+        final MethodInvocation leftSize = as(node.getLeftOperand(), MethodInvocation.class);
+        final MethodInvocation rightSize = as(node.getRightOperand(), MethodInvocation.class);
+        if (isConcurrentQueueSize(leftSize) && isZero(node.getRightOperand())
+                && (EQUALS.equals(operator) || NOT_EQUALS.equals(operator) || GREATER.equals(operator))) {
+            return leftSize;
+        } else if (isConcurrentQueueSize(rightSize) && isZero(node.getLeftOperand())
+                && (EQUALS.equals(operator) || NOT_EQUALS.equals(operator) || LESS.equals(operator))) {
+            return rightSize;
+        }
+        return null;
+    }
+
+    private boolean isConcurrentQueueSize(MethodInvocation mi) {
+        return isMethod(mi, "java.util.Collection", "size")
+                && mi.getExpression() != null
+                && isConcurrentLinkedQueue(mi.getExpression().resolveTypeBinding());
+    }
+
+    private boolean isConcurrentLinkedQueue(ITypeBinding typeBinding) {
+        return instanceOf(typeBinding, "java.util.concurrent.ConcurrentLinkedQueue")
+                || instanceOf(typeBinding, "java.util.concurrent.ConcurrentLinkedDeque");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(MethodInvocation node) {
+        if (isConcurrentQueueSize(node)) {
+            report(node, node.getExpression().resolveTypeBinding().getErasure().getName()
+                    + ".size() traverses all the elements, which is O(n)."
+                    + " Consider keeping track of the size separately.");
+        } else if (isMethod(node, "java.util.List", "remove", "int")
+                && isZero(arguments(node).get(0))
+                && isInLoop(node)
+                && isArrayList(node.getExpression())) {
+            report(node, "ArrayList.remove(0) is called in a loop and shifts all the remaining elements,"
+                    + " which is O(n^2). Consider using an ArrayDeque.");
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns whether the provided expression is an <code>ArrayList</code>,
+     * which is not already replaced with an <code>ArrayDeque</code>.
+     */
+    private boolean isArrayList(Expression expr) {
+        if (expr instanceof SimpleName) {
+            final IBinding binding = ((SimpleName) expr).resolveBinding();
+            final ASTNode declaration = ((CompilationUnit) expr.getRoot()).findDeclaringNode(binding);
+            if (declaration instanceof VariableDeclarationFragment) {
+                final VariableDeclarationFragment fragment = (VariableDeclarationFragment) declaration;
+                if (isArrayListCreation(as(fragment.getInitializer(), ClassInstanceCreation.class))) {
+                    return getQueueCalls(fragment) == null;
+                }
+            }
+        }
+        return expr != null && instanceOf(expr.resolveTypeBinding(), "java.util.ArrayList");
+    }
+
+    private void report(ASTNode node, String message) {
+        final String location = getSourceLocation(node);
+        if (reportedLocations.add(location)) {
+            logInfo(location + ": " + message);
+        }
+    }
+}
@@ -28,11 +28,10 @@ package org.autorefactor.refactoring.rules;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.autorefactor.refactoring.ASTHelper;
 import org.autorefactor.refactoring.SourceLocation;
 import org.autorefactor.util.NotImplementedException;
 import org.autorefactor.util.Pair;
@@ -43,8 +42,10 @@ import org.eclipse.jdt.core.dom.BlockComment;
 import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.Comment;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
 import org.eclipse.jdt.core.dom.Javadoc;
 import org.eclipse.jdt.core.dom.LineComment;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
 import org.eclipse.jdt.core.dom.SimpleName;
@@ -371,34 +372,20 @@ public class CommentsRefactoring extends AbstractRefactoringRule {
     }
 
     private ASTNode getPreviousSibling(ASTNode node) {
-        boolean isPrevious = true;
-        if (node != null && node.getParent() instanceof TypeDeclaration) {
-            final TypeDeclaration typeDecl = (TypeDeclaration) node.getParent();
-
-            final TreeMap<Integer, ASTNode> nodes = new TreeMap<Integer, ASTNode>();
-            addAll(nodes, typeDecl.getFields());
-            addAll(nodes, typeDecl.getMethods());
-            addAll(nodes, typeDecl.getTypes());
-
-            Entry<Integer, ASTNode> entry;
-            if (isPrevious) {
-                entry = nodes.floorEntry(node.getStartPosition() - 1);
-            } else {
-                entry = nodes.ceilingEntry(node.getStartPosition() + 1);
-            }
-            if (entry != null) {
-                return entry.getValue();
+        if (node instanceof BodyDeclaration && node.getParent() instanceof TypeDeclaration) {
+            BodyDeclaration sibling = ASTHelper.getPreviousSibling((BodyDeclaration) node);
+            // only fields, methods and member types can own the comment
+            while (sibling != null
+                    && !(sibling instanceof FieldDeclaration)
+                    && !(sibling instanceof MethodDeclaration)
+                    && !(sibling instanceof TypeDeclaration)) {
+                sibling = ASTHelper.getPreviousSibling(sibling);
             }
+            return sibling;
         }
         return null;
     }
 
-    private <T extends ASTNode> void addAll(TreeMap<Integer, ASTNode> nodeMap, T[] nodes) {
-        for (T node : nodes) {
-            nodeMap.put(node.getStartPosition(), node);
-        }
-    }
-
     private boolean betterCommentExist(Comment comment, ASTNode nodeWhereToAddJavadoc) {
         if (hasJavadoc(nodeWhereToAddJavadoc)) {
             return true;
@@ -31,6 +31,7 @@ import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.ASTHelper;
+import org.autorefactor.refactoring.TimeBudget;
 import org.autorefactor.util.IllegalStateException;
 import org.autorefactor.util.NotImplementedException;
 import org.eclipse.jdt.core.dom.ASTMatcher;
@@ -255,6 +256,7 @@ public class CommonCodeInIfElseStatementRefactoring extends AbstractRefactoringR
      *         false otherwise
      */
     private boolean collectAllCases(List<List<Statement>> allCases, IfStatement node) {
+        TimeBudget.checkpoint();
         final List<Statement> thenStmts = asList(node.getThenStatement());
         final List<Statement> elseStmts = asList(node.getElseStatement());
         if (thenStmts.isEmpty() || elseStmts.isEmpty()) {
@@ -0,0 +1,154 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.List;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Replaces the hash and tree based maps and sets keyed by enum constants
+ * with {@link java.util.EnumMap} and {@link java.util.EnumSet},
+ * which are backed by arrays and bit vectors indexed by the enum constants ordinals.
+ * <p>
+ * Only the instances assigned to a variable declared with an interface type are replaced,
+ * so the code using them is left unchanged.
+ * Maps and sets with a defined iteration order other than the enum constants declaration order
+ * are not replaced: the linked ones, and the tree based ones using a custom comparator.
+ * <p>
+ * Note: unlike {@link java.util.HashMap} and {@link java.util.HashSet},
+ * {@link java.util.EnumMap} and {@link java.util.EnumSet} do not accept null keys.
+ */
+public class EnumCollectionsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "HashMap", "HashSet", "TreeMap", "TreeSet" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        if (node.getAnonymousClassDeclaration() != null
+                || !(node.getType() instanceof ParameterizedType)) {
+            return VISIT_SUBTREE;
+        }
+        final ITypeBinding typeBinding = node.resolveTypeBinding();
+        final ITypeBinding destinationType = getDestinationType(node);
+        if (typeBinding == null || destinationType == null) {
+            return VISIT_SUBTREE;
+        }
+        final ITypeBinding[] typeArgs = typeBinding.getTypeArguments();
+        if (typeArgs.length == 0 || !typeArgs[0].isEnum()) {
+            return VISIT_SUBTREE;
+        }
+
+        if (hasType(destinationType, "java.util.Map")
+                && (hasType(typeBinding, "java.util.HashMap") && hasNoArgsOrCapacityArg(node)
+                    || hasType(typeBinding, "java.util.TreeMap") && arguments(node).isEmpty())) {
+            return replaceWithEnumMap(node, typeArgs[0]);
+        } else if (hasType(destinationType, "java.util.Set", "java.util.Collection", "java.lang.Iterable")
+                && (hasType(typeBinding, "java.util.HashSet") && hasNoArgsOrCapacityArg(node)
+                    || hasType(typeBinding, "java.util.TreeSet") && arguments(node).isEmpty())) {
+            return replaceWithEnumSet(node, typeArgs[0]);
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the declared type of the variable the provided class instance creation is assigned to,
+     * or null if it is not directly assigned to a variable.
+     */
+    private ITypeBinding getDestinationType(ClassInstanceCreation node) {
+        if (node.getLocationInParent() == VariableDeclarationFragment.INITIALIZER_PROPERTY) {
+            final IVariableBinding varBinding = ((VariableDeclarationFragment) node.getParent()).resolveBinding();
+            return varBinding != null ? varBinding.getType() : null;
+        } else if (node.getLocationInParent() == Assignment.RIGHT_HAND_SIDE_PROPERTY) {
+            final Assignment as = (Assignment) node.getParent();
+            if (Assignment.Operator.ASSIGN.equals(as.getOperator())) {
+                return as.getLeftHandSide().resolveTypeBinding();
+            }
+        }
+        return null;
+    }
+
+    private boolean hasNoArgsOrCapacityArg(ClassInstanceCreation node) {
+        final List<Expression> args = arguments(node);
+        return args.isEmpty()
+                || (args.size() == 1 && isPrimitive(args.get(0), "int") && isPassive(args.get(0)));
+    }
+
+    private boolean replaceWithEnumMap(ClassInstanceCreation node, ITypeBinding keyType) {
+        final Expression keyClass = newKeyClass(node, keyType);
+        if (keyClass == null) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String enumMapName = this.ctx.getImportsRewriter().addImport(node, "java.util.EnumMap");
+        final ParameterizedType enumMapType = b.getAST().newParameterizedType(b.type(enumMapName));
+        for (Type typeArg : typeArguments((ParameterizedType) node.getType())) {
+            typeArguments(enumMapType).add(b.copy(typeArg));
+        }
+        this.ctx.getRefactorings().replace(node, b.new0(enumMapType, keyClass));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private boolean replaceWithEnumSet(ClassInstanceCreation node, ITypeBinding elementType) {
+        final Expression elementClass = newKeyClass(node, elementType);
+        if (elementClass == null) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String enumSetName = this.ctx.getImportsRewriter().addImport(node, "java.util.EnumSet");
+        this.ctx.getRefactorings().replace(node, b.invoke(b.name(enumSetName.split("\\.")), "noneOf", elementClass));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the class literal of the enum keys, reusing the first type argument when it is explicit.
+     */
+    private Expression newKeyClass(ClassInstanceCreation node, ITypeBinding keyType) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final List<Type> typeArgs = typeArguments((ParameterizedType) node.getType());
+        if (!typeArgs.isEmpty()) {
+            return b.typeLiteral(b.copy(typeArgs.get(0)));
+        }
+        final Type type = this.ctx.getImportsRewriter().newType(node, keyType.getErasure());
+        return type != null ? b.typeLiteral(type) : null;
+    }
+}
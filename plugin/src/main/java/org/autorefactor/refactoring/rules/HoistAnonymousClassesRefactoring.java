@@ -0,0 +1,280 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.StaticMembersRewriter;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SuperFieldAccess;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.ThisExpression;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Hoists the instances of anonymous classes which do not capture any state into
+ * <code>private static final</code> fields, so they are not created again on every call.
+ * For example <code>Collections.sort(list, new Comparator&lt;Foo&gt;() { ... })</code>
+ * becomes <code>Collections.sort(list, FOO_COMPARATOR)</code>.
+ * <p>
+ * Bindings are used to check that the anonymous class does not reference
+ * local variables, type variables, local classes, instance members or inner classes of its enclosing types.
+ * Only anonymous classes implementing an interface and without instance fields or initializers are hoisted,
+ * because the state of other anonymous classes would then be shared by all the callers.
+ */
+public class HoistAnonymousClassesRefactoring extends AbstractRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        final AnonymousClassDeclaration anonymousClass = node.getAnonymousClassDeclaration();
+        if (anonymousClass == null
+                || node.getExpression() != null
+                || node.getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY
+                || !arguments(node).isEmpty()
+                || !isInterface(node.getType().resolveBinding())
+                || isInFieldInitializer(node)
+                || hasInstanceState(anonymousClass)
+                || isCapturing(node.getType(), anonymousClass)
+                || isCapturing(anonymousClass, anonymousClass)) {
+            return VISIT_SUBTREE;
+        }
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final TypeDeclaration typeDecl = smr.getEnclosingStaticMembersHolder(node);
+        if (typeDecl == null) {
+            return VISIT_SUBTREE;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String constantName = smr.addConstant(typeDecl, "new " + node.getType() + "@" + node.getStartPosition(),
+                getBaseName(node), b.copySubtree(node.getType()), b.copy(node));
+        this.ctx.getRefactorings().replace(node, b.simpleName(constantName));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private boolean isInterface(ITypeBinding typeBinding) {
+        return typeBinding != null && typeBinding.isInterface();
+    }
+
+    /**
+     * Returns whether the provided node is evaluated once per class or per instance instead of once per call.
+     */
+    private boolean isInFieldInitializer(ASTNode node) {
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            if (n instanceof BodyDeclaration) {
+                return n instanceof FieldDeclaration
+                        || (n instanceof Initializer && Modifier.isStatic(((BodyDeclaration) n).getModifiers()));
+            }
+        }
+        return false;
+    }
+
+    private boolean hasInstanceState(AnonymousClassDeclaration anonymousClass) {
+        for (BodyDeclaration member : bodyDeclarations(anonymousClass)) {
+            if ((member instanceof FieldDeclaration || member instanceof Initializer)
+                    && !Modifier.isStatic(member.getModifiers())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided node references a local variable, a type variable, a local class,
+     * an instance member or an inner class, declared outside of the provided anonymous class.
+     */
+    private boolean isCapturing(ASTNode node, final AnonymousClassDeclaration anonymousClass) {
+        final boolean[] result = { false };
+        node.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(ThisExpression node) {
+                // unqualified "this" references the anonymous class or one of its local classes
+                return capturesIf(node.getQualifier() != null);
+            }
+
+            @Override
+            public boolean visit(SuperFieldAccess node) {
+                return capturesIf(node.getQualifier() != null);
+            }
+
+            @Override
+            public boolean visit(SuperMethodInvocation node) {
+                return capturesIf(node.getQualifier() != null);
+            }
+
+            @Override
+            public boolean visit(MethodInvocation node) {
+                if (node.getExpression() != null) {
+                    return VISIT_SUBTREE;
+                }
+                final IMethodBinding methodBinding = node.resolveMethodBinding();
+                return capturesIf(methodBinding == null
+                        || (!Modifier.isStatic(methodBinding.getModifiers())
+                                && !isInherited(node, methodBinding.getDeclaringClass(), anonymousClass)));
+            }
+
+            @Override
+            public boolean visit(ClassInstanceCreation node) {
+                if (node.getExpression() != null) {
+                    return VISIT_SUBTREE;
+                }
+                final ITypeBinding typeBinding = node.getType().resolveBinding();
+                return capturesIf(typeBinding == null
+                        || (needsEnclosingInstance(typeBinding)
+                                && isDeclaredOutside(typeBinding, anonymousClass)));
+            }
+
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (binding instanceof IVariableBinding && isSimpleNameReference(node)) {
+                    final IVariableBinding varBinding = (IVariableBinding) binding;
+                    if (varBinding.isField()) {
+                        return capturesIf(!Modifier.isStatic(varBinding.getModifiers())
+                                && !isInherited(node, varBinding.getDeclaringClass(), anonymousClass));
+                    }
+                    return capturesIf(isDeclaredOutside(varBinding, anonymousClass));
+                } else if (binding instanceof ITypeBinding) {
+                    final ITypeBinding localType = getLocalType((ITypeBinding) binding);
+                    return capturesIf(localType != null && isDeclaredOutside(localType, anonymousClass));
+                }
+                return VISIT_SUBTREE;
+            }
+
+            private boolean capturesIf(boolean capturing) {
+                if (capturing) {
+                    result[0] = true;
+                }
+                return !result[0];
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Returns the provided type when it is a type variable, otherwise the local or anonymous class
+     * declaring it or declaring one of its enclosing types, which can only be referenced from its method,
+     * or null if there is none.
+     */
+    private ITypeBinding getLocalType(ITypeBinding typeBinding) {
+        if (typeBinding.isTypeVariable()) {
+            return typeBinding;
+        }
+        for (ITypeBinding t = typeBinding.getErasure(); t != null; t = t.getDeclaringClass()) {
+            if (t.isLocal() || t.isAnonymous()) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSimpleNameReference(SimpleName node) {
+        return node.getLocationInParent() != QualifiedName.NAME_PROPERTY
+                && node.getLocationInParent() != FieldAccess.NAME_PROPERTY
+                && node.getLocationInParent() != SuperFieldAccess.NAME_PROPERTY;
+    }
+
+    private boolean needsEnclosingInstance(ITypeBinding typeBinding) {
+        final ITypeBinding erasure = typeBinding.getErasure();
+        return (erasure.isMember() || erasure.isLocal())
+                && erasure.isClass()
+                && !Modifier.isStatic(erasure.getModifiers());
+    }
+
+    /**
+     * Returns whether the member declared in the provided class is inherited
+     * by the anonymous class or by one of the types it declares, from the provided node.
+     * Otherwise it is a member of an enclosing type.
+     */
+    private boolean isInherited(ASTNode node, ITypeBinding declaringClass, AnonymousClassDeclaration anonymousClass) {
+        if (declaringClass == null) {
+            return false;
+        }
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            ITypeBinding typeBinding = null;
+            if (n instanceof AnonymousClassDeclaration) {
+                typeBinding = ((AnonymousClassDeclaration) n).resolveBinding();
+            } else if (n instanceof AbstractTypeDeclaration) {
+                typeBinding = ((AbstractTypeDeclaration) n).resolveBinding();
+            }
+            if (typeBinding != null
+                    && typeBinding.getErasure().isSubTypeCompatible(declaringClass.getErasure())) {
+                return true;
+            }
+            if (n == anonymousClass) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDeclaredOutside(IBinding binding, AnonymousClassDeclaration anonymousClass) {
+        final ASTNode declaration = ((CompilationUnit) anonymousClass.getRoot()).findDeclaringNode(binding);
+        for (ASTNode n = declaration; n != null; n = n.getParent()) {
+            if (n == anonymousClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getBaseName(ClassInstanceCreation node) {
+        final Type type = node.getType();
+        final String typeName = type.resolveBinding().getErasure().getName();
+        if (node.getParent() instanceof VariableDeclarationFragment) {
+            return StaticMembersRewriter.toConstantName(
+                    ((VariableDeclarationFragment) node.getParent()).getName().getIdentifier());
+        }
+        final BodyDeclaration member = getAncestor(node, BodyDeclaration.class);
+        if (member instanceof MethodDeclaration && !((MethodDeclaration) member).isConstructor()) {
+            return StaticMembersRewriter.toConstantName(
+                    ((MethodDeclaration) member).getName().getIdentifier() + " " + typeName);
+        }
+        return StaticMembersRewriter.toConstantName(typeName);
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.preferences.Preferences;
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.StaticMembersRewriter;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTMatcher;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Hoists the immutable and thread-safe objects created from constant arguments
+ * into <code>private static final</code> fields, instead of creating them on every call:
+ * <ul>
+ * <li>calls to the factory methods and constructors of a catalog of immutable types,
+ * like <code>new BigDecimal("1.5")</code> or <code>DateTimeFormatter.ofPattern("yyyy-MM-dd")</code>,
+ * which can be extended with {@link Preferences#hoistedFactoryMethods()},</li>
+ * <li>calls to {@link Arrays#asList(Object...)} whose result is only read, like
+ * <code>Arrays.asList("a", "b").contains(s)</code>,</li>
+ * <li>charsets looked up by name: from Java 7, {@link String#getBytes(String)},
+ * <code>new String(byte[], String)</code> and <code>Charset.forName(String)</code>
+ * use the <code>StandardCharsets</code> constants, and with Java 6 they use a hoisted charset.</li>
+ * </ul>
+ * Only the charsets every Java platform must support are replaced,
+ * and only when no catch clause could be left without its checked exception.
+ * The arguments of the factory methods and constructors must be compile-time constants.
+ * For the catalog of immutable types, calls with arguments which cannot be checked or would be invalid
+ * are left alone, so an exception can never be moved from a method call to the class initialization.
+ */
+public class HoistConstantsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** Factory methods and constructors returning immutable and thread-safe objects. */
+    private static final List<String> FACTORY_METHODS = Arrays.asList(
+            "java.math.BigDecimal#new",
+            "java.math.BigDecimal#valueOf",
+            "java.math.BigInteger#new",
+            "java.math.BigInteger#valueOf",
+            "java.time.format.DateTimeFormatter#ofPattern",
+            "java.util.regex.Pattern#compile");
+    /** Methods which do not modify the list returned by {@link Arrays#asList(Object...)}. */
+    private static final List<String> READ_ONLY_LIST_METHODS = Arrays.asList(
+            "contains", "containsAll", "get", "indexOf", "isEmpty", "lastIndexOf", "size");
+    /** Charsets supported by every Java platform, mapped to their <code>StandardCharsets</code> constant. */
+    private static final Map<String, String> STANDARD_CHARSETS = new HashMap<String, String>();
+    private static final String CHARSET_CLASS_NAME = "java.nio.charset.Charset";
+    private static final int MAX_VALUE_LENGTH_IN_NAME = 20;
+
+    static {
+        STANDARD_CHARSETS.put("US-ASCII", "US_ASCII");
+        STANDARD_CHARSETS.put("ISO-8859-1", "ISO_8859_1");
+        STANDARD_CHARSETS.put("UTF-8", "UTF_8");
+        STANDARD_CHARSETS.put("UTF-16BE", "UTF_16BE");
+        STANDARD_CHARSETS.put("UTF-16LE", "UTF_16LE");
+        STANDARD_CHARSETS.put("UTF-16", "UTF_16");
+    }
+
+    private final ASTMatcher matcher = new ASTMatcher();
+    private Set<String> factoryMethods;
+
+    private Set<String> getFactoryMethods() {
+        if (factoryMethods == null) {
+            final Set<String> results = new LinkedHashSet<String>(FACTORY_METHODS);
+            final Preferences prefs = AutoRefactorPlugin.getPreferenceHelper();
+            final String configured = prefs != null ? prefs.hoistedFactoryMethods() : null;
+            if (configured != null) {
+                for (String factoryMethod : configured.split(",")) {
+                    if (factoryMethod.trim().indexOf('#') > 0) {
+                        results.add(factoryMethod.trim());
+                    }
+                }
+            }
+            factoryMethods = results;
+        }
+        return factoryMethods;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        final Set<String> results = new LinkedHashSet<String>(
+                Arrays.asList("asList", "getBytes", "new String", "Charset"));
+        for (String factoryMethod : getFactoryMethods()) {
+            final String typeName = factoryMethod.substring(0, factoryMethod.indexOf('#'));
+            results.add(typeName.substring(typeName.lastIndexOf('.') + 1));
+        }
+        return results.toArray(new String[results.size()]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        if (node.getAnonymousClassDeclaration() != null) {
+            return VISIT_SUBTREE;
+        }
+        final ITypeBinding typeBinding = node.resolveTypeBinding();
+        if (isStringFromBytes(node)) {
+            final List<Expression> args = arguments(node);
+            return replaceCharsetName(node, args.get(args.size() - 1));
+        } else if (typeBinding != null
+                && getFactoryMethods().contains(typeBinding.getErasure().getQualifiedName() + "#new")) {
+            return hoist(node, arguments(node));
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(MethodInvocation node) {
+        if (isMethod(node, "java.lang.String", "getBytes", "java.lang.String")) {
+            return replaceCharsetName(node, arguments(node).get(0));
+        } else if (isMethod(node, CHARSET_CLASS_NAME, "forName", "java.lang.String")) {
+            return replaceCharsetForName(node);
+        }
+        final IMethodBinding methodBinding = node.resolveMethodBinding();
+        if (methodBinding == null || !Modifier.isStatic(methodBinding.getModifiers())) {
+            return VISIT_SUBTREE;
+        }
+        final String declaringClass = methodBinding.getDeclaringClass().getErasure().getQualifiedName();
+        if (isArraysAsList(methodBinding)) {
+            if (isOnlyRead(node)) {
+                return hoist(node, arguments(node));
+            }
+        } else if (getFactoryMethods().contains(declaringClass + "#" + methodBinding.getName())) {
+            return hoist(node, arguments(node));
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private boolean isStringFromBytes(ClassInstanceCreation node) {
+        final List<Expression> args = arguments(node);
+        return hasType(node, "java.lang.String")
+                && (args.size() == 2 || args.size() == 4)
+                && hasType(args.get(0).resolveTypeBinding(), "byte[]")
+                && hasType(args.get(args.size() - 1), "java.lang.String");
+    }
+
+    private boolean isOnlyRead(MethodInvocation node) {
+        if (node.getLocationInParent() == MethodInvocation.EXPRESSION_PROPERTY) {
+            final MethodInvocation parent = (MethodInvocation) node.getParent();
+            return READ_ONLY_LIST_METHODS.contains(parent.getName().getIdentifier());
+        }
+        return false;
+    }
+
+    private boolean replaceCharsetForName(MethodInvocation node) {
+        final String charsetConstant = getStandardCharset(arguments(node).get(0));
+        if (charsetConstant == null || isStatement(node)) {
+            // unsupported charsets would fail during the class initialization
+            return VISIT_SUBTREE;
+        }
+        if (getRelease().isCompatibleWith(Release.javaSE("1.7.0"))) {
+            this.ctx.getRefactorings().replace(node, newStandardCharset(node, charsetConstant));
+            return DO_NOT_VISIT_SUBTREE;
+        }
+        return hoist(node, arguments(node));
+    }
+
+    /**
+     * Replaces the charset name passed to the provided node with a charset,
+     * which removes the charset lookup and the checked {@link java.io.UnsupportedEncodingException}.
+     */
+    private boolean replaceCharsetName(Expression node, Expression charsetName) {
+        final String charsetConstant = getStandardCharset(charsetName);
+        if (charsetConstant == null || !getRelease().isCompatibleWith(Release.javaSE("1.6.0"))
+                || isInTryCatchingCheckedException(node)) {
+            return VISIT_SUBTREE;
+        }
+        if (getRelease().isCompatibleWith(Release.javaSE("1.7.0"))) {
+            this.ctx.getRefactorings().replace(charsetName, newStandardCharset(node, charsetConstant));
+            return DO_NOT_VISIT_SUBTREE;
+        }
+
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final TypeDeclaration typeDecl = smr.getEnclosingStaticMembersHolder(node);
+        if (typeDecl == null || isConstantInitializer(node)) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String charsetClassName = this.ctx.getImportsRewriter().addImport(node, CHARSET_CLASS_NAME);
+        final MethodInvocation forName = b.invoke(b.name(charsetClassName.split("\\.")), "forName",
+                b.string(charsetConstant.replace('_', '-')));
+        final String constantName = getConstant(typeDecl, forName, b.type(charsetClassName), charsetConstant);
+        this.ctx.getRefactorings().replace(charsetName, b.simpleName(constantName));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private String getStandardCharset(Expression charsetName) {
+        final Object value = charsetName.resolveConstantExpressionValue();
+        if (value instanceof String) {
+            return STANDARD_CHARSETS.get(((String) value).toUpperCase(Locale.ENGLISH));
+        }
+        return null;
+    }
+
+    private Name newStandardCharset(ASTNode node, String charsetConstant) {
+        final String standardCharsetsName =
+                this.ctx.getImportsRewriter().addImport(node, "java.nio.charset.StandardCharsets");
+        final List<String> names = new ArrayList<String>(Arrays.asList(standardCharsetsName.split("\\.")));
+        names.add(charsetConstant);
+        return this.ctx.getASTBuilder().name(names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * Returns whether the provided node is in the body of a try statement catching a checked exception,
+     * which may not be thrown anymore once the provided node is refactored.
+     */
+    private boolean isInTryCatchingCheckedException(ASTNode node) {
+        for (ASTNode child = node, parent = node.getParent();
+                parent != null && !(parent instanceof BodyDeclaration);
+                child = parent, parent = parent.getParent()) {
+            if (child.getLocationInParent() == TryStatement.BODY_PROPERTY) {
+                for (CatchClause cc : catchClauses((TryStatement) parent)) {
+                    final ITypeBinding exceptionType = cc.getException().getType().resolveBinding();
+                    if (exceptionType == null
+                            || (!hasType(exceptionType, "java.lang.Exception", "java.lang.Throwable")
+                                    && !instanceOf(exceptionType, "java.lang.RuntimeException")
+                                    && !instanceOf(exceptionType, "java.lang.Error"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hoist(Expression node, List<Expression> args) {
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final TypeDeclaration typeDecl = smr.getEnclosingStaticMembersHolder(node);
+        if (typeDecl == null
+                || isStatement(node)
+                || isConstantInitializer(node)
+                || !areConstants(args, typeDecl)
+                || !isValid(node, args)) {
+            return VISIT_SUBTREE;
+        }
+        final Type fieldType = this.ctx.getImportsRewriter().newType(node, node.resolveTypeBinding());
+        if (fieldType == null) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String constantName = getConstant(typeDecl, node, fieldType, getBaseName(node, args));
+        this.ctx.getRefactorings().replace(node, b.simpleName(constantName));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns whether the provided node is used as a statement, where a field name would not compile.
+     */
+    private boolean isStatement(Expression node) {
+        return node.getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY;
+    }
+
+    /**
+     * Returns whether the provided node is only evaluated once, while initializing a class.
+     */
+    private boolean isConstantInitializer(ASTNode node) {
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            if (n instanceof BodyDeclaration) {
+                return (n instanceof FieldDeclaration || n instanceof Initializer)
+                        && Modifier.isStatic(((BodyDeclaration) n).getModifiers());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided arguments are constants
+     * which can be evaluated from the static initializer of the provided type.
+     */
+    private boolean areConstants(List<Expression> args, TypeDeclaration typeDecl) {
+        for (Expression arg : args) {
+            if (arg.resolveConstantExpressionValue() == null && !isStaticFinalField(arg)) {
+                return false;
+            }
+            if (!areAccessibleFrom(arg, typeDecl.resolveBinding())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStaticFinalField(Expression expr) {
+        final Name name = as(expr, Name.class);
+        if (name != null) {
+            final IBinding binding = name.resolveBinding();
+            if (binding instanceof IVariableBinding && ((IVariableBinding) binding).isField()) {
+                final int modifiers = binding.getModifiers();
+                return Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the fields referenced by their simple name in the provided expression
+     * are static and can still be referenced by their simple name from the provided type.
+     * <p>
+     * The new constants are declared before the fields of the provided type,
+     * so they can only reference the fields of its enclosing types without a forward reference.
+     */
+    private boolean areAccessibleFrom(Expression expr, final ITypeBinding typeBinding) {
+        final boolean[] result = { typeBinding != null };
+        expr.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (binding instanceof IVariableBinding && isSimpleNameReference(node)) {
+                    final IVariableBinding varBinding = (IVariableBinding) binding;
+                    if (!varBinding.isField()
+                            || !Modifier.isStatic(varBinding.getModifiers())
+                            || !isEnclosing(varBinding.getDeclaringClass(), typeBinding.getDeclaringClass())) {
+                        result[0] = false;
+                    }
+                }
+                return result[0];
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isSimpleNameReference(SimpleName node) {
+        return node.getLocationInParent() != QualifiedName.NAME_PROPERTY
+                && node.getLocationInParent() != FieldAccess.NAME_PROPERTY;
+    }
+
+    private boolean isEnclosing(ITypeBinding declaringClass, ITypeBinding typeBinding) {
+        for (ITypeBinding t = typeBinding; t != null; t = t.getDeclaringClass()) {
+            if (t.getErasure().isEqualTo(declaringClass.getErasure())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided node does not throw an exception.
+     * Calls to {@link Arrays#asList(Object...)} never throw. Other calls must have compile-time constant arguments,
+     * and the calls to the catalog of immutable types which cannot be checked from them are not valid.
+     */
+    private boolean isValid(Expression node, List<Expression> args) {
+        if (node instanceof MethodInvocation && isArraysAsList(((MethodInvocation) node).resolveMethodBinding())) {
+            return true;
+        }
+        for (Expression arg : args) {
+            if (arg.resolveConstantExpressionValue() == null) {
+                // static final fields may not be initialized with valid values
+                return false;
+            }
+        }
+        final Object value = !args.isEmpty() ? args.get(0).resolveConstantExpressionValue() : null;
+        final Object secondValue = args.size() > 1 ? args.get(1).resolveConstantExpressionValue() : null;
+        try {
+            if (hasType(node, "java.math.BigDecimal", "java.math.BigInteger")
+                    && node instanceof MethodInvocation) {
+                if (value instanceof Double || value instanceof Float) {
+                    // NaN and infinite values throw a NumberFormatException
+                    BigDecimal.valueOf(((Number) value).doubleValue());
+                }
+                // 0, 1 and 10 are left to BigDecimalRefactoring, which uses the existing constants
+                return !(value instanceof Number)
+                        || !Arrays.asList(0L, 1L, 10L).contains(((Number) value).longValue())
+                        || ((Number) value).doubleValue() != ((Number) value).longValue();
+            } else if (hasType(node, "java.math.BigDecimal")) {
+                if (args.size() != 1) {
+                    // the math context or scale arguments cannot be checked
+                    return false;
+                } else if (value instanceof String) {
+                    new BigDecimal((String) value);
+                } else if (value instanceof Double || value instanceof Float) {
+                    new BigDecimal(((Number) value).doubleValue());
+                }
+            } else if (hasType(node, "java.math.BigInteger")) {
+                if (args.size() == 1 && value instanceof String) {
+                    new BigInteger((String) value);
+                } else if (args.size() == 2 && value instanceof String && secondValue instanceof Integer) {
+                    new BigInteger((String) value, (Integer) secondValue);
+                } else {
+                    return false;
+                }
+            } else if (hasType(node, "java.util.regex.Pattern")) {
+                if (args.size() == 1 && value instanceof String) {
+                    Pattern.compile((String) value);
+                } else if (args.size() == 2 && value instanceof String && secondValue instanceof Integer) {
+                    Pattern.compile((String) value, (Integer) secondValue);
+                } else {
+                    return false;
+                }
+            } else if (hasType(node, "java.time.format.DateTimeFormatter")) {
+                if (args.size() != 1 || !(value instanceof String)) {
+                    return false;
+                }
+                // java.time is not available on all the Java platforms running this plugin
+                Class.forName("java.time.format.DateTimeFormatter")
+                        .getMethod("ofPattern", String.class).invoke(null, value);
+            }
+            return true;
+        } catch (Exception e) {
+            // the exception would now be thrown while initializing the class,
+            // or the call cannot be checked
+            return false;
+        }
+    }
+
+    private boolean isArraysAsList(IMethodBinding methodBinding) {
+        return methodBinding != null
+                && "asList".equals(methodBinding.getName())
+                && hasType(methodBinding.getDeclaringClass(), "java.util.Arrays");
+    }
+
+    private String getConstant(TypeDeclaration typeDecl, Expression initializer, Type fieldType, String baseName) {
+        final String existingField = findConstantField(typeDecl, initializer);
+        if (existingField != null) {
+            return existingField;
+        }
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final String key = initializer.toString();
+        final String addedField = smr.getConstant(typeDecl, key);
+        if (addedField != null) {
+            return addedField;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Expression newInitializer = initializer.getParent() != null ? b.copySubtree(initializer) : initializer;
+        return smr.addConstant(typeDecl, key, baseName, fieldType, newInitializer);
+    }
+
+    private String findConstantField(TypeDeclaration typeDecl, Expression initializer) {
+        for (FieldDeclaration field : typeDecl.getFields()) {
+            final int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                for (VariableDeclarationFragment vdf : fragments(field)) {
+                    if (vdf.getInitializer() != null && match(matcher, vdf.getInitializer(), initializer)) {
+                        return vdf.getName().getIdentifier();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String getBaseName(Expression node, List<Expression> args) {
+        if (node instanceof MethodInvocation && "asList".equals(((MethodInvocation) node).getName().getIdentifier())) {
+            final BodyDeclaration member = getAncestor(node, BodyDeclaration.class);
+            if (member instanceof MethodDeclaration && !((MethodDeclaration) member).isConstructor()) {
+                return StaticMembersRewriter.toConstantName(((MethodDeclaration) member).getName().getIdentifier())
+                        + "_VALUES";
+            }
+            return "VALUES";
+        }
+        if (hasType(node, CHARSET_CLASS_NAME) && !args.isEmpty()) {
+            final String charsetConstant = getStandardCharset(args.get(0));
+            if (charsetConstant != null) {
+                return charsetConstant;
+            }
+        }
+        final String typeName = node.resolveTypeBinding().getErasure().getName();
+        final Object value = !args.isEmpty() ? args.get(0).resolveConstantExpressionValue() : null;
+        if ((value instanceof String || value instanceof Number)
+                && value.toString().length() <= MAX_VALUE_LENGTH_IN_NAME) {
+            final String name = StaticMembersRewriter.toConstantName(typeName + " " + value);
+            if (name.length() > StaticMembersRewriter.toConstantName(typeName).length()) {
+                return name;
+            }
+        }
+        return StaticMembersRewriter.toConstantName(typeName);
+    }
+
+    private Release getRelease() {
+        return this.ctx.getJavaProjectOptions().getJavaSERelease();
+    }
+}
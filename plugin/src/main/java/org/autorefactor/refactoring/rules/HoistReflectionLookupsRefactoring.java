@@ -0,0 +1,450 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.autorefactor.refactoring.StaticMembersRewriter;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.ArrayCreation;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeLiteral;
+import org.eclipse.jdt.core.dom.UnionType;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Hoists the reflective lookups made with constant arguments out of methods,
+ * so they are not done again on every call.
+ * For example <code>Foo.class.getMethod("bar", String.class)</code> becomes
+ * <code>BarMethodHolder.BAR_METHOD</code>, the field of a private static nested class
+ * which is only initialized the first time the lookup is needed.
+ * Each lookup gets its own holder class, so a failing lookup does not break the other ones.
+ * <p>
+ * Calls to {@link Class#forName(String)}, {@link Class#getMethod(String, Class...)},
+ * {@link Class#getDeclaredMethod(String, Class...)}, {@link Class#getField(String)},
+ * {@link Class#getDeclaredField(String)}, {@link Class#getConstructor(Class...)}
+ * and {@link Class#getDeclaredConstructor(Class...)} are hoisted
+ * when the looked up class is a class literal or a static field,
+ * the member name is a string literal or a constant field, and the parameter types are class literals.
+ * <p>
+ * Bindings are used to check that the looked up class or member exists,
+ * so the checked exceptions of the lookups, wrapped in an {@link ExceptionInInitializerError} by the holder,
+ * can never be thrown.
+ * Lookups in the body of a try statement catching these exceptions are left alone,
+ * because the catch clause could be left without any exception to catch.
+ * Lookups in methods declaring these exceptions are left alone too,
+ * because their callers may handle them, which they could not do with an error.
+ * Like for catch clauses, declaring {@link Exception} or {@link Throwable} does not prevent hoisting.
+ */
+public class HoistReflectionLookupsRefactoring extends AbstractRefactoringRule
+        implements TriggerTokensRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "forName", "getMethod", "getDeclaredMethod", "getField", "getDeclaredField",
+            "getConstructor", "getDeclaredConstructor" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(MethodInvocation node) {
+        final List<Expression> args = arguments(node);
+        if (isMethod(node, "java.lang.Class", "forName", "java.lang.String")) {
+            final Object className = args.get(0).resolveConstantExpressionValue();
+            if (className instanceof String && isKnownClass(node, (String) className)) {
+                final String simpleName = ((String) className).substring(
+                        Math.max(((String) className).lastIndexOf('.'), ((String) className).lastIndexOf('$')) + 1);
+                return hoist(node, simpleName + " class", className.toString());
+            }
+        } else if (isMethod(node, "java.lang.Class", "getMethod", "java.lang.String", "java.lang.Class[]")
+                || isMethod(node, "java.lang.Class", "getDeclaredMethod", "java.lang.String", "java.lang.Class[]")) {
+            final ITypeBinding reflectedType = getReflectedType(node.getExpression());
+            final Object methodName = args.get(0).resolveConstantExpressionValue();
+            final List<ITypeBinding> paramTypes = getParameterTypes(args.subList(1, args.size()));
+            final boolean isPublic = "getMethod".equals(node.getName().getIdentifier());
+            if (reflectedType != null
+                    && methodName instanceof String
+                    && isStaticValue(args.get(0))
+                    && paramTypes != null
+                    && hasMethod(reflectedType, (String) methodName, paramTypes, isPublic, isPublic)) {
+                return hoist(node, getQualifier(node, reflectedType) + methodName + " method",
+                        reflectedType.getBinaryName() + "#" + methodName + paramTypes);
+            }
+        } else if (isMethod(node, "java.lang.Class", "getField", "java.lang.String")
+                || isMethod(node, "java.lang.Class", "getDeclaredField", "java.lang.String")) {
+            final ITypeBinding reflectedType = getReflectedType(node.getExpression());
+            final Object fieldName = args.get(0).resolveConstantExpressionValue();
+            final boolean isPublic = "getField".equals(node.getName().getIdentifier());
+            if (reflectedType != null
+                    && fieldName instanceof String
+                    && isStaticValue(args.get(0))
+                    && hasField(reflectedType, (String) fieldName, isPublic, isPublic)) {
+                return hoist(node, getQualifier(node, reflectedType) + fieldName + " field",
+                        reflectedType.getBinaryName() + "#" + fieldName);
+            }
+        } else if (isMethod(node, "java.lang.Class", "getConstructor", "java.lang.Class[]")
+                || isMethod(node, "java.lang.Class", "getDeclaredConstructor", "java.lang.Class[]")) {
+            final ITypeBinding reflectedType = getReflectedType(node.getExpression());
+            final List<ITypeBinding> paramTypes = getParameterTypes(args);
+            final boolean isPublic = "getConstructor".equals(node.getName().getIdentifier());
+            if (reflectedType != null
+                    && paramTypes != null
+                    && hasConstructor(reflectedType, paramTypes, isPublic)) {
+                return hoist(node, reflectedType.getName() + " constructor",
+                        reflectedType.getBinaryName() + "#<init>" + paramTypes);
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private boolean hoist(MethodInvocation node, String baseName, String lookupKey) {
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final TypeDeclaration typeDecl = smr.getEnclosingStaticMembersHolder(node);
+        final IMethodBinding methodBinding = node.resolveMethodBinding();
+        if (typeDecl == null
+                || node.getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY
+                || getEnclosingType(node) != typeDecl
+                || !(getAncestor(node, BodyDeclaration.class) instanceof MethodDeclaration)
+                || isInTryCatchingLookupException(node, methodBinding)
+                || isLookupExceptionDeclared((MethodDeclaration) getAncestor(node, BodyDeclaration.class),
+                        methodBinding)) {
+            return VISIT_SUBTREE;
+        }
+
+        final String key = node.getName().getIdentifier() + " " + lookupKey;
+        String constantName = smr.getConstant(typeDecl, key);
+        if (constantName == null) {
+            final Type fieldType = this.ctx.getImportsRewriter().newType(node, methodBinding.getReturnType());
+            if (fieldType == null) {
+                return VISIT_SUBTREE;
+            }
+            constantName = smr.addLazyConstant(typeDecl, key, StaticMembersRewriter.toConstantName(baseName),
+                    fieldType, this.ctx.getASTBuilder().copy(node), getCheckedExceptionNames(node, methodBinding));
+        }
+        this.ctx.getRefactorings().replace(node, this.ctx.getASTBuilder().name(constantName.split("\\.")));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the innermost class, enum or anonymous class declaring the provided node.
+     * The hoisted lookup can only reference the same names as the provided node when it is the holder type.
+     */
+    private ASTNode getEnclosingType(ASTNode node) {
+        for (ASTNode n = node.getParent(); n != null; n = n.getParent()) {
+            if (n instanceof AbstractTypeDeclaration || n instanceof AnonymousClassDeclaration) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the provided lookup is in the body of a try statement catching one of its checked exceptions,
+     * which would not be thrown anymore once the lookup is hoisted.
+     */
+    private boolean isInTryCatchingLookupException(ASTNode node, IMethodBinding methodBinding) {
+        for (ASTNode child = node, parent = node.getParent();
+                parent != null && !(parent instanceof BodyDeclaration);
+                child = parent, parent = parent.getParent()) {
+            if (child.getLocationInParent() == TryStatement.BODY_PROPERTY) {
+                for (CatchClause cc : catchClauses((TryStatement) parent)) {
+                    final Type caughtType = cc.getException().getType();
+                    if (caughtType instanceof UnionType) {
+                        for (Type alternative : types((UnionType) caughtType)) {
+                            if (isCaught(methodBinding, alternative.resolveBinding())) {
+                                return true;
+                            }
+                        }
+                    } else if (isCaught(methodBinding, caughtType.resolveBinding())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isCaught(IMethodBinding methodBinding, ITypeBinding caughtType) {
+        if (caughtType == null) {
+            return true;
+        } else if (hasType(caughtType, "java.lang.Exception", "java.lang.Throwable")) {
+            // catching these is always allowed
+            return false;
+        }
+        for (ITypeBinding exceptionType : methodBinding.getExceptionTypes()) {
+            if (instanceOf(exceptionType, caughtType.getErasure().getQualifiedName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided method declares that it throws one of the checked exceptions of the lookup,
+     * which its callers could be catching.
+     */
+    private boolean isLookupExceptionDeclared(MethodDeclaration md, IMethodBinding methodBinding) {
+        for (Name thrownException : thrownExceptions(md)) {
+            final IBinding thrownType = thrownException.resolveBinding();
+            if (!(thrownType instanceof ITypeBinding) || isCaught(methodBinding, (ITypeBinding) thrownType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String[] getCheckedExceptionNames(ASTNode node, IMethodBinding methodBinding) {
+        final List<String> results = new ArrayList<String>();
+        for (ITypeBinding exceptionType : methodBinding.getExceptionTypes()) {
+            if (!instanceOf(exceptionType, "java.lang.RuntimeException")
+                    && !instanceOf(exceptionType, "java.lang.Error")) {
+                results.add(this.ctx.getImportsRewriter().addImport(node, exceptionType.getQualifiedName()));
+            }
+        }
+        return results.toArray(new String[results.size()]);
+    }
+
+    private String getQualifier(ASTNode node, ITypeBinding reflectedType) {
+        final AbstractTypeDeclaration typeDecl = getAncestor(node, AbstractTypeDeclaration.class);
+        if (reflectedType.equals(typeDecl.resolveBinding().getErasure())) {
+            return "";
+        }
+        return reflectedType.getName() + " ";
+    }
+
+    /**
+     * Returns the class reflected by the provided expression if it is a class literal or a static field,
+     * null otherwise.
+     */
+    private ITypeBinding getReflectedType(Expression expr) {
+        if (expr instanceof TypeLiteral) {
+            final Type type = ((TypeLiteral) expr).getType();
+            if (type.isPrimitiveType() || type.isArrayType()) {
+                return null;
+            }
+        } else if (!isStaticField(expr)) {
+            return null;
+        }
+        final ITypeBinding classType = expr.resolveTypeBinding();
+        if (classType == null || classType.getTypeArguments().length != 1) {
+            return null;
+        }
+        final ITypeBinding reflectedType = classType.getTypeArguments()[0];
+        if (!isReferenceable(reflectedType) || reflectedType.isArray()) {
+            return null;
+        }
+        return reflectedType.getErasure();
+    }
+
+    /**
+     * Returns whether the provided expression can be moved to the holder type,
+     * i.e. it does not reference local constants.
+     */
+    private boolean isStaticValue(Expression expr) {
+        return expr instanceof StringLiteral || isStaticField(expr);
+    }
+
+    private boolean isStaticField(Expression expr) {
+        if (expr instanceof Name) {
+            final IBinding binding = ((Name) expr).resolveBinding();
+            if (binding instanceof IVariableBinding) {
+                final IVariableBinding varBinding = (IVariableBinding) binding;
+                return varBinding.isField()
+                        && Modifier.isStatic(varBinding.getModifiers())
+                        && Modifier.isFinal(varBinding.getModifiers());
+            }
+        }
+        return false;
+    }
+
+    private boolean isReferenceable(ITypeBinding typeBinding) {
+        final ITypeBinding type = typeBinding.isArray() ? typeBinding.getElementType() : typeBinding;
+        return !type.isWildcardType()
+                && !type.isCapture()
+                && !type.isTypeVariable()
+                && !type.isLocal()
+                && !type.isAnonymous();
+    }
+
+    /**
+     * Returns the erasures of the parameter types passed to a lookup,
+     * or null if they are not all class literals.
+     */
+    private List<ITypeBinding> getParameterTypes(List<Expression> args) {
+        final List<Expression> paramTypes;
+        if (args.size() == 1 && args.get(0) instanceof ArrayCreation) {
+            final ArrayCreation ac = (ArrayCreation) args.get(0);
+            if (ac.getInitializer() == null) {
+                return null;
+            }
+            paramTypes = expressions(ac.getInitializer());
+        } else {
+            paramTypes = args;
+        }
+        final List<ITypeBinding> results = new ArrayList<ITypeBinding>();
+        for (Expression paramType : paramTypes) {
+            if (!(paramType instanceof TypeLiteral)) {
+                return null;
+            }
+            final ITypeBinding typeBinding = ((TypeLiteral) paramType).getType().resolveBinding();
+            if (typeBinding == null || !isReferenceable(typeBinding)) {
+                return null;
+            }
+            results.add(typeBinding.getErasure());
+        }
+        return results;
+    }
+
+    private boolean hasMethod(ITypeBinding typeBinding, String methodName, List<ITypeBinding> paramTypes,
+            boolean publicOnly, boolean inherited) {
+        if (typeBinding == null) {
+            return false;
+        }
+        for (IMethodBinding method : typeBinding.getDeclaredMethods()) {
+            if (!method.isConstructor()
+                    && method.getName().equals(methodName)
+                    && (!publicOnly || isPublic(method, typeBinding))
+                    && hasParameterTypes(method, paramTypes)) {
+                return true;
+            }
+        }
+        if (inherited) {
+            if (hasMethod(typeBinding.getSuperclass(), methodName, paramTypes, publicOnly, inherited)) {
+                return true;
+            }
+            for (ITypeBinding itf : typeBinding.getInterfaces()) {
+                if (hasMethod(itf, methodName, paramTypes, publicOnly, inherited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasField(ITypeBinding typeBinding, String fieldName, boolean publicOnly, boolean inherited) {
+        if (typeBinding == null) {
+            return false;
+        }
+        for (IVariableBinding field : typeBinding.getDeclaredFields()) {
+            if (field.getName().equals(fieldName)
+                    && (!publicOnly || isPublic(field, typeBinding))) {
+                return true;
+            }
+        }
+        if (inherited) {
+            if (hasField(typeBinding.getSuperclass(), fieldName, publicOnly, inherited)) {
+                return true;
+            }
+            for (ITypeBinding itf : typeBinding.getInterfaces()) {
+                if (hasField(itf, fieldName, publicOnly, inherited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConstructor(ITypeBinding typeBinding, List<ITypeBinding> paramTypes, boolean publicOnly) {
+        if (!typeBinding.isClass()
+                // the constructors of inner classes have an additional parameter for the enclosing instance
+                || (typeBinding.isMember() && !Modifier.isStatic(typeBinding.getModifiers()))) {
+            return false;
+        }
+        for (IMethodBinding method : typeBinding.getDeclaredMethods()) {
+            if (method.isConstructor()
+                    && (!publicOnly || Modifier.isPublic(method.getModifiers()))
+                    && hasParameterTypes(method, paramTypes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isPublic(IBinding member, ITypeBinding declaringClass) {
+        // interface members are implicitly public
+        return Modifier.isPublic(member.getModifiers()) || declaringClass.isInterface();
+    }
+
+    private boolean hasParameterTypes(IMethodBinding method, List<ITypeBinding> paramTypes) {
+        final ITypeBinding[] actualParamTypes = method.getMethodDeclaration().getParameterTypes();
+        if (actualParamTypes.length != paramTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < actualParamTypes.length; i++) {
+            if (!actualParamTypes[i].getErasure().getQualifiedName().equals(paramTypes.get(i).getQualifiedName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the provided class name references a class known to the compiler,
+     * so {@link Class#forName(String)} cannot fail.
+     */
+    private boolean isKnownClass(ASTNode node, final String className) {
+        final ITypeBinding wellKnownType = this.ctx.getAST().resolveWellKnownType(className);
+        if (wellKnownType != null) {
+            return !wellKnownType.isPrimitive();
+        }
+        final boolean[] result = { false };
+        node.getRoot().accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (binding instanceof ITypeBinding
+                        && className.equals(((ITypeBinding) binding).getErasure().getBinaryName())) {
+                    result[0] = true;
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+}
@@ -26,6 +26,7 @@
 package org.autorefactor.refactoring.rules;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IBinding;
@@ -44,7 +45,13 @@ import static org.autorefactor.refactoring.ASTHelper.*;
  * expression nullness.
  * </p>
  */
-public class InvertEqualsRefactoring extends AbstractRefactoringRule {
+public class InvertEqualsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "equals" };
+    }
 
     /** {@inheritDoc} */
     @Override
@@ -0,0 +1,386 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Avoids building log messages which will not be logged:
+ * <ul>
+ * <li>SLF4J and Log4j 2 messages built with string concatenation are rewritten
+ * to use the parameterized form with <code>{}</code> placeholders,</li>
+ * <li>trace and debug calls on SLF4J and Log4j loggers, and fine, finer and finest calls
+ * on {@link java.util.logging.Logger}, are wrapped in the logger's level check
+ * when computing their arguments has a cost, for example when they call methods.</li>
+ * </ul>
+ * Only log calls used as statements of a block are guarded, and calls already guarded are left alone.
+ * Log calls whose arguments may have side effects are not guarded, since the guard would skip the side effects:
+ * the arguments can only call the JDK methods known to be free of side effects.
+ */
+public class LoggingRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    private static final List<String> PARAMETERIZED_LOGGERS =
+            Arrays.asList("org.slf4j.Logger", "org.apache.logging.log4j.Logger");
+    private static final List<String> LEVELS = Arrays.asList("trace", "debug", "info", "warn", "error");
+    private static final List<String> DISABLED_LEVELS = Arrays.asList("trace", "debug");
+    private static final List<String> JUL_DISABLED_LEVELS = Arrays.asList("finest", "finer", "fine");
+    private static final String PLACEHOLDER = "{}";
+    /** Types whose methods never have side effects. */
+    private static final List<String> SIDE_EFFECT_FREE_TYPES = Arrays.asList(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Character", "java.lang.Byte", "java.lang.Short",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.lang.Math");
+    /** Methods which do not have side effects whatever their declaring type, as long as they follow conventions. */
+    private static final List<String> SIDE_EFFECT_FREE_METHODS = Arrays.asList("toString", "hashCode");
+    /** Methods of {@link java.util.Arrays} which do not have side effects. */
+    private static final List<String> SIDE_EFFECT_FREE_ARRAYS_METHODS =
+            Arrays.asList("toString", "deepToString", "hashCode", "deepHashCode", "asList");
+    /** Methods of {@link java.util.Collection} and {@link java.util.Map} which do not have side effects. */
+    private static final List<String> SIDE_EFFECT_FREE_COLLECTION_METHODS =
+            Arrays.asList("size", "isEmpty", "contains", "containsKey", "containsValue");
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "trace", "debug", "info", "warn", "error", "fine" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(MethodInvocation node) {
+        if (!(node.getParent() instanceof ExpressionStatement)
+                || !isPassive(node.getExpression())) {
+            return VISIT_SUBTREE;
+        }
+        final String level = node.getName().getIdentifier();
+        if (LEVELS.contains(level)) {
+            for (String loggerType : PARAMETERIZED_LOGGERS) {
+                if (isMethod(node, loggerType, level, "java.lang.String")) {
+                    return refactorParameterizedLogger(node, level);
+                } else if (instanceOf(node.getExpression(), loggerType)) {
+                    if (DISABLED_LEVELS.contains(level) && needsGuard(arguments(node))) {
+                        return guard(node, getGuard(node, level));
+                    }
+                    return VISIT_SUBTREE;
+                }
+            }
+            if (DISABLED_LEVELS.contains(level)
+                    && isMethod(node, "org.apache.log4j.Category", level, "java.lang.Object")
+                    && needsGuard(arguments(node))) {
+                return guard(node, getGuard(node, level));
+            }
+        } else if (JUL_DISABLED_LEVELS.contains(level)
+                && isMethod(node, "java.util.logging.Logger", level, "java.lang.String")
+                && needsGuard(arguments(node))) {
+            final ASTBuilder b = this.ctx.getASTBuilder();
+            final String levelClass = this.ctx.getImportsRewriter().addImport(node, "java.util.logging.Level");
+            final List<String> levelConstant = new ArrayList<String>(Arrays.asList(levelClass.split("\\.")));
+            levelConstant.add(level.toUpperCase(Locale.ENGLISH));
+            final MethodInvocation isLoggable = b.invoke(b.copy(node.getExpression()), "isLoggable",
+                    b.name(levelConstant.toArray(new String[levelConstant.size()])));
+            return guard(node, isLoggable);
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private boolean refactorParameterizedLogger(MethodInvocation node, String level) {
+        final List<Expression> args = new ArrayList<Expression>();
+        final String format = toFormat(node, args);
+        final boolean needsGuard = DISABLED_LEVELS.contains(level);
+        if (format == null) {
+            if (needsGuard && needsGuard(arguments(node))) {
+                return guard(node, getGuard(node, level));
+            }
+            return VISIT_SUBTREE;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final MethodInvocation newLogCall = b.invoke(b.copy(node.getExpression()), level, b.string(format));
+        for (Expression arg : args) {
+            arguments(newLogCall).add(b.copy(arg));
+        }
+        if (needsGuard && needsGuard(args) && canGuard(node)) {
+            this.ctx.getRefactorings().replace(node.getParent(),
+                    b.if0(getGuard(node, level), b.block(b.toStmt(newLogCall))));
+        } else {
+            this.ctx.getRefactorings().replace(node, newLogCall);
+        }
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the format with placeholders equivalent to the string concatenation
+     * passed as the message of the provided log call, and adds the placeholders values to the provided list.
+     * Returns null when the message is not a string concatenation or cannot be safely converted.
+     */
+    private String toFormat(MethodInvocation node, List<Expression> args) {
+        final InfixExpression ie = as(arguments(node).get(0), InfixExpression.class);
+        if (!isFlattenable(ie)) {
+            return null;
+        }
+        final LinkedList<Expression> operands = new LinkedList<Expression>();
+        StringBuilderRefactoring.addAllSubExpressions(ie, operands, null);
+
+        final StringBuilder format = new StringBuilder();
+        for (Expression operand : operands) {
+            if (operand instanceof StringLiteral) {
+                format.append(((StringLiteral) operand).getLiteralValue());
+            } else {
+                final ITypeBinding typeBinding = operand.resolveTypeBinding();
+                if (typeBinding == null || typeBinding.isArray()) {
+                    // arrays would be formatted differently
+                    return null;
+                }
+                format.append(PLACEHOLDER);
+                args.add(operand);
+            }
+        }
+        if (args.isEmpty()
+                || countPlaceholders(format.toString()) != args.size()
+                || format.indexOf("\\" + PLACEHOLDER) != -1
+                // a trailing exception would be logged with its stack trace
+                || instanceOf(args.get(args.size() - 1), "java.lang.Throwable")
+                || (args.size() > 2 && !hasVarargsMethod(node))) {
+            return null;
+        }
+        return format.toString();
+    }
+
+    /**
+     * Returns whether flattening the provided string concatenation preserves its value,
+     * i.e. no numeric additions are evaluated before the first string operand.
+     */
+    private boolean isFlattenable(InfixExpression ie) {
+        if (ie == null
+                || !InfixExpression.Operator.PLUS.equals(ie.getOperator())
+                || !hasType(ie, "java.lang.String")) {
+            return false;
+        }
+        final Expression lhs = ie.getLeftOperand();
+        final Expression rhs = ie.getRightOperand();
+        return (hasType(lhs, "java.lang.String") || hasType(rhs, "java.lang.String"))
+                && isFlattenableOperand(lhs)
+                && isFlattenableOperand(rhs)
+                && areFlattenableOperands(extendedOperands(ie));
+    }
+
+    private boolean areFlattenableOperands(List<Expression> operands) {
+        for (Expression operand : operands) {
+            if (!isFlattenableOperand(operand)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFlattenableOperand(Expression operand) {
+        if (operand instanceof InfixExpression) {
+            final InfixExpression ie = (InfixExpression) operand;
+            if (InfixExpression.Operator.PLUS.equals(ie.getOperator())
+                    && hasType(ie, "java.lang.String")) {
+                return isFlattenable(ie);
+            }
+        }
+        return true;
+    }
+
+    private int countPlaceholders(String format) {
+        int count = 0;
+        for (int idx = format.indexOf(PLACEHOLDER); idx != -1; idx = format.indexOf(PLACEHOLDER, idx + 2)) {
+            count++;
+        }
+        return count;
+    }
+
+    private boolean hasVarargsMethod(MethodInvocation node) {
+        final IMethodBinding methodBinding = node.resolveMethodBinding();
+        for (IMethodBinding mb : methodBinding.getDeclaringClass().getDeclaredMethods()) {
+            if (mb.getName().equals(methodBinding.getName())
+                    && mb.isVarargs()
+                    && mb.getParameterTypes().length == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether computing the provided log call arguments has a cost worth a level check,
+     * and the level check does not skip any side effects of computing them.
+     */
+    private boolean needsGuard(List<Expression> args) {
+        boolean hasCost = false;
+        for (Expression arg : args) {
+            if (hasSideEffects(arg)) {
+                return false;
+            }
+            hasCost |= !isPassive(arg);
+        }
+        return hasCost;
+    }
+
+    private boolean hasSideEffects(Expression expr) {
+        final boolean[] result = { false };
+        expr.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(Assignment node) {
+                return foundSideEffect();
+            }
+
+            @Override
+            public boolean visit(PrefixExpression node) {
+                if (PrefixExpression.Operator.INCREMENT.equals(node.getOperator())
+                        || PrefixExpression.Operator.DECREMENT.equals(node.getOperator())) {
+                    return foundSideEffect();
+                }
+                return VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(PostfixExpression node) {
+                return foundSideEffect();
+            }
+
+            @Override
+            public boolean visit(ClassInstanceCreation node) {
+                return foundSideEffect();
+            }
+
+            @Override
+            public boolean visit(SuperMethodInvocation node) {
+                return foundSideEffect();
+            }
+
+            @Override
+            public boolean visit(MethodInvocation node) {
+                if (!isSideEffectFree(node.resolveMethodBinding())) {
+                    return foundSideEffect();
+                }
+                return VISIT_SUBTREE;
+            }
+
+            private boolean foundSideEffect() {
+                result[0] = true;
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isSideEffectFree(IMethodBinding methodBinding) {
+        if (methodBinding == null) {
+            return false;
+        }
+        final String methodName = methodBinding.getName();
+        final ITypeBinding declaringClass = methodBinding.getDeclaringClass().getErasure();
+        if (SIDE_EFFECT_FREE_METHODS.contains(methodName) && methodBinding.getParameterTypes().length == 0) {
+            return true;
+        } else if (hasType(declaringClass, "java.util.Arrays")) {
+            return SIDE_EFFECT_FREE_ARRAYS_METHODS.contains(methodName);
+        } else if (instanceOf(declaringClass, "java.util.Collection")
+                || instanceOf(declaringClass, "java.util.Map")) {
+            return SIDE_EFFECT_FREE_COLLECTION_METHODS.contains(methodName);
+        }
+        return SIDE_EFFECT_FREE_TYPES.contains(declaringClass.getQualifiedName());
+    }
+
+    private MethodInvocation getGuard(MethodInvocation node, String level) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String guardName = "is" + Character.toUpperCase(level.charAt(0)) + level.substring(1) + "Enabled";
+        return b.invoke(b.copy(node.getExpression()), guardName);
+    }
+
+    private boolean guard(MethodInvocation node, MethodInvocation guard) {
+        if (!canGuard(node)) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        this.ctx.getRefactorings().replace(node.getParent(),
+                b.if0(guard, b.block(b.copy((ExpressionStatement) node.getParent()))));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns whether the provided log call can be wrapped in an if statement,
+     * i.e. it is a statement of a block and it is not already guarded by a level check.
+     */
+    private boolean canGuard(MethodInvocation node) {
+        final ASTNode stmt = node.getParent();
+        if (stmt.getLocationInParent() != Block.STATEMENTS_PROPERTY) {
+            return false;
+        }
+        for (ASTNode child = stmt, parent = stmt.getParent();
+                parent != null && !(parent instanceof BodyDeclaration);
+                child = parent, parent = parent.getParent()) {
+            if (child.getLocationInParent() == IfStatement.THEN_STATEMENT_PROPERTY
+                    && isLevelCheck(((IfStatement) parent).getExpression())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLevelCheck(Expression condition) {
+        final boolean[] result = { false };
+        condition.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(MethodInvocation node) {
+                final String methodName = node.getName().getIdentifier();
+                if ("isLoggable".equals(methodName)
+                        || (methodName.startsWith("is") && methodName.endsWith("Enabled"))) {
+                    result[0] = true;
+                }
+                return !result[0];
+            }
+        });
+        return result[0];
+    }
+}
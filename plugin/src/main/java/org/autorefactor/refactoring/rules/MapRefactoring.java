@@ -0,0 +1,299 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.List;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTMatcher;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.Assignment.Operator.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Removes the redundant lookups performed by {@link java.util.Map#containsKey(Object)}
+ * when it is immediately followed by {@link java.util.Map#get(Object)} or {@link java.util.Map#put(Object, Object)}
+ * with the same key.
+ * <p>
+ * Such rewrites are only valid when the map is known to reject null values,
+ * otherwise a key mapped to a null value could not be told apart from an absent key:
+ * <ul>
+ * <li><code>if (map.containsKey(k)) { v = map.get(k); }</code> is rewritten to use
+ * a single {@link java.util.Map#get(Object)} followed by a null check,</li>
+ * <li><code>if (!map.containsKey(k)) { map.put(k, v); }</code> is rewritten to use
+ * <code>putIfAbsent()</code>, as long as evaluating <code>v</code> has no side effects and does not allocate.</li>
+ * </ul>
+ * Calls whose map or key expressions could have side effects are left alone.
+ */
+public class MapRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    private final ASTMatcher matcher = new ASTMatcher();
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "containsKey" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(IfStatement node) {
+        Expression condition = removeParentheses(node.getExpression());
+        boolean isNegated = false;
+        final PrefixExpression pe = as(condition, PrefixExpression.class);
+        if (pe != null && PrefixExpression.Operator.NOT.equals(pe.getOperator())) {
+            condition = removeParentheses(pe.getOperand());
+            isNegated = true;
+        }
+        final MethodInvocation containsKeyMI = as(condition, MethodInvocation.class);
+        if (!isMethod(containsKeyMI, "java.util.Map", "containsKey", "java.lang.Object")
+                || !isPassive(containsKeyMI.getExpression())
+                || !isPassive(arguments(containsKeyMI).get(0))
+                || !hasNonNullValues(containsKeyMI.getExpression())) {
+            return VISIT_SUBTREE;
+        }
+
+        final Statement presentStmt = isNegated ? node.getElseStatement() : node.getThenStatement();
+        final Statement absentStmt = isNegated ? node.getThenStatement() : node.getElseStatement();
+        if (presentStmt == null) {
+            return maybeReplaceWithPutIfAbsent(node, containsKeyMI, absentStmt);
+        } else if (node.getLocationInParent() == Block.STATEMENTS_PROPERTY) {
+            return maybeReuseGetResult(node, containsKeyMI, isNegated, presentStmt, absentStmt);
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private boolean hasNonNullValues(Expression map) {
+        final ITypeBinding mapType = map.resolveTypeBinding();
+        return instanceOf(mapType, "java.util.concurrent.ConcurrentMap")
+                || instanceOf(mapType, "java.util.Hashtable");
+    }
+
+    private boolean maybeReplaceWithPutIfAbsent(IfStatement node, MethodInvocation containsKeyMI,
+            Statement absentStmt) {
+        final List<Statement> stmts = asList(absentStmt);
+        if (stmts.size() != 1) {
+            return VISIT_SUBTREE;
+        }
+        final MethodInvocation putMI = asExpression(stmts.get(0), MethodInvocation.class);
+        if (isMethod(putMI, "java.util.Map", "put", "java.lang.Object", "java.lang.Object")
+                && isSameMapAndKey(containsKeyMI, putMI)
+                && canUsePutIfAbsent(containsKeyMI.getExpression())) {
+            final Expression value = arguments(putMI).get(1);
+            if (isPassive(value) && !isNullLiteral(value)) {
+                final ASTBuilder b = this.ctx.getASTBuilder();
+                this.ctx.getRefactorings().replace(node,
+                        b.toStmt(b.invoke(
+                                b.copy(putMI.getExpression()),
+                                "putIfAbsent",
+                                b.copy(arguments(putMI).get(0)),
+                                b.copy(value))));
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private boolean canUsePutIfAbsent(Expression map) {
+        final Release release = ctx.getJavaProjectOptions().getJavaSERelease();
+        if (instanceOf(map.resolveTypeBinding(), "java.util.concurrent.ConcurrentMap")) {
+            return release.isCompatibleWith(Release.javaSE("1.5.0"));
+        }
+        return release.isCompatibleWith(Release.javaSE("1.8.0"));
+    }
+
+    private boolean maybeReuseGetResult(IfStatement node, MethodInvocation containsKeyMI, boolean isNegated,
+            Statement presentStmt, Statement absentStmt) {
+        final List<Statement> presentStmts = asList(presentStmt);
+        if (presentStmts.isEmpty()) {
+            return VISIT_SUBTREE;
+        }
+        final Statement firstStmt = presentStmts.get(0);
+        final boolean hasOtherStmts = presentStmts.size() > 1 || absentStmt != null;
+
+        final VariableDeclarationStatement vds = as(firstStmt, VariableDeclarationStatement.class);
+        if (vds != null) {
+            if (vds.fragments().size() != 1) {
+                return VISIT_SUBTREE;
+            }
+            final VariableDeclarationFragment vdf = fragments(vds).get(0);
+            final MethodInvocation getMI = as(vdf.getInitializer(), MethodInvocation.class);
+            if (!isGet(getMI, containsKeyMI)) {
+                return VISIT_SUBTREE;
+            }
+            final String varName = vdf.getName().getIdentifier();
+            if (hasOtherStmts && !isNameUsedOutside(varName, node.getParent(), presentStmt)) {
+                // move the declaration before the if statement
+                final Refactorings r = this.ctx.getRefactorings();
+                r.insertBefore(this.ctx.getASTBuilder().move(vds), node);
+                replaceIfStatement(node, varName, isNegated, presentStmts, absentStmt);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+            return replaceWithLocalVariable(node, getMI, isNegated, presentStmts, absentStmt);
+        }
+
+        final Assignment as = asExpression(firstStmt, Assignment.class);
+        if (as != null) {
+            final MethodInvocation getMI = as(as.getRightHandSide(), MethodInvocation.class);
+            if (!ASSIGN.equals(as.getOperator())
+                    || !isPassive(as.getLeftHandSide())
+                    || !isGet(getMI, containsKeyMI)) {
+                return VISIT_SUBTREE;
+            }
+            final Expression lhs = removeParentheses(as.getLeftHandSide());
+            if (isAssignedFirst(lhs, absentStmt)) {
+                // the variable is always assigned: directly assign the result of get()
+                final Refactorings r = this.ctx.getRefactorings();
+                r.insertBefore(this.ctx.getASTBuilder().move(firstStmt), node);
+                replaceIfStatement(node, ((SimpleName) lhs).getIdentifier(), isNegated, presentStmts, absentStmt);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+            return replaceWithLocalVariable(node, getMI, isNegated, presentStmts, absentStmt);
+        }
+
+        final ReturnStatement rs = as(firstStmt, ReturnStatement.class);
+        if (rs != null) {
+            final MethodInvocation getMI = as(rs.getExpression(), MethodInvocation.class);
+            if (isGet(getMI, containsKeyMI)) {
+                return replaceWithLocalVariable(node, getMI, isNegated, presentStmts, absentStmt);
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns whether the provided expression is a local variable of a reference type
+     * which is assigned by the first statement of the provided statement,
+     * without reading the variable value before.
+     */
+    private boolean isAssignedFirst(Expression lhs, Statement stmt) {
+        final List<Statement> stmts = asList(stmt);
+        if (!(lhs instanceof SimpleName) || stmts.isEmpty()) {
+            return false;
+        }
+        final SimpleName varName = (SimpleName) lhs;
+        final IBinding varBinding = varName.resolveBinding();
+        if (!(varBinding instanceof IVariableBinding)
+                || ((IVariableBinding) varBinding).isField()
+                || ((IVariableBinding) varBinding).getType().isPrimitive()) {
+            return false;
+        }
+        final Assignment as = asExpression(stmts.get(0), Assignment.class);
+        return as != null
+                && ASSIGN.equals(as.getOperator())
+                && isSameVariable(varName, removeParentheses(as.getLeftHandSide()))
+                && !isNameUsedOutside(varName.getIdentifier(), as.getRightHandSide(), null);
+    }
+
+    private boolean replaceWithLocalVariable(IfStatement node, MethodInvocation getMI, boolean isNegated,
+            List<Statement> presentStmts, Statement absentStmt) {
+        final Type varType = this.ctx.getImportsRewriter().newType(node, getMI.resolveTypeBinding());
+        if (varType == null) {
+            return VISIT_SUBTREE;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Refactorings r = this.ctx.getRefactorings();
+        final String varName = this.ctx.getVariableNameGenerator().newLocalVariableName(node, "value");
+        r.insertBefore(b.declareStmt(varType, b.simpleName(varName), b.copy(getMI)), node);
+        r.replace(getMI, b.simpleName(varName));
+        r.replace(node.getExpression(), isNull(varName, isNegated));
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    /**
+     * Replaces the if statement condition with a null check on the provided variable,
+     * after the first statement of the branch executed when the key is present has been moved out.
+     */
+    private void replaceIfStatement(IfStatement node, String varName, boolean isNegated,
+            List<Statement> presentStmts, Statement absentStmt) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Refactorings r = this.ctx.getRefactorings();
+        if (presentStmts.size() == 1) {
+            r.replace(node, b.if0(isNull(varName, true), b.move(absentStmt)));
+        } else {
+            r.replace(node.getExpression(), isNull(varName, isNegated));
+        }
+    }
+
+    private InfixExpression isNull(String varName, boolean isNull) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        return b.infixExpr(b.simpleName(varName), isNull ? EQUALS : NOT_EQUALS, b.null0());
+    }
+
+    private boolean isGet(MethodInvocation getMI, MethodInvocation containsKeyMI) {
+        return isMethod(getMI, "java.util.Map", "get", "java.lang.Object")
+                && isSameMapAndKey(containsKeyMI, getMI);
+    }
+
+    private boolean isSameMapAndKey(MethodInvocation mi1, MethodInvocation mi2) {
+        return mi1.getExpression() != null
+                && mi2.getExpression() != null
+                && match(matcher, mi1.getExpression(), mi2.getExpression())
+                && match(matcher, arguments(mi1).get(0), arguments(mi2).get(0));
+    }
+
+    /** Returns whether the provided identifier appears in the scope node, ignoring the excluded node. */
+    private boolean isNameUsedOutside(final String identifier, ASTNode scope, final ASTNode excluded) {
+        final boolean[] result = { false };
+        scope.accept(new ASTVisitor() {
+            @Override
+            public boolean preVisit2(ASTNode node) {
+                return !result[0] && node != excluded;
+            }
+
+            @Override
+            public boolean visit(SimpleName node) {
+                if (identifier.equals(node.getIdentifier())) {
+                    result[0] = true;
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+}
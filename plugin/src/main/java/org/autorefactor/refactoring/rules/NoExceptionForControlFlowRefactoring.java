@@ -0,0 +1,268 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.ArrayAccess;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CastExpression;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.ThrowStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+
+import static org.autorefactor.AutoRefactorPlugin.*;
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.Assignment.Operator.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Replaces exceptions used for normal control flow with explicit checks.
+ * Throwing an exception captures a stack trace, which is costly when the exception is the expected outcome.
+ * <p>
+ * The following idioms are rewritten when the try block only contains one assignment or return statement,
+ * because the explicit check is then equivalent to the caught exception:
+ * <ul>
+ * <li>array accesses, {@link String#charAt(int)}, {@link java.util.ArrayList#get(int)}
+ * and {@link java.util.LinkedList#get(int)} catching {@link IndexOutOfBoundsException}
+ * are rewritten to use bounds checks,</li>
+ * <li>{@link java.util.Iterator#next()} catching {@link java.util.NoSuchElementException}
+ * is rewritten to use {@link java.util.Iterator#hasNext()},</li>
+ * <li>casts catching {@link ClassCastException} are rewritten to use <code>instanceof</code>.</li>
+ * </ul>
+ * Other try statements catching such exceptions without rethrowing them,
+ * like parsing numbers and catching {@link NumberFormatException},
+ * cannot be rewritten safely and are reported in the Eclipse workspace logs.
+ */
+public class NoExceptionForControlFlowRefactoring extends AbstractRefactoringRule
+        implements TriggerTokensRefactoringRule {
+
+    private static final String[] CONTROL_FLOW_EXCEPTIONS = {
+        "java.lang.ArithmeticException",
+        "java.lang.ClassCastException",
+        "java.lang.IndexOutOfBoundsException",
+        "java.lang.NullPointerException",
+        "java.lang.NumberFormatException",
+        "java.util.NoSuchElementException",
+    };
+
+    /** Source locations already reported, to avoid reporting them again on each refactoring pass. */
+    private final Set<String> reportedLocations = new HashSet<String>();
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "catch" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(TryStatement node) {
+        if (node.getFinally() == null
+                && node.resources().isEmpty()
+                && node.catchClauses().size() == 1) {
+            final CatchClause catchClause = catchClauses(node).get(0);
+            final List<Statement> tryStmts = statements(node.getBody());
+            if (tryStmts.size() == 1
+                    && !isExceptionUsed(catchClause)
+                    && maybeReplaceWithExplicitCheck(node, tryStmts.get(0), catchClause)) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        reportControlFlowExceptions(node);
+        return VISIT_SUBTREE;
+    }
+
+    private boolean maybeReplaceWithExplicitCheck(TryStatement node, Statement tryStmt, CatchClause catchClause) {
+        final Expression expr = getCheckedExpression(tryStmt);
+        final ITypeBinding caughtException = catchClause.getException().getType().resolveBinding();
+        if (expr == null || caughtException == null) {
+            return false;
+        }
+        final Expression condition = getExplicitCheck(expr, caughtException.getErasure().getQualifiedName());
+        if (condition == null) {
+            return false;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Block catchBody = catchClause.getBody();
+        if (catchBody.statements().isEmpty()) {
+            this.ctx.getRefactorings().replace(node,
+                    b.if0(condition, b.move(node.getBody())));
+        } else {
+            this.ctx.getRefactorings().replace(node,
+                    b.if0(condition, b.move(node.getBody()), b.move(catchBody)));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the expression which can throw the caught exception,
+     * when it is the only expression of the provided statement which can throw anything.
+     */
+    private Expression getCheckedExpression(Statement stmt) {
+        final Assignment as = asExpression(stmt, Assignment.class);
+        if (as != null) {
+            if (ASSIGN.equals(as.getOperator()) && isPassive(as.getLeftHandSide())) {
+                return removeParentheses(as.getRightHandSide());
+            }
+            return null;
+        }
+        final ReturnStatement rs = as(stmt, ReturnStatement.class);
+        if (rs != null && rs.getExpression() != null) {
+            return removeParentheses(rs.getExpression());
+        }
+        return null;
+    }
+
+    private Expression getExplicitCheck(Expression expr, String caughtException) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        if (expr instanceof ArrayAccess) {
+            final ArrayAccess aa = (ArrayAccess) expr;
+            if (isPassive(aa.getArray()) && isPassive(aa.getIndex())
+                    && isOneOf(caughtException,
+                            "java.lang.ArrayIndexOutOfBoundsException", "java.lang.IndexOutOfBoundsException")) {
+                return isInBounds(aa.getIndex(), b.fieldAccess(b.copy(aa.getArray()), "length"));
+            }
+        } else if (expr instanceof MethodInvocation) {
+            final MethodInvocation mi = (MethodInvocation) expr;
+            if (!isPassive(mi.getExpression())) {
+                return null;
+            }
+            if (isMethod(mi, "java.lang.String", "charAt", "int")
+                    && isPassive(arguments(mi).get(0))
+                    && isOneOf(caughtException,
+                            "java.lang.StringIndexOutOfBoundsException", "java.lang.IndexOutOfBoundsException")) {
+                return isInBounds(arguments(mi).get(0), b.invoke(b.copy(mi.getExpression()), "length"));
+            } else if (isMethod(mi, "java.util.List", "get", "int")
+                    && hasType(mi.getExpression(), "java.util.ArrayList", "java.util.LinkedList")
+                    && isPassive(arguments(mi).get(0))
+                    && isOneOf(caughtException, "java.lang.IndexOutOfBoundsException")) {
+                return isInBounds(arguments(mi).get(0), b.invoke(b.copy(mi.getExpression()), "size"));
+            } else if (isMethod(mi, "java.util.Iterator", "next")
+                    && isOneOf(caughtException, "java.util.NoSuchElementException")) {
+                return b.invoke(b.copy(mi.getExpression()), "hasNext");
+            }
+        } else if (expr instanceof CastExpression) {
+            final CastExpression ce = (CastExpression) expr;
+            final ITypeBinding castType = ce.getType().resolveBinding();
+            final Expression castedExpr = ce.getExpression();
+            if (isPassive(castedExpr)
+                    && castType != null
+                    && !castType.isPrimitive()
+                    && !castType.isParameterizedType()
+                    && !castType.isTypeVariable()
+                    && castedExpr.resolveTypeBinding() != null
+                    && !castedExpr.resolveTypeBinding().isPrimitive()
+                    && isOneOf(caughtException, "java.lang.ClassCastException")) {
+                // null can be cast to any type, but it is not an instance of any type
+                return b.infixExpr(
+                        b.infixExpr(b.copy(castedExpr), EQUALS, b.null0()),
+                        CONDITIONAL_OR,
+                        b.instanceof0(b.copy(castedExpr), b.copy(ce.getType())));
+            }
+        }
+        return null;
+    }
+
+    private Expression isInBounds(Expression index, Expression upperBound) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        return b.infixExpr(
+                b.infixExpr(b.copy(index), GREATER_EQUALS, b.int0(0)),
+                CONDITIONAL_AND,
+                b.infixExpr(b.copy(index), LESS, upperBound));
+    }
+
+    private boolean isOneOf(String caughtException, String... exceptions) {
+        for (String exception : exceptions) {
+            if (exception.equals(caughtException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExceptionUsed(CatchClause catchClause) {
+        final String exceptionName = catchClause.getException().getName().getIdentifier();
+        final boolean[] result = { false };
+        catchClause.getBody().accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                if (exceptionName.equals(node.getIdentifier())) {
+                    result[0] = true;
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+
+    private void reportControlFlowExceptions(TryStatement node) {
+        for (CatchClause catchClause : catchClauses(node)) {
+            final ITypeBinding caughtException = catchClause.getException().getType().resolveBinding();
+            final String exceptionName = getControlFlowException(caughtException);
+            if (exceptionName != null && !rethrows(catchClause)) {
+                final String location = getSourceLocation(catchClause);
+                if (reportedLocations.add(location)) {
+                    logInfo(location + ": " + exceptionName + " is caught as part of the normal control flow."
+                            + " Consider replacing it with an explicit check.");
+                }
+            }
+        }
+    }
+
+    private String getControlFlowException(ITypeBinding caughtException) {
+        for (String exceptionName : CONTROL_FLOW_EXCEPTIONS) {
+            if (instanceOf(caughtException, exceptionName)) {
+                return caughtException.getName();
+            }
+        }
+        return null;
+    }
+
+    private boolean rethrows(CatchClause catchClause) {
+        final boolean[] result = { false };
+        catchClause.getBody().accept(new ASTVisitor() {
+            @Override
+            public boolean visit(ThrowStatement node) {
+                result[0] = true;
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+}
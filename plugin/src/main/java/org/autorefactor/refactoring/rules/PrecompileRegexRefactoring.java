@@ -0,0 +1,253 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.StaticMembersRewriter;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Precompiles the constant regular expressions passed to {@link String#matches(String)},
+ * {@link String#replaceAll(String, String)}, {@link String#replaceFirst(String, String)},
+ * {@link String#split(String)} and {@link String#split(String, int)}
+ * into <code>private static final</code> {@link Pattern} fields,
+ * instead of recompiling them on every call.
+ * <p>
+ * {@link String#split(String)} does not compile the regular expression
+ * when it is a single character which is not a regular expression meta character,
+ * or a backslash followed by a character which is not a letter nor a digit.
+ * Such calls are left alone, and single character classes like <code>"[.]"</code>
+ * are rewritten to use this fast path.
+ */
+public class PrecompileRegexRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    private static final String REGEX_META_CHARS = ".$|()[{^?*+\\";
+    private static final String PATTERN_CLASS_NAME = "java.util.regex.Pattern";
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "split", "matches", "replaceAll", "replaceFirst" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(MethodInvocation node) {
+        if (!ctx.getJavaProjectOptions().getJavaSERelease().isCompatibleWith(Release.javaSE("1.4.0"))
+                || node.getExpression() == null) {
+            return VISIT_SUBTREE;
+        }
+        if (isMethod(node, "java.lang.String", "split", "java.lang.String")
+                || isMethod(node, "java.lang.String", "split", "java.lang.String", "int")) {
+            final String regex = getRegex(node);
+            if (regex != null) {
+                final String fastPathRegex = getSplitFastPathRegex(regex);
+                if (fastPathRegex != null) {
+                    if (!fastPathRegex.equals(regex)) {
+                        final ASTBuilder b = this.ctx.getASTBuilder();
+                        this.ctx.getRefactorings().replace(arguments(node).get(0), b.string(fastPathRegex));
+                        return DO_NOT_VISIT_SUBTREE;
+                    }
+                } else {
+                    return replaceWithPrecompiledPattern(node, regex, false);
+                }
+            }
+        } else if (isMethod(node, "java.lang.String", "matches", "java.lang.String")
+                || isMethod(node, "java.lang.String", "replaceAll", "java.lang.String", "java.lang.String")
+                || isMethod(node, "java.lang.String", "replaceFirst", "java.lang.String", "java.lang.String")) {
+            final String regex = getRegex(node);
+            if (regex != null) {
+                return replaceWithPrecompiledPattern(node, regex, true);
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private String getRegex(MethodInvocation node) {
+        final Expression arg0 = arguments(node).get(0);
+        if (arg0 instanceof StringLiteral) {
+            final String regex = ((StringLiteral) arg0).getLiteralValue();
+            try {
+                Pattern.compile(regex);
+                return regex;
+            } catch (PatternSyntaxException e) {
+                // calling the method will fail at runtime: do not move the failure elsewhere
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the regex to use with {@link String#split(String)} fast path.
+     *
+     * @param regex the regular expression passed to {@link String#split(String)}
+     * @return the regex already using or converted to use the fast path,
+     *         or null if the regular expression cannot use the fast path
+     */
+    private String getSplitFastPathRegex(String regex) {
+        if (isSplitFastPath(regex)) {
+            return regex;
+        }
+        if (regex.length() == 3
+                && regex.charAt(0) == '['
+                && regex.charAt(2) == ']') {
+            final char c = regex.charAt(1);
+            if ("^[]&\\".indexOf(c) != -1) {
+                return null;
+            }
+            final String fastPathRegex = REGEX_META_CHARS.indexOf(c) != -1 ? "\\" + c : String.valueOf(c);
+            return isSplitFastPath(fastPathRegex) ? fastPathRegex : null;
+        }
+        return null;
+    }
+
+    private boolean isSplitFastPath(String regex) {
+        if (regex.length() == 1) {
+            final char c = regex.charAt(0);
+            return REGEX_META_CHARS.indexOf(c) == -1 && !isSurrogate(c);
+        } else if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            final char c = regex.charAt(1);
+            return !isAsciiLetterOrDigit(c) && !isSurrogate(c);
+        }
+        return false;
+    }
+
+    private boolean isSurrogate(char c) {
+        return Character.MIN_HIGH_SURROGATE <= c && c <= Character.MAX_LOW_SURROGATE;
+    }
+
+    private boolean isAsciiLetterOrDigit(char c) {
+        return ('0' <= c && c <= '9')
+                || ('a' <= c && c <= 'z')
+                || ('A' <= c && c <= 'Z');
+    }
+
+    private boolean replaceWithPrecompiledPattern(MethodInvocation node, String regex, boolean useMatcher) {
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final TypeDeclaration typeDecl = smr.getEnclosingStaticMembersHolder(node);
+        if (typeDecl == null) {
+            return VISIT_SUBTREE;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String patternName = getPatternConstant(typeDecl, node, regex);
+        final List<Expression> args = arguments(node);
+        final Expression newExpr;
+        if (useMatcher) {
+            // "s.matches(regex)" => "PATTERN.matcher(s).matches()"
+            // "s.replaceAll(regex, replacement)" => "PATTERN.matcher(s).replaceAll(replacement)"
+            final MethodInvocation matcher = b.invoke(b.simpleName(patternName), "matcher",
+                    b.move(node.getExpression()));
+            if (args.size() == 1) {
+                newExpr = b.invoke(matcher, node.getName().getIdentifier());
+            } else {
+                newExpr = b.invoke(matcher, node.getName().getIdentifier(), b.move(args.get(1)));
+            }
+        } else {
+            // "s.split(regex)" => "PATTERN.split(s)"
+            if (args.size() == 1) {
+                newExpr = b.invoke(b.simpleName(patternName), "split", b.move(node.getExpression()));
+            } else {
+                newExpr = b.invoke(b.simpleName(patternName), "split",
+                        b.move(node.getExpression()), b.move(args.get(1)));
+            }
+        }
+        this.ctx.getRefactorings().replace(node, newExpr);
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private String getPatternConstant(TypeDeclaration typeDecl, MethodInvocation node, String regex) {
+        final String existingField = findPatternField(typeDecl, regex);
+        if (existingField != null) {
+            return existingField;
+        }
+        final StaticMembersRewriter smr = this.ctx.getStaticMembersRewriter();
+        final String key = PATTERN_CLASS_NAME + ".compile(" + regex + ")";
+        final String addedField = smr.getConstant(typeDecl, key);
+        if (addedField != null) {
+            return addedField;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final String patternClassName = this.ctx.getImportsRewriter().addImport(node, PATTERN_CLASS_NAME);
+        final Expression regexLiteral = b.copySubtree(arguments(node).get(0));
+        return smr.addConstant(typeDecl, key, getBaseName(node), b.type(patternClassName),
+                b.invoke(b.name(patternClassName.split("\\.")), "compile", regexLiteral));
+    }
+
+    private String findPatternField(TypeDeclaration typeDecl, String regex) {
+        for (FieldDeclaration field : typeDecl.getFields()) {
+            final int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                for (VariableDeclarationFragment vdf : fragments(field)) {
+                    final MethodInvocation mi = as(vdf.getInitializer(), MethodInvocation.class);
+                    if (isMethod(mi, PATTERN_CLASS_NAME, "compile", "java.lang.String")) {
+                        final StringLiteral arg0 = as(arguments(mi), StringLiteral.class);
+                        if (arg0 != null && regex.equals(arg0.getLiteralValue())) {
+                            return vdf.getName().getIdentifier();
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String getBaseName(ASTNode node) {
+        final BodyDeclaration member = getAncestor(node, BodyDeclaration.class);
+        if (member instanceof MethodDeclaration) {
+            final MethodDeclaration md = (MethodDeclaration) member;
+            if (!md.isConstructor()) {
+                return StaticMembersRewriter.toConstantName(md.getName().getIdentifier()) + "_PATTERN";
+            }
+        } else if (member instanceof FieldDeclaration) {
+            final List<VariableDeclarationFragment> fragments = fragments((FieldDeclaration) member);
+            if (fragments.size() == 1) {
+                return StaticMembersRewriter.toConstantName(fragments.get(0).getName().getIdentifier())
+                        + "_PATTERN";
+            }
+        }
+        return "PATTERN";
+    }
+}
@@ -26,8 +26,11 @@
 package org.autorefactor.refactoring.rules;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.ImportsRewriter;
 import org.autorefactor.refactoring.JavaProjectOptions;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.StaticMembersRewriter;
+import org.autorefactor.refactoring.VariableNameGenerator;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.dom.AST;
 
@@ -40,6 +43,9 @@ public class RefactoringContext {
     private final ICompilationUnit compilationUnit;
     private final JavaProjectOptions options;
     private final ASTBuilder astBuilder;
+    private final ImportsRewriter importsRewriter;
+    private final StaticMembersRewriter staticMembersRewriter;
+    private final VariableNameGenerator variableNameGenerator = new VariableNameGenerator();
 
     /**
      * Builds an instance of this class.
@@ -50,8 +56,10 @@ public class RefactoringContext {
      */
     public RefactoringContext(ICompilationUnit compilationUnit, AST ast,
             JavaProjectOptions options) {
-        this.refactorings = new Refactorings(ast);
+        this.refactorings = new Refactorings(ast, options != null ? options.getCompilerOptions() : null);
         this.astBuilder = new ASTBuilder(refactorings);
+        this.importsRewriter = new ImportsRewriter(refactorings, astBuilder);
+        this.staticMembersRewriter = new StaticMembersRewriter(refactorings, astBuilder);
         this.options = options;
         this.compilationUnit = compilationUnit;
     }
@@ -83,6 +91,33 @@ public class RefactoringContext {
         return compilationUnit;
     }
 
+    /**
+     * Returns the {@link ImportsRewriter} object to use for adding imports in the refactoring.
+     *
+     * @return the {@link ImportsRewriter} object to use for adding imports in the refactoring
+     */
+    public ImportsRewriter getImportsRewriter() {
+        return importsRewriter;
+    }
+
+    /**
+     * Returns the {@link StaticMembersRewriter} object to use for adding static members in the refactoring.
+     *
+     * @return the {@link StaticMembersRewriter} object to use for adding static members in the refactoring
+     */
+    public StaticMembersRewriter getStaticMembersRewriter() {
+        return staticMembersRewriter;
+    }
+
+    /**
+     * Returns the {@link VariableNameGenerator} object to use for naming new local variables in the refactoring.
+     *
+     * @return the {@link VariableNameGenerator} object to use for naming new local variables in the refactoring
+     */
+    public VariableNameGenerator getVariableNameGenerator() {
+        return variableNameGenerator;
+    }
+
     /**
      * Returns the Java project options used to compile the project.
      *
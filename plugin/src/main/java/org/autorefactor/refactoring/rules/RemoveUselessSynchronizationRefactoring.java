@@ -0,0 +1,335 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Replaces method local {@link java.util.Vector}, {@link java.util.Hashtable} and {@link StringBuffer} instances
+ * with {@link java.util.ArrayList}, {@link java.util.HashMap} and {@link StringBuilder} instances,
+ * and removes the {@link java.util.Collections} <code>synchronizedXxx()</code> wrappers of local collections.
+ * <p>
+ * An escape analysis proves the local instance is never shared with another thread:
+ * it is never reassigned, passed as an argument, returned, stored, captured by an inner class
+ * or used as a lock, and the views obtained from it (iterators, key sets, etc.) do not escape either.
+ * The synchronization performed by these classes is then useless.
+ */
+public class RemoveUselessSynchronizationRefactoring extends AbstractRefactoringRule
+        implements TriggerTokensRefactoringRule {
+
+    private static final String[][] SYNCHRONIZED_TO_UNSYNCHRONIZED = {
+        { "java.util.Vector", "java.util.ArrayList" },
+        { "java.util.Hashtable", "java.util.HashMap" },
+        { "java.lang.StringBuffer", "java.lang.StringBuilder" },
+    };
+
+    private static final String[] VIEW_TYPES = {
+        "java.lang.Iterable",
+        "java.util.Enumeration",
+        "java.util.Iterator",
+        "java.util.Map",
+        "java.util.Map.Entry",
+    };
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "Vector", "Hashtable", "StringBuffer", "synchronized" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(VariableDeclarationStatement node) {
+        if (node.fragments().size() != 1
+                || !ctx.getJavaProjectOptions().getJavaSERelease().isCompatibleWith(Release.javaSE("1.2.0"))) {
+            return VISIT_SUBTREE;
+        }
+        final VariableDeclarationFragment vdf = fragments(node).get(0);
+        if (vdf.getInitializer() == null) {
+            return VISIT_SUBTREE;
+        }
+        final Expression initializer = removeParentheses(vdf.getInitializer());
+        final ClassInstanceCreation cic = as(initializer, ClassInstanceCreation.class);
+        if (cic != null) {
+            final String synchronizedType = getSynchronizedType(cic);
+            if (synchronizedType != null
+                    && !hasType(node.getType().resolveBinding(), "java.util.Dictionary")
+                    && isNotEscaping(vdf, synchronizedType)) {
+                replaceSynchronizedType(node, cic, synchronizedType);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+            return VISIT_SUBTREE;
+        }
+
+        final MethodInvocation mi = as(initializer, MethodInvocation.class);
+        if (isSynchronizedWrapper(mi)) {
+            final ClassInstanceCreation wrappedCIC = as(arguments(mi).get(0), ClassInstanceCreation.class);
+            if (wrappedCIC != null
+                    && wrappedCIC.getAnonymousClassDeclaration() == null
+                    && isNotEscaping(vdf, null)) {
+                final ASTBuilder b = this.ctx.getASTBuilder();
+                this.ctx.getRefactorings().replace(vdf.getInitializer(), b.move(wrappedCIC));
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    private String getSynchronizedType(ClassInstanceCreation cic) {
+        if (cic.getAnonymousClassDeclaration() != null) {
+            return null;
+        }
+        final List<Expression> args = arguments(cic);
+        if (hasType(cic, "java.util.Vector")) {
+            // Vector(int, int) specifies a capacity increment which is not supported by ArrayList
+            return args.size() <= 1 ? "java.util.Vector" : null;
+        } else if (hasType(cic, "java.util.Hashtable")) {
+            return "java.util.Hashtable";
+        } else if (hasType(cic, "java.lang.StringBuffer")
+                && ctx.getJavaProjectOptions().getJavaSERelease().isCompatibleWith(Release.javaSE("1.5.0"))) {
+            return "java.lang.StringBuffer";
+        }
+        return null;
+    }
+
+    private boolean isSynchronizedWrapper(MethodInvocation mi) {
+        // isMethod() cannot be used here because these static methods are generic
+        final IMethodBinding methodBinding = mi != null ? mi.resolveMethodBinding() : null;
+        if (methodBinding == null
+                || !hasType(methodBinding.getDeclaringClass(), "java.util.Collections")
+                || methodBinding.getParameterTypes().length != 1) {
+            return false;
+        }
+        final String methodName = methodBinding.getName();
+        return "synchronizedCollection".equals(methodName)
+                || "synchronizedList".equals(methodName)
+                || "synchronizedMap".equals(methodName)
+                || "synchronizedSet".equals(methodName)
+                || "synchronizedSortedMap".equals(methodName)
+                || "synchronizedSortedSet".equals(methodName);
+    }
+
+    private void replaceSynchronizedType(VariableDeclarationStatement node, ClassInstanceCreation cic,
+            String synchronizedType) {
+        final String unsynchronizedType = getUnsynchronizedType(synchronizedType);
+        final String typeName = this.ctx.getImportsRewriter().addImport(node, unsynchronizedType);
+        if (hasType(node.getType().resolveBinding(), synchronizedType)) {
+            replaceRawType(node.getType(), typeName);
+        }
+        replaceRawType(cic.getType(), typeName);
+    }
+
+    private String getUnsynchronizedType(String synchronizedType) {
+        for (String[] types : SYNCHRONIZED_TO_UNSYNCHRONIZED) {
+            if (types[0].equals(synchronizedType)) {
+                return types[1];
+            }
+        }
+        return null;
+    }
+
+    private void replaceRawType(Type type, String typeName) {
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Refactorings r = this.ctx.getRefactorings();
+        if (type instanceof ParameterizedType) {
+            r.replace(((ParameterizedType) type).getType(), b.type(typeName));
+        } else {
+            r.replace(type, b.type(typeName));
+        }
+    }
+
+    /**
+     * Returns whether the local variable declared by the provided fragment never escapes its declaring method.
+     *
+     * @param vdf the fragment declaring the local variable
+     * @param synchronizedType the synchronized type which will be replaced,
+     *        or null if only the variable initializer will be replaced
+     * @return true if the local variable never escapes its declaring method, false otherwise
+     */
+    private boolean isNotEscaping(VariableDeclarationFragment vdf, final String synchronizedType) {
+        final IVariableBinding varBinding = vdf.resolveBinding();
+        final BodyDeclaration bodyDecl = getAncestor(vdf, BodyDeclaration.class);
+        if (varBinding == null) {
+            return false;
+        }
+        final List<SimpleName> varUses = new ArrayList<SimpleName>();
+        bodyDecl.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                final IBinding binding = node.resolveBinding();
+                if (binding != null && binding.isEqualTo(varBinding)) {
+                    varUses.add(node);
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        for (SimpleName varUse : varUses) {
+            if (varUse != vdf.getName()
+                    && (getAncestor(varUse, BodyDeclaration.class) != bodyDecl
+                        || !isNotEscaping(varUse, synchronizedType))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNotEscaping(Expression varUse, String synchronizedType) {
+        ASTNode parent = varUse.getParent();
+        Expression use = varUse;
+        while (parent instanceof ParenthesizedExpression) {
+            use = (Expression) parent;
+            parent = parent.getParent();
+        }
+        if (parent instanceof MethodInvocation) {
+            final MethodInvocation mi = (MethodInvocation) parent;
+            return mi.getExpression() == use
+                    && isAllowedMethod(mi, synchronizedType)
+                    && isResultNotEscaping(mi, synchronizedType);
+        } else if (parent instanceof ExpressionStatement) {
+            // the result of a method invocation is ignored
+            return true;
+        } else if (parent instanceof EnhancedForStatement) {
+            return ((EnhancedForStatement) parent).getExpression() == use;
+        } else if (parent instanceof InfixExpression) {
+            // string concatenation only calls toString() on the variable
+            final InfixExpression ie = (InfixExpression) parent;
+            return PLUS.equals(ie.getOperator()) && hasType(ie, "java.lang.String");
+        }
+        return false;
+    }
+
+    private boolean isAllowedMethod(MethodInvocation mi, String synchronizedType) {
+        final IMethodBinding methodBinding = mi.resolveMethodBinding();
+        if (methodBinding == null) {
+            return false;
+        }
+        final String methodName = methodBinding.getName();
+        if ("clone".equals(methodName)
+                || "getClass".equals(methodName)
+                || "notify".equals(methodName)
+                || "notifyAll".equals(methodName)
+                || "wait".equals(methodName)) {
+            return false;
+        }
+        if ("java.util.Vector".equals(synchronizedType)) {
+            return isObjectMethod(methodBinding)
+                    || isDeclaredIn(methodBinding, mi.getExpression(),
+                            "java.lang.Iterable", "java.util.Collection", "java.util.List")
+                    || "ensureCapacity".equals(methodName)
+                    || "trimToSize".equals(methodName);
+        } else if ("java.util.Hashtable".equals(synchronizedType)) {
+            return isObjectMethod(methodBinding)
+                    || isDeclaredIn(methodBinding, mi.getExpression(), "java.util.Map");
+        }
+        return true;
+    }
+
+    private boolean isObjectMethod(IMethodBinding methodBinding) {
+        final String methodName = methodBinding.getName();
+        final int nbParams = methodBinding.getParameterTypes().length;
+        return ("equals".equals(methodName) && nbParams == 1)
+                || ("hashCode".equals(methodName) && nbParams == 0)
+                || ("toString".equals(methodName) && nbParams == 0);
+    }
+
+    /** Returns whether the provided method is declared or overrides a method declared in one of the types. */
+    private boolean isDeclaredIn(IMethodBinding methodBinding, Expression receiver, String... qualifiedTypeNames) {
+        final IMethodBinding methodDecl = methodBinding.getMethodDeclaration();
+        for (String qualifiedTypeName : qualifiedTypeNames) {
+            final ITypeBinding type = findImplementedType(receiver.resolveTypeBinding(), qualifiedTypeName);
+            if (type != null) {
+                for (IMethodBinding declaredMethod : type.getTypeDeclaration().getDeclaredMethods()) {
+                    if (haveSameSignature(methodDecl, declaredMethod)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean haveSameSignature(IMethodBinding method1, IMethodBinding method2) {
+        if (!method1.getName().equals(method2.getName())) {
+            return false;
+        }
+        final ITypeBinding[] paramTypes1 = method1.getParameterTypes();
+        final ITypeBinding[] paramTypes2 = method2.getParameterTypes();
+        if (paramTypes1.length != paramTypes2.length) {
+            return false;
+        }
+        for (int i = 0; i < paramTypes1.length; i++) {
+            if (!paramTypes1[i].getErasure().isEqualTo(paramTypes2[i].getErasure())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the result of the provided method invocation does not leak the local variable:
+     * the same instance (like {@link StringBuffer#append(String)}) or a view backed by it must not escape.
+     */
+    private boolean isResultNotEscaping(MethodInvocation mi, String synchronizedType) {
+        final ITypeBinding returnType = mi.resolveMethodBinding().getMethodDeclaration().getReturnType();
+        if (synchronizedType != null && hasType(returnType, synchronizedType)) {
+            return isNotEscaping(mi, synchronizedType);
+        }
+        for (String viewType : VIEW_TYPES) {
+            if (instanceOf(returnType, viewType)) {
+                return isNotEscaping(mi, null);
+            }
+        }
+        return true;
+    }
+}
@@ -28,53 +28,74 @@ package org.autorefactor.refactoring.rules;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.autorefactor.refactoring.ASTBuilder;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Assignment;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
 import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
 import org.eclipse.jdt.core.dom.InfixExpression;
 import org.eclipse.jdt.core.dom.InfixExpression.Operator;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Statement;
 import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 
 /**
  * StringBuilder related refactorings:
  * <ul>
- * <li>StringBuffer to StringBuilder conversions</li>
  * <li>Remove String appends using operator '+' as parameters of
  * StringBuffer/StringBuilder.append()</li>
  * <li>Replace calls to StringBuffer/StringBuilder constructor + calls to
  * append() + calls toString() with straight String concatenation with operator
  * '+'</li>
+ * <li>Give an initial capacity to StringBuffer/StringBuilder instances when the
+ * estimated length of the built string exceeds the default capacity</li>
  * </ul>
+ * StringBuffer to StringBuilder conversions are performed by {@link RemoveUselessSynchronizationRefactoring}.
  */
 public class StringBuilderRefactoring extends AbstractRefactoringRule {
 
-    private int getJavaMinorVersion() {
-        return ctx.getJavaProjectOptions().getJavaSERelease().getMinorVersion();
-    }
+    /** Capacity of the StringBuffer/StringBuilder instances created with the no-arg constructor. */
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * Maximum capacity added to a StringBuffer/StringBuilder creation. The estimated length is an upper bound,
+     * which must not allocate a huge array up front, and the buffer still grows when needed.
+     */
+    private static final int MAX_CAPACITY = 8192;
+    /** Maximum length of the string representation of each primitive type. */
+    private static final Map<String, Integer> PRIMITIVE_MAX_LENGTHS = new HashMap<String, Integer>();
 
-    /** {@inheritDoc} */
-    @Override
-    public boolean visit(ClassInstanceCreation node) {
-        if (getJavaMinorVersion() >= 5
-                && hasType(node, "java.lang.StringBuffer")) {
-            // TODO JNR replace with StringBuilder
-            // check that the current method return type is not StringBuffer
-            // do we need the CFG + live variable analysis first?
-        }
-        return VISIT_SUBTREE;
+    static {
+        PRIMITIVE_MAX_LENGTHS.put("boolean", 5); // "false"
+        PRIMITIVE_MAX_LENGTHS.put("char", 1);
+        PRIMITIVE_MAX_LENGTHS.put("byte", 4); // "-128"
+        PRIMITIVE_MAX_LENGTHS.put("short", 6); // "-32768"
+        PRIMITIVE_MAX_LENGTHS.put("int", 11); // "-2147483648"
+        PRIMITIVE_MAX_LENGTHS.put("long", 20); // "-9223372036854775808"
+        PRIMITIVE_MAX_LENGTHS.put("float", 15); // "-1.17549435E-38"
+        PRIMITIVE_MAX_LENGTHS.put("double", 24); // "-2.2250738585072014E-308"
     }
 
     /** {@inheritDoc} */
@@ -178,6 +199,7 @@ public class StringBuilderRefactoring extends AbstractRefactoringRule {
                 final Expression arg1 = b.copy(args.get(1));
                 this.ctx.getRefactorings().replace(node,
                         createAppendSubstring(b, b.copy(lastExpr), stringVar, arg0, arg1));
+                return DO_NOT_VISIT_SUBTREE;
             }
         } else if (isMethod(node, "java.lang.StringBuilder", "toString")
                 || isMethod(node, "java.lang.StringBuffer", "toString")) {
@@ -195,6 +217,211 @@ public class StringBuilderRefactoring extends AbstractRefactoringRule {
         return VISIT_SUBTREE;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        if (arguments(node).isEmpty()
+                && node.getAnonymousClassDeclaration() == null
+                && hasType(node, "java.lang.StringBuffer", "java.lang.StringBuilder")) {
+            final long capacity = Math.min(estimateCapacity(node), MAX_CAPACITY);
+            if (DEFAULT_CAPACITY < capacity) {
+                this.ctx.getRefactorings().insertAt(this.ctx.getASTBuilder().int0((int) capacity), 0,
+                        ClassInstanceCreation.ARGUMENTS_PROPERTY, node);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Estimates the length of the string built with the provided StringBuffer/StringBuilder creation.
+     * <p>
+     * It adds up the strings appended by the call chain on the created instance,
+     * then the strings appended by the following statements to the local variable it is assigned to,
+     * including the ones appended in loops with a known number of iterations.
+     * Appended expressions of unknown length are ignored.
+     *
+     * @param node the StringBuffer/StringBuilder creation
+     * @return the estimated length of the built string
+     */
+    private long estimateCapacity(ClassInstanceCreation node) {
+        long length = 0;
+        Expression expr = node;
+        while (expr.getLocationInParent() == MethodInvocation.EXPRESSION_PROPERTY) {
+            final MethodInvocation mi = (MethodInvocation) expr.getParent();
+            if (!isAppend(mi)) {
+                // e.g. toString(), this chain is replaced by a string concatenation
+                return 0;
+            }
+            length += estimateLength(arguments(mi).get(0));
+            expr = mi;
+        }
+
+        IBinding builder = null;
+        Statement stmt = null;
+        if (expr.getLocationInParent() == VariableDeclarationFragment.INITIALIZER_PROPERTY
+                && expr.getParent().getLocationInParent() == VariableDeclarationStatement.FRAGMENTS_PROPERTY) {
+            builder = ((VariableDeclarationFragment) expr.getParent()).resolveBinding();
+            stmt = (Statement) expr.getParent().getParent();
+        } else if (expr.getLocationInParent() == Assignment.RIGHT_HAND_SIDE_PROPERTY
+                && expr.getParent().getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY) {
+            final Assignment assignment = (Assignment) expr.getParent();
+            final SimpleName var = as(assignment.getLeftHandSide(), SimpleName.class);
+            if (var != null && Assignment.Operator.ASSIGN.equals(assignment.getOperator())) {
+                builder = var.resolveBinding();
+                stmt = (Statement) assignment.getParent();
+            }
+        }
+        if (builder instanceof IVariableBinding && !((IVariableBinding) builder).isField()) {
+            for (Statement next = getNextSibling(stmt); next != null; next = getNextSibling(next)) {
+                final long appendedLength = estimateAppendedLength(next, builder);
+                if (appendedLength < 0) {
+                    break;
+                }
+                length += appendedLength;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the estimated length of the strings appended to the provided builder variable
+     * by the provided statement.
+     *
+     * @param stmt the statement to analyze
+     * @param builder the StringBuffer/StringBuilder variable
+     * @return the estimated length of the strings appended to the builder,
+     *         or -1 if the statement does something else
+     */
+    private long estimateAppendedLength(Statement stmt, IBinding builder) {
+        if (stmt instanceof ExpressionStatement) {
+            long length = 0;
+            Expression expr = ((ExpressionStatement) stmt).getExpression();
+            while (expr instanceof MethodInvocation && isAppend((MethodInvocation) expr)) {
+                final MethodInvocation mi = (MethodInvocation) expr;
+                length += estimateLength(arguments(mi).get(0));
+                expr = mi.getExpression();
+            }
+            if (expr instanceof SimpleName && builder.equals(((SimpleName) expr).resolveBinding())) {
+                return length;
+            }
+        } else if (stmt instanceof ForStatement) {
+            final ForStatement forStmt = (ForStatement) stmt;
+            final long nbIterations = getNbIterations(forStmt);
+            if (nbIterations >= 0) {
+                long length = 0;
+                for (Statement bodyStmt : asList(forStmt.getBody())) {
+                    final long appendedLength = estimateAppendedLength(bodyStmt, builder);
+                    if (appendedLength < 0) {
+                        return -1;
+                    }
+                    length += appendedLength;
+                }
+                // avoid overflows with nested loops
+                return Math.min(nbIterations * length, Integer.MAX_VALUE + 1L);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of iterations of loops like <code>for (int i = 0; i &lt; 10; i++)</code>.
+     *
+     * @param node the for loop to analyze
+     * @return the number of iterations of the provided loop if it is known, -1 otherwise
+     */
+    private long getNbIterations(ForStatement node) {
+        final List<Expression> initializers = initializers(node);
+        final List<Expression> updaters = updaters(node);
+        final InfixExpression condition = as(node.getExpression(), InfixExpression.class);
+        if (initializers.size() != 1
+                || updaters.size() != 1
+                || !(initializers.get(0) instanceof VariableDeclarationExpression)
+                || condition == null
+                || condition.hasExtendedOperands()) {
+            return -1;
+        }
+        final List<VariableDeclarationFragment> loopVars =
+                fragments((VariableDeclarationExpression) initializers.get(0));
+        if (loopVars.size() != 1 || loopVars.get(0).getInitializer() == null) {
+            return -1;
+        }
+        final IVariableBinding loopVar = loopVars.get(0).resolveBinding();
+        final Object start = loopVars.get(0).getInitializer().resolveConstantExpressionValue();
+        final Object end = condition.getRightOperand().resolveConstantExpressionValue();
+        if (start instanceof Integer
+                && end instanceof Integer
+                && isVariable(condition.getLeftOperand(), loopVar)
+                && isIncrement(updaters.get(0), loopVar)) {
+            final long nbIterations = (long) (Integer) end - (Integer) start;
+            if (Operator.LESS.equals(condition.getOperator())) {
+                return Math.max(nbIterations, 0);
+            } else if (Operator.LESS_EQUALS.equals(condition.getOperator())) {
+                return Math.max(nbIterations + 1, 0);
+            }
+        }
+        return -1;
+    }
+
+    private boolean isIncrement(Expression expr, IVariableBinding var) {
+        if (expr instanceof PostfixExpression) {
+            final PostfixExpression pe = (PostfixExpression) expr;
+            return PostfixExpression.Operator.INCREMENT.equals(pe.getOperator())
+                    && isVariable(pe.getOperand(), var);
+        } else if (expr instanceof PrefixExpression) {
+            final PrefixExpression pe = (PrefixExpression) expr;
+            return PrefixExpression.Operator.INCREMENT.equals(pe.getOperator())
+                    && isVariable(pe.getOperand(), var);
+        }
+        return false;
+    }
+
+    private boolean isVariable(Expression expr, IVariableBinding var) {
+        return expr instanceof SimpleName
+                && var != null
+                && var.equals(((SimpleName) expr).resolveBinding());
+    }
+
+    private boolean isAppend(MethodInvocation mi) {
+        return "append".equals(mi.getName().getIdentifier())
+                && arguments(mi).size() == 1
+                && mi.getExpression() != null
+                && hasType(mi, "java.lang.StringBuffer", "java.lang.StringBuilder");
+    }
+
+    /**
+     * Returns the estimated length of the string representation of the provided expression.
+     *
+     * @param expr the appended expression
+     * @return the length of constants, the maximum length for primitive types,
+     *         or 0 when the length is unknown
+     */
+    private long estimateLength(Expression expr) {
+        final Object value = expr.resolveConstantExpressionValue();
+        if (value != null) {
+            return String.valueOf(value).length();
+        }
+        if (expr instanceof InfixExpression
+                && Operator.PLUS.equals(((InfixExpression) expr).getOperator())
+                && hasType(expr, "java.lang.String")) {
+            final LinkedList<Expression> operands = new LinkedList<Expression>();
+            addAllSubExpressions(expr, operands, null);
+            long length = 0;
+            for (Expression operand : operands) {
+                length += estimateLength(operand);
+            }
+            return length;
+        }
+        final ITypeBinding typeBinding = expr.resolveTypeBinding();
+        if (typeBinding != null && typeBinding.isPrimitive()) {
+            final Integer maxLength = PRIMITIVE_MAX_LENGTHS.get(typeBinding.getName());
+            if (maxLength != null) {
+                return maxLength;
+            }
+        }
+        return 0;
+    }
+
     private MethodInvocation createAppendSubstring(ASTBuilder b, Expression lastExpr,
             Expression stringVar, Expression substringArg0, Expression substringArg1) {
         if (substringArg1 == null) {
@@ -339,7 +566,15 @@ public class StringBuilderRefactoring extends AbstractRefactoringRule {
         return null;
     }
 
-    private void addAllSubExpressions(final Expression arg, final LinkedList<Expression> results,
+    /**
+     * Flattens the provided string concatenation into its operands, in evaluation order.
+     *
+     * @param arg the string concatenation to flatten, or any other expression
+     * @param results where to add the operands
+     * @param hasStringConcat set to true when the provided expression is a string concatenation,
+     *        can be null
+     */
+    static void addAllSubExpressions(final Expression arg, final LinkedList<Expression> results,
             final AtomicBoolean hasStringConcat) {
         if (arg instanceof InfixExpression) {
             final InfixExpression ie = (InfixExpression) arg;
@@ -25,18 +25,33 @@
  */
 package org.autorefactor.refactoring.rules;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.util.IllegalArgumentException;
+import org.eclipse.jdt.core.dom.ASTMatcher;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ArrayAccess;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
 import org.eclipse.jdt.core.dom.InfixExpression;
 import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.PrimitiveType;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.StructuralPropertyDescriptor;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 import static org.eclipse.jdt.core.dom.ASTNode.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
 
 /**
  * Removes:
@@ -45,10 +60,36 @@ import static org.eclipse.jdt.core.dom.ASTNode.*;
  * literal.</li>
  * <li>Calling {@link String#toString()} on a {@link String} instance</li>
  * <li>Remove calls to {@link String#toString()} inside String concatenations</li>
+ * <li>Creating throw-away strings to compare them, by using {@link String#equalsIgnoreCase(String)},
+ * {@link String#startsWith(String)} or {@link String#regionMatches(boolean, int, String, int, int)} instead of
+ * <code>toLowerCase()</code>, <code>toUpperCase()</code> or <code>substring()</code></li>
+ * <li>Splitting a string to only get its first part, by using {@link String#indexOf(int)} instead</li>
  * </ul>
+ * Splitting a string made only of separators throws an {@link ArrayIndexOutOfBoundsException}
+ * when getting its first part, while the refactored code returns an empty string.
+ * Case conversions are only removed when comparing to constants made of ASCII characters
+ * whose case conversions do not depend on the locale, and do not have non ASCII case variants.
  */
 public class StringRefactoring extends AbstractRefactoringRule {
 
+    /**
+     * ASCII letters which can match non ASCII characters once converted to lower case, or in a
+     * case insensitive comparison, like the turkish dotless i or the long s.
+     */
+    private static final String UNSAFE_LOWER_CASE_LETTERS = "IS";
+    /**
+     * ASCII letters which can match non ASCII characters once converted to upper case, or in a
+     * case insensitive comparison, like the Kelvin sign or the "ff" ligature.
+     */
+    private static final String UNSAFE_UPPER_CASE_LETTERS = "FIKS";
+    /**
+     * ASCII letters which can start the upper case conversion of a non ASCII character,
+     * like the "j" with caron.
+     */
+    private static final String UNSAFE_UPPER_CASE_PREFIX_LETTERS = "AFHIJKSTWY";
+    /** Characters which have a special meaning in a regular expression. */
+    private static final String REGEX_META_CHARS = ".$|()[]{}^?*+\\";
+
     /** {@inheritDoc} */
     @Override
     public boolean visit(ClassInstanceCreation node) {
@@ -64,9 +105,103 @@ public class StringRefactoring extends AbstractRefactoringRule {
         return VISIT_SUBTREE;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ArrayAccess node) {
+        final MethodInvocation split = as(node.getArray(), MethodInvocation.class);
+        final Object index = node.getIndex().resolveConstantExpressionValue();
+        if (isMethod(split, "java.lang.String", "split", "java.lang.String")
+                && Integer.valueOf(0).equals(index)
+                && isPassive(split.getExpression())) {
+            final Object separator = arg0(split).resolveConstantExpressionValue();
+            final Statement stmt = getStatementEvaluatingFirst(node);
+            if (separator instanceof String
+                    && ((String) separator).length() == 1
+                    && REGEX_META_CHARS.indexOf(((String) separator).charAt(0)) == -1
+                    && stmt != null) {
+                final ASTBuilder b = this.ctx.getASTBuilder();
+                final Refactorings r = this.ctx.getRefactorings();
+                final Expression str = split.getExpression();
+                final String indexName = this.ctx.getVariableNameGenerator().newLocalVariableName(node, "index");
+                r.insertBefore(b.declareStmt(b.getAST().newPrimitiveType(PrimitiveType.INT), b.simpleName(indexName),
+                        b.invoke(b.copy(str), "indexOf", b.char0(((String) separator).charAt(0)))), stmt);
+                final Expression firstPart = b.conditionalExpr(
+                        b.infixExpr(b.simpleName(indexName), NOT_EQUALS, b.int0(-1)),
+                        b.invoke(b.copy(str), "substring", b.int0(0), b.simpleName(indexName)),
+                        b.copy(str));
+                r.replace(node, needsParentheses(node) ? b.parenthesize(firstPart) : firstPart);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        return VISIT_SUBTREE;
+    }
+
+    /**
+     * Returns the statement in a block which evaluates the provided expression before any other expression
+     * with side effects, so that the expression can be partly computed by a statement inserted before it.
+     *
+     * @param node the expression
+     * @return the statement evaluating the provided expression first, or null if there is none
+     */
+    private Statement getStatementEvaluatingFirst(Expression node) {
+        ASTNode child = node;
+        ASTNode parent = node.getParent();
+        while (parent instanceof ParenthesizedExpression
+                || (parent instanceof InfixExpression && areOperandsBeforePassive((InfixExpression) parent, child))) {
+            child = parent;
+            parent = parent.getParent();
+        }
+        final Statement stmt;
+        if (child.getLocationInParent() == VariableDeclarationFragment.INITIALIZER_PROPERTY
+                && parent.getLocationInParent() == VariableDeclarationStatement.FRAGMENTS_PROPERTY
+                && fragments((VariableDeclarationStatement) parent.getParent()).size() == 1) {
+            stmt = (Statement) parent.getParent();
+        } else if (child.getLocationInParent() == Assignment.RIGHT_HAND_SIDE_PROPERTY
+                && isPassive(((Assignment) parent).getLeftHandSide())
+                && parent.getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY) {
+            stmt = (Statement) parent.getParent();
+        } else if (child.getLocationInParent() == ReturnStatement.EXPRESSION_PROPERTY) {
+            stmt = (Statement) parent;
+        } else {
+            return null;
+        }
+        return stmt.getLocationInParent() == Block.STATEMENTS_PROPERTY ? stmt : null;
+    }
+
+    private boolean areOperandsBeforePassive(InfixExpression ie, ASTNode operand) {
+        if (ie.getOperator() == CONDITIONAL_AND || ie.getOperator() == CONDITIONAL_OR) {
+            return ie.getLeftOperand() == operand;
+        }
+        final List<Expression> operands = new ArrayList<Expression>();
+        operands.add(ie.getLeftOperand());
+        operands.add(ie.getRightOperand());
+        operands.addAll(extendedOperands(ie));
+        for (Expression expr : operands) {
+            if (expr == operand) {
+                return true;
+            } else if (!isPassive(expr)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean needsParentheses(Expression node) {
+        final StructuralPropertyDescriptor locationInParent = node.getLocationInParent();
+        return locationInParent != MethodInvocation.ARGUMENTS_PROPERTY
+                && locationInParent != ClassInstanceCreation.ARGUMENTS_PROPERTY
+                && locationInParent != VariableDeclarationFragment.INITIALIZER_PROPERTY
+                && locationInParent != Assignment.RIGHT_HAND_SIDE_PROPERTY
+                && locationInParent != ReturnStatement.EXPRESSION_PROPERTY
+                && locationInParent != ParenthesizedExpression.EXPRESSION_PROPERTY;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean visit(MethodInvocation node) {
+        if (replaceThrowAwayStringComparison(node)) {
+            return DO_NOT_VISIT_SUBTREE;
+        }
         final Expression expression = node.getExpression();
         final ASTNode parent = node.getParent();
         final ASTBuilder b = this.ctx.getASTBuilder();
@@ -125,6 +260,114 @@ public class StringRefactoring extends AbstractRefactoringRule {
         return VISIT_SUBTREE;
     }
 
+    private boolean replaceThrowAwayStringComparison(MethodInvocation node) {
+        final String comparison = node.getName().getIdentifier();
+        if (!isMethod(node, "java.lang.String", "equals", "java.lang.Object")
+                && !isMethod(node, "java.lang.String", "equalsIgnoreCase", "java.lang.String")
+                && !isMethod(node, "java.lang.String", "startsWith", "java.lang.String")) {
+            return false;
+        }
+        final Expression receiver = node.getExpression();
+        final Expression arg0 = arg0(node);
+        return replaceThrowAwayStringComparison(node, as(receiver, MethodInvocation.class), arg0, comparison)
+                || ("equals".equals(comparison)
+                        && receiver.resolveConstantExpressionValue() instanceof String
+                        && replaceThrowAwayStringComparison(node, as(arg0, MethodInvocation.class), receiver,
+                                comparison));
+    }
+
+    /**
+     * Replaces the provided comparison of a throw-away string with the provided expression.
+     *
+     * @param node the comparison
+     * @param throwAwayString the call creating the throw-away string
+     * @param other the expression compared to the throw-away string
+     * @param comparison the name of the comparison method
+     * @return true if the comparison has been replaced, false otherwise
+     */
+    private boolean replaceThrowAwayStringComparison(MethodInvocation node, MethodInvocation throwAwayString,
+            Expression other, String comparison) {
+        if (throwAwayString == null || throwAwayString.getExpression() == null) {
+            return false;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Expression str = throwAwayString.getExpression();
+        final Object value = other.resolveConstantExpressionValue();
+        final String constant = value instanceof String ? (String) value : null;
+        final boolean isToLowerCase = isCaseConversion(throwAwayString, "toLowerCase");
+        if ((isToLowerCase || isCaseConversion(throwAwayString, "toUpperCase"))
+                && !"equalsIgnoreCase".equals(comparison)
+                && isCaseInsensitiveSafe(constant, isToLowerCase, "startsWith".equals(comparison))) {
+            if ("equals".equals(comparison)) {
+                this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "equalsIgnoreCase", b.copy(other)));
+            } else {
+                this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "regionMatches",
+                        b.boolean0(true), b.int0(0), b.copy(other), b.int0(0), b.int0(constant.length())));
+            }
+            return true;
+        } else if (isMethod(throwAwayString, "java.lang.String", "substring", "int", "int")
+                && !"startsWith".equals(comparison)) {
+            final boolean ignoreCase = "equalsIgnoreCase".equals(comparison);
+            final Expression begin = arguments(throwAwayString).get(0);
+            final Expression end = arguments(throwAwayString).get(1);
+            final Object beginValue = begin.resolveConstantExpressionValue();
+            final Object endValue = end.resolveConstantExpressionValue();
+            if (constant != null && beginValue instanceof Integer && endValue instanceof Integer
+                    && (Integer) endValue - (Integer) beginValue == constant.length()) {
+                if (!ignoreCase && (Integer) beginValue == 0) {
+                    this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "startsWith", b.copy(other)));
+                } else if (ignoreCase) {
+                    this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "regionMatches",
+                            b.boolean0(true), b.copy(begin), b.copy(other), b.int0(0), b.int0(constant.length())));
+                } else {
+                    this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "regionMatches",
+                            b.copy(begin), b.copy(other), b.int0(0), b.int0(constant.length())));
+                }
+                return true;
+            } else if (!ignoreCase
+                    && Integer.valueOf(0).equals(beginValue)
+                    && isPassive(other)
+                    && isLengthOf(end, other)) {
+                this.ctx.getRefactorings().replace(node, b.invoke(b.copy(str), "startsWith", b.copy(other)));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCaseConversion(MethodInvocation mi, String methodName) {
+        return isMethod(mi, "java.lang.String", methodName)
+                || (isMethod(mi, "java.lang.String", methodName, "java.util.Locale") && isPassive(arg0(mi)));
+    }
+
+    /**
+     * Returns whether comparing a string converted to lower or upper case to the provided constant
+     * gives the same result as a case insensitive comparison, whatever the locale.
+     */
+    private boolean isCaseInsensitiveSafe(String constant, boolean isLowerCase, boolean isPrefix) {
+        if (constant == null) {
+            return false;
+        }
+        final String unsafeLetters = isLowerCase ? UNSAFE_LOWER_CASE_LETTERS
+                : isPrefix ? UNSAFE_UPPER_CASE_PREFIX_LETTERS : UNSAFE_UPPER_CASE_LETTERS;
+        for (int i = 0; i < constant.length(); i++) {
+            final char c = constant.charAt(i);
+            if (c >= 128
+                    || unsafeLetters.indexOf(Character.toUpperCase(c)) != -1
+                    || (isLowerCase ? Character.isUpperCase(c) : Character.isLowerCase(c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLengthOf(Expression length, Expression str) {
+        final MethodInvocation mi = as(length, MethodInvocation.class);
+        return isMethod(mi, "java.lang.String", "length")
+                && mi.getExpression() != null
+                && match(new ASTMatcher(), mi.getExpression(), str);
+    }
+
     private boolean isToStringForPrimitive(MethodInvocation node) {
         return "toString".equals(node.getName().getIdentifier()) // fast-path
                 && (isMethod(node, "java.lang.Boolean", "toString", "boolean")
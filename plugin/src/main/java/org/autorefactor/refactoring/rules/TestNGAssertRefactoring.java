@@ -31,6 +31,7 @@ import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Expression;
@@ -49,10 +50,16 @@ import org.eclipse.jdt.core.dom.Statement;
  * This refactoring should be made conditional on TestNG version.
  * </p>
  */
-public class TestNGAssertRefactoring extends AbstractRefactoringRule {
+public class TestNGAssertRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
 
     private static final String OBJECT = "java.lang.Object";
 
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "assert", "fail" };
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean visit(MethodInvocation node) {
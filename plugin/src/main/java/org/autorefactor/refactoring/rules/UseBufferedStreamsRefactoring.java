@@ -0,0 +1,459 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.BreakStatement;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ContinueStatement;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.ThrowStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+import org.eclipse.jdt.core.dom.WhileStatement;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Wraps the file streams read or written one byte or one char at a time in a loop
+ * with a buffered stream, so they do not make one system call per byte or char.
+ * For example <code>InputStream in = new FileInputStream(file)</code> becomes
+ * <code>InputStream in = new BufferedInputStream(new FileInputStream(file))</code>
+ * when the loop calls <code>in.read()</code>.
+ * <p>
+ * The stream must be assigned to a local variable which is only used to call the methods
+ * of {@link java.io.InputStream}, {@link java.io.Reader}, {@link java.io.OutputStream}
+ * or {@link java.io.Writer}, to be compared to null or to be reassigned.
+ * Closing the buffered stream closes the file stream, so the existing try/finally statements
+ * keep closing the file. Written streams must be closed in the method, so the buffer is flushed:
+ * they must be declared by a try-with-resources statement, or closed in a finally block
+ * of a try statement writing them.
+ * An explicit call to <code>flush()</code> is then added at the end of the body of this try statement:
+ * write errors are only reported when the buffer is flushed, and closing the stream could swallow them,
+ * for example when the finally block closes it quietly or with {@link java.io.FilterOutputStream#close()}
+ * before Java 8. Written streams are left alone when this call could be skipped or could find the variable null.
+ * The variable type is changed to the abstract stream type when it was the file stream type.
+ */
+public class UseBufferedStreamsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** File stream type, abstract stream type, buffered stream type, method called for each element. */
+    private static final String[][] FILE_STREAMS = {
+        { "java.io.FileInputStream", "java.io.InputStream", "java.io.BufferedInputStream", "read" },
+        { "java.io.FileReader", "java.io.Reader", "java.io.BufferedReader", "read" },
+        { "java.io.FileOutputStream", "java.io.OutputStream", "java.io.BufferedOutputStream", "write" },
+        { "java.io.FileWriter", "java.io.Writer", "java.io.BufferedWriter", "write" },
+    };
+    /** Methods declared by the abstract stream types, which can be called on the buffered stream. */
+    private static final List<String> STREAM_METHODS = Arrays.asList(
+            "append", "available", "close", "flush", "mark", "markSupported", "read", "ready", "reset", "skip",
+            "write");
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "FileInputStream", "FileReader", "FileOutputStream", "FileWriter" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        final String[] fileStream = getFileStream(node);
+        if (fileStream == null || node.getAnonymousClassDeclaration() != null) {
+            return VISIT_SUBTREE;
+        }
+        final IVariableBinding var = getAssignedLocalVariable(node);
+        final VariableDeclarationFragment varDecl = getDeclaration(node, var);
+        if (varDecl == null) {
+            return VISIT_SUBTREE;
+        }
+        final BodyDeclaration method = getAncestor(node, BodyDeclaration.class);
+        if (getAncestor(varDecl, BodyDeclaration.class) != method) {
+            return VISIT_SUBTREE;
+        }
+        final ITypeBinding varType = var.getType().getErasure();
+        final boolean changeVarType = hasType(varType, fileStream[0]);
+        if (!changeVarType
+                && !hasType(varType, fileStream[1], "java.io.Closeable", "java.lang.AutoCloseable",
+                        "java.lang.Object")) {
+            return VISIT_SUBTREE;
+        }
+        final Type declaredType = getDeclaredType(varDecl);
+        final List<TryStatement> tryStmtsToFlush = new ArrayList<TryStatement>();
+        if (declaredType == null || !isBufferingNeeded(node, var, varDecl, method, fileStream, tryStmtsToFlush)) {
+            return VISIT_SUBTREE;
+        }
+
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        if (changeVarType) {
+            final String streamType = this.ctx.getImportsRewriter().addImport(node, fileStream[1]);
+            this.ctx.getRefactorings().replace(declaredType, b.type(streamType));
+        }
+        final String bufferedStreamType = this.ctx.getImportsRewriter().addImport(node, fileStream[2]);
+        this.ctx.getRefactorings().replace(node, b.new0(bufferedStreamType, b.copy(node)));
+        for (TryStatement tryStmt : tryStmtsToFlush) {
+            this.ctx.getRefactorings().insertLast(b.toStmt(b.invoke(var.getName(), "flush")),
+                    Block.STATEMENTS_PROPERTY, tryStmt.getBody());
+        }
+        return DO_NOT_VISIT_SUBTREE;
+    }
+
+    private String[] getFileStream(ClassInstanceCreation node) {
+        for (String[] fileStream : FILE_STREAMS) {
+            if (hasType(node, fileStream[0])) {
+                return fileStream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the local variable initialized or assigned with the provided stream creation, null otherwise.
+     */
+    private IVariableBinding getAssignedLocalVariable(ClassInstanceCreation node) {
+        IBinding binding = null;
+        if (node.getLocationInParent() == VariableDeclarationFragment.INITIALIZER_PROPERTY) {
+            binding = ((VariableDeclarationFragment) node.getParent()).resolveBinding();
+        } else if (node.getLocationInParent() == Assignment.RIGHT_HAND_SIDE_PROPERTY
+                && node.getParent().getLocationInParent() == ExpressionStatement.EXPRESSION_PROPERTY) {
+            final Assignment assignment = (Assignment) node.getParent();
+            if (Assignment.Operator.ASSIGN.equals(assignment.getOperator())
+                    && assignment.getLeftHandSide() instanceof SimpleName) {
+                binding = ((SimpleName) assignment.getLeftHandSide()).resolveBinding();
+            }
+        }
+        if (binding instanceof IVariableBinding && !((IVariableBinding) binding).isField()) {
+            return (IVariableBinding) binding;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the declaration of the provided local variable, or null if it is a parameter
+     * or a variable declared in a catch clause or an enhanced for loop.
+     */
+    private VariableDeclarationFragment getDeclaration(ASTNode node, IVariableBinding var) {
+        if (var == null) {
+            return null;
+        }
+        final ASTNode varDecl = ((CompilationUnit) node.getRoot()).findDeclaringNode(var);
+        if (varDecl instanceof VariableDeclarationFragment) {
+            return (VariableDeclarationFragment) varDecl;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the type of the provided variable declaration,
+     * or null if it also declares other variables.
+     */
+    private Type getDeclaredType(VariableDeclarationFragment varDecl) {
+        final ASTNode parent = varDecl.getParent();
+        if (parent instanceof VariableDeclarationStatement) {
+            final VariableDeclarationStatement vds = (VariableDeclarationStatement) parent;
+            return fragments(vds).size() == 1 ? vds.getType() : null;
+        } else if (parent instanceof VariableDeclarationExpression) {
+            final VariableDeclarationExpression vde = (VariableDeclarationExpression) parent;
+            return fragments(vde).size() == 1 ? vde.getType() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the provided variable is only used as a stream,
+     * and read or written one element at a time in a loop which does not create the stream.
+     * Written streams must also be closed on all paths after being written,
+     * the try statements whose body must end by flushing them are then added to the provided list.
+     */
+    private boolean isBufferingNeeded(final ClassInstanceCreation node, final IVariableBinding var,
+            VariableDeclarationFragment varDecl, BodyDeclaration method, final String[] fileStream,
+            List<TryStatement> tryStmtsToFlush) {
+        final List<SimpleName> uses = new ArrayList<SimpleName>();
+        method.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName sn) {
+                if (sn.getLocationInParent() != VariableDeclarationFragment.NAME_PROPERTY
+                        && var.equals(sn.resolveBinding())) {
+                    uses.add(sn);
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+
+        final List<MethodInvocation> elementAccesses = new ArrayList<MethodInvocation>();
+        final List<TryStatement> closingTryStmts = new ArrayList<TryStatement>();
+        boolean isAssignedOtherValues = false;
+        for (SimpleName use : uses) {
+            if (use.getLocationInParent() == MethodInvocation.EXPRESSION_PROPERTY) {
+                final MethodInvocation mi = (MethodInvocation) use.getParent();
+                final String methodName = mi.getName().getIdentifier();
+                if (!STREAM_METHODS.contains(methodName)) {
+                    return false;
+                }
+                if (isElementAccess(mi, fileStream[3]) && isInLoopNotCreating(mi, node, method)) {
+                    elementAccesses.add(mi);
+                }
+                if ("close".equals(methodName)) {
+                    final TryStatement tryStmt = getTryStatementWithFinally(mi, method);
+                    if (tryStmt != null) {
+                        closingTryStmts.add(tryStmt);
+                    }
+                }
+            } else if (use.getLocationInParent() == Assignment.LEFT_HAND_SIDE_PROPERTY) {
+                isAssignedOtherValues |= ((Assignment) use.getParent()).getRightHandSide() != node;
+            } else if (!isComparedToNull(use)) {
+                return false;
+            }
+        }
+        if (elementAccesses.isEmpty()) {
+            return false;
+        } else if ("read".equals(fileStream[3])) {
+            return true;
+        }
+
+        // written data must be flushed by closing the buffered stream, and explicitly flushed before
+        final List<TryStatement> writingTryStmts;
+        if (varDecl.getParent().getLocationInParent() == TryStatement.RESOURCES_PROPERTY) {
+            writingTryStmts = Collections.singletonList((TryStatement) varDecl.getParent().getParent());
+        } else {
+            writingTryStmts = getClosingTryStatements(elementAccesses, closingTryStmts);
+        }
+        if (writingTryStmts == null || isAssignedOtherValues) {
+            return false;
+        }
+        for (TryStatement tryStmt : writingTryStmts) {
+            if (!isCreatedBefore(node, tryStmt) || !isEndAlwaysReached(tryStmt.getBody())) {
+                return false;
+            }
+        }
+        tryStmtsToFlush.addAll(writingTryStmts);
+        return true;
+    }
+
+    /**
+     * Returns the try statement whose finally block contains the provided node, or null if there is none.
+     */
+    private TryStatement getTryStatementWithFinally(ASTNode node, BodyDeclaration method) {
+        for (ASTNode n = node; n != null && n != method; n = n.getParent()) {
+            if (n.getLocationInParent() == TryStatement.FINALLY_PROPERTY) {
+                return (TryStatement) n.getParent();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the try statements from the provided ones whose body contains the provided element accesses,
+     * or null if some element accesses are not in the body of any of them,
+     * i.e. the stream is not closed after them whatever happens.
+     */
+    private List<TryStatement> getClosingTryStatements(List<MethodInvocation> elementAccesses,
+            List<TryStatement> closingTryStmts) {
+        final List<TryStatement> results = new ArrayList<TryStatement>();
+        for (MethodInvocation elementAccess : elementAccesses) {
+            TryStatement closingTryStmt = null;
+            for (TryStatement tryStmt : closingTryStmts) {
+                if (isAncestor(tryStmt.getBody(), elementAccess)) {
+                    closingTryStmt = tryStmt;
+                    break;
+                }
+            }
+            if (closingTryStmt == null) {
+                return null;
+            }
+            if (!results.contains(closingTryStmt)) {
+                results.add(closingTryStmt);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns whether the provided stream creation is always evaluated before reaching the end
+     * of the body of the provided try statement.
+     */
+    private boolean isCreatedBefore(ClassInstanceCreation streamCreation, TryStatement tryStmt) {
+        final Statement stmt = getAncestor(streamCreation, Statement.class);
+        if (stmt == tryStmt || stmt.getParent() == tryStmt.getBody()) {
+            return true;
+        }
+        if (stmt.getParent() instanceof Block && stmt.getParent() == tryStmt.getParent()) {
+            final List<Statement> stmts = statements((Block) stmt.getParent());
+            return stmts.indexOf(stmt) < stmts.indexOf(tryStmt);
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the end of the provided block is reached after running all its statements,
+     * unless an exception is thrown by an invoked method:
+     * the block has no return, throw, break or continue statements leaving it, and no infinite loops.
+     */
+    private boolean isEndAlwaysReached(final Block block) {
+        final boolean[] result = { true };
+        block.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(ReturnStatement node) {
+                result[0] = false;
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(ThrowStatement node) {
+                result[0] = false;
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(BreakStatement node) {
+                result[0] &= node.getLabel() == null && isInBlock(node, block, true);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(ContinueStatement node) {
+                result[0] &= node.getLabel() == null && isInBlock(node, block, false);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(DoStatement node) {
+                result[0] &= !isTrue(node.getExpression());
+                return VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(ForStatement node) {
+                result[0] &= node.getExpression() != null && !isTrue(node.getExpression());
+                return VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(WhileStatement node) {
+                result[0] &= !isTrue(node.getExpression());
+                return VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Returns whether the statement targeted by the provided unlabeled break or continue statement
+     * is inside the provided block.
+     */
+    private boolean isInBlock(Statement jumpStmt, Block block, boolean isBreak) {
+        for (ASTNode n = jumpStmt.getParent(); n != block; n = n.getParent()) {
+            if (isBreak ? isBreakable(n) : isLoop(n)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTrue(Expression expr) {
+        return Boolean.TRUE.equals(expr.resolveConstantExpressionValue());
+    }
+
+    private boolean isElementAccess(MethodInvocation mi, String elementMethodName) {
+        final List<Expression> args = arguments(mi);
+        if ("read".equals(elementMethodName)) {
+            return "read".equals(mi.getName().getIdentifier()) && args.isEmpty();
+        }
+        return "write".equals(mi.getName().getIdentifier())
+                && args.size() == 1
+                && hasType(args.get(0), "int", "char", "short", "byte");
+    }
+
+    /**
+     * Returns whether the provided node is executed in a loop of the provided method,
+     * which does not also create the stream on each iteration.
+     */
+    private boolean isInLoopNotCreating(ASTNode node, ClassInstanceCreation streamCreation, BodyDeclaration method) {
+        for (ASTNode n = node.getParent(); n != null && n != method; n = n.getParent()) {
+            if (isLoop(n) && !isAncestor(n, streamCreation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAncestor(ASTNode ancestor, ASTNode node) {
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isComparedToNull(SimpleName use) {
+        if (use.getParent() instanceof InfixExpression) {
+            final InfixExpression ie = (InfixExpression) use.getParent();
+            return (EQUALS.equals(ie.getOperator()) || NOT_EQUALS.equals(ie.getOperator()))
+                    && !ie.hasExtendedOperands()
+                    && (isNullLiteral(ie.getLeftOperand()) || isNullLiteral(ie.getRightOperand()));
+        }
+        return false;
+    }
+}
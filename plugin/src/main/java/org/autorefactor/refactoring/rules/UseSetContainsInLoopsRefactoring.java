@@ -0,0 +1,480 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.WhileStatement;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Replaces the membership checks on a list inside a loop, like <code>allowed.contains(x)</code>
+ * or <code>allowed.indexOf(x) != -1</code>, with lookups in a {@link java.util.HashSet}
+ * built once before the loop, instead of scanning the list on every iteration.
+ * <p>
+ * The list must be loop-invariant: either a local variable or a parameter which is never reassigned,
+ * never escapes from the method and is only read inside the loop,
+ * or a call to {@link Arrays#asList(Object...)} with constant arguments.
+ * Other references to a parameter or to a local variable not initialized with a new list may exist,
+ * so the loop must then not call any method which could modify the list through them.
+ * The element type and the looked up type must declare <code>equals()</code>
+ * and <code>hashCode()</code> in the same class, otherwise a hash based lookup
+ * could give a different answer than {@link List#contains(Object)}.
+ */
+public class UseSetContainsInLoopsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** List methods which can be called inside the loop without modifying the list. */
+    private static final List<String> READ_ONLY_LIST_METHODS = Arrays.asList(
+            "contains", "containsAll", "get", "indexOf", "isEmpty", "lastIndexOf", "size");
+    /** List methods returning objects which can modify the list, even after the call. */
+    private static final List<String> ALIASING_LIST_METHODS = Arrays.asList("iterator", "listIterator", "subList");
+    /** Immutable types whose methods cannot modify a list. */
+    private static final List<String> IMMUTABLE_TYPES = Arrays.asList(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Character", "java.lang.Byte", "java.lang.Short",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.lang.Math");
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "contains", "indexOf" };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(DoStatement node) {
+        return replaceMembershipChecks(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(EnhancedForStatement node) {
+        return replaceMembershipChecks(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(ForStatement node) {
+        return replaceMembershipChecks(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean visit(WhileStatement node) {
+        return replaceMembershipChecks(node);
+    }
+
+    private boolean replaceMembershipChecks(Statement loop) {
+        if (!(loop.getParent() instanceof Block)) {
+            return VISIT_SUBTREE;
+        }
+        boolean result = VISIT_SUBTREE;
+        for (Entry<Object, List<MethodInvocation>> entry : getMembershipChecks(loop).entrySet()) {
+            final List<MethodInvocation> checks = entry.getValue();
+            final Expression list = checks.get(0).getExpression();
+            final ITypeBinding elementType = getElementType(list);
+            if (elementType != null
+                    && areHashable(elementType, checks)
+                    && (entry.getKey() instanceof IVariableBinding
+                            ? isLoopInvariant((IVariableBinding) entry.getKey(), loop)
+                            : areConstants(arguments((MethodInvocation) list)))
+                    && replaceWithSet(loop, list, elementType, checks)) {
+                result = DO_NOT_VISIT_SUBTREE;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the membership checks done inside the provided loop,
+     * grouped by the variable holding the list, or by <code>Arrays.asList()</code> call.
+     */
+    private Map<Object, List<MethodInvocation>> getMembershipChecks(Statement loop) {
+        final Map<Object, List<MethodInvocation>> results = new LinkedHashMap<Object, List<MethodInvocation>>();
+        loop.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                // code from local classes does not always run inside the loop
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(MethodInvocation node) {
+                if (isContains(node) || getIndexOfCheck(node) != null) {
+                    final Expression list = node.getExpression();
+                    final Object key;
+                    if (list instanceof SimpleName) {
+                        key = ((SimpleName) list).resolveBinding();
+                    } else if (isArraysAsList(list)) {
+                        key = list;
+                    } else {
+                        key = null;
+                    }
+                    if (key instanceof IVariableBinding || key instanceof MethodInvocation) {
+                        List<MethodInvocation> checks = results.get(key);
+                        if (checks == null) {
+                            checks = new ArrayList<MethodInvocation>();
+                            results.put(key, checks);
+                        }
+                        checks.add(node);
+                    }
+                }
+                return VISIT_SUBTREE;
+            }
+        });
+        return results;
+    }
+
+    private boolean isArraysAsList(Expression expr) {
+        final MethodInvocation mi = as(expr, MethodInvocation.class);
+        final IMethodBinding methodBinding = mi != null ? mi.resolveMethodBinding() : null;
+        return methodBinding != null
+                && "asList".equals(methodBinding.getName())
+                && "java.util.Arrays".equals(methodBinding.getDeclaringClass().getErasure().getQualifiedName());
+    }
+
+    private boolean isContains(MethodInvocation node) {
+        return isMethod(node, "java.util.List", "contains", "java.lang.Object");
+    }
+
+    /**
+     * Returns the infix expression comparing the result of the provided <code>indexOf()</code> call
+     * to check whether the element is present, or null if there is none.
+     */
+    private InfixExpression getIndexOfCheck(MethodInvocation node) {
+        if (!isMethod(node, "java.util.List", "indexOf", "java.lang.Object")
+                || node.getLocationInParent() != InfixExpression.LEFT_OPERAND_PROPERTY) {
+            return null;
+        }
+        final InfixExpression ie = (InfixExpression) node.getParent();
+        final Object value = ie.getRightOperand().resolveConstantExpressionValue();
+        if (!ie.hasExtendedOperands() && value instanceof Integer) {
+            final int intValue = (Integer) value;
+            final InfixExpression.Operator operator = ie.getOperator();
+            if ((intValue == 0 && (GREATER_EQUALS.equals(operator) || LESS.equals(operator)))
+                    || (intValue == -1 && (NOT_EQUALS.equals(operator) || EQUALS.equals(operator)))) {
+                return ie;
+            }
+        }
+        return null;
+    }
+
+    private ITypeBinding getElementType(Expression list) {
+        final ITypeBinding listType = findImplementedType(list.resolveTypeBinding(), "java.util.List");
+        if (listType != null && listType.getTypeArguments().length == 1) {
+            final ITypeBinding elementType = listType.getTypeArguments()[0];
+            if (!elementType.isCapture() && !elementType.isWildcardType()) {
+                return elementType;
+            }
+        }
+        return null;
+    }
+
+    private boolean areHashable(ITypeBinding elementType, List<MethodInvocation> checks) {
+        if (!hasConsistentEqualsAndHashCode(elementType)) {
+            return false;
+        }
+        for (MethodInvocation check : checks) {
+            final ITypeBinding argType = arguments(check).get(0).resolveTypeBinding();
+            if (!isPrimitive(argType) && !hasConsistentEqualsAndHashCode(argType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the provided class declares <code>equals()</code> and <code>hashCode()</code>
+     * in the same class of its hierarchy, possibly {@link Object}.
+     */
+    private boolean hasConsistentEqualsAndHashCode(ITypeBinding typeBinding) {
+        if (typeBinding == null || !typeBinding.isClass() && !typeBinding.isEnum()) {
+            return false;
+        }
+        ITypeBinding equalsDeclaringClass = null;
+        ITypeBinding hashCodeDeclaringClass = null;
+        for (ITypeBinding t = typeBinding.getErasure(); t != null; t = t.getSuperclass()) {
+            for (IMethodBinding method : t.getDeclaredMethods()) {
+                if (Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                final ITypeBinding[] paramTypes = method.getParameterTypes();
+                if (equalsDeclaringClass == null && "equals".equals(method.getName())
+                        && paramTypes.length == 1 && hasType(paramTypes[0], "java.lang.Object")) {
+                    equalsDeclaringClass = t;
+                } else if (hashCodeDeclaringClass == null && "hashCode".equals(method.getName())
+                        && paramTypes.length == 0) {
+                    hashCodeDeclaringClass = t;
+                }
+            }
+            if (equalsDeclaringClass != null || hashCodeDeclaringClass != null) {
+                return equalsDeclaringClass != null && equalsDeclaringClass.isEqualTo(hashCodeDeclaringClass);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided variable is declared outside of the provided loop,
+     * cannot be modified while the loop runs, and is only read inside the loop.
+     * When other references to the list may exist, the loop must not call any method which could modify it.
+     */
+    private boolean isLoopInvariant(final IVariableBinding varBinding, final Statement loop) {
+        if (varBinding.isField()) {
+            return false;
+        }
+        final ASTNode declaration = ((CompilationUnit) loop.getRoot()).findDeclaringNode(varBinding);
+        if (!(declaration instanceof VariableDeclarationFragment || declaration instanceof SingleVariableDeclaration)
+                || isAncestor(loop, declaration)) {
+            return false;
+        }
+        final BodyDeclaration member = getAncestor(loop, BodyDeclaration.class);
+        final boolean[] result = { true };
+        member.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                if (node.getParent() != declaration && varBinding.equals(node.resolveBinding())
+                        && !isReadOnlyUse(node, isAncestor(loop, node))) {
+                    result[0] = false;
+                }
+                return result[0];
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                result[0] &= !isUsedIn(node, varBinding);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                result[0] &= !isUsedIn(node, varBinding);
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        });
+        return result[0]
+                && (isNewObject(declaration) || !mayModifyOtherReferences(loop, varBinding));
+    }
+
+    /**
+     * Returns whether the provided variable declaration is initialized with a new object,
+     * so no other reference to this object exists before it escapes.
+     */
+    private boolean isNewObject(ASTNode declaration) {
+        if (declaration instanceof VariableDeclarationFragment) {
+            final ClassInstanceCreation cic =
+                    as(((VariableDeclarationFragment) declaration).getInitializer(), ClassInstanceCreation.class);
+            return cic != null && cic.getAnonymousClassDeclaration() == null;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided loop calls methods which could modify the list
+     * held by the provided variable through another reference.
+     */
+    private boolean mayModifyOtherReferences(Statement loop, final IVariableBinding varBinding) {
+        final boolean[] result = { false };
+        loop.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(MethodInvocation node) {
+                if (!isReference(node.getExpression(), varBinding)
+                        && !isDeclaredInImmutableType(node.resolveMethodBinding())
+                        && !isNewLocalObject(node.getExpression())) {
+                    result[0] = true;
+                }
+                return !result[0];
+            }
+
+            @Override
+            public boolean visit(ClassInstanceCreation node) {
+                final IMethodBinding constructor = node.resolveConstructorBinding();
+                if (constructor == null
+                        || node.getAnonymousClassDeclaration() != null
+                        || !constructor.getDeclaringClass().getErasure().getQualifiedName().startsWith("java.")) {
+                    result[0] = true;
+                }
+                return !result[0];
+            }
+
+            @Override
+            public boolean visit(SuperMethodInvocation node) {
+                result[0] = true;
+                return DO_NOT_VISIT_SUBTREE;
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isReference(Expression expr, IVariableBinding varBinding) {
+        return expr instanceof SimpleName && varBinding.equals(((SimpleName) expr).resolveBinding());
+    }
+
+    private boolean isDeclaredInImmutableType(IMethodBinding methodBinding) {
+        return methodBinding != null
+                && IMMUTABLE_TYPES.contains(methodBinding.getDeclaringClass().getErasure().getQualifiedName());
+    }
+
+    /**
+     * Returns whether the provided expression is a final local variable initialized with a new JDK object,
+     * which therefore cannot be the list.
+     */
+    private boolean isNewLocalObject(Expression expr) {
+        final SimpleName name = as(expr, SimpleName.class);
+        final IBinding binding = name != null ? name.resolveBinding() : null;
+        if (!(binding instanceof IVariableBinding)
+                || ((IVariableBinding) binding).isField()
+                || !Modifier.isFinal(binding.getModifiers())) {
+            return false;
+        }
+        final ASTNode declaration = ((CompilationUnit) expr.getRoot()).findDeclaringNode(binding);
+        if (isNewObject(declaration)) {
+            final ITypeBinding typeBinding =
+                    ((VariableDeclarationFragment) declaration).getInitializer().resolveTypeBinding();
+            return typeBinding != null && typeBinding.getErasure().getQualifiedName().startsWith("java.");
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the provided variable reference cannot let the list escape.
+     * Inside the loop, the list must also not be modified.
+     */
+    private boolean isReadOnlyUse(SimpleName node, boolean isInLoop) {
+        if (node.getLocationInParent() == EnhancedForStatement.EXPRESSION_PROPERTY) {
+            return true;
+        } else if (node.getLocationInParent() == MethodInvocation.EXPRESSION_PROPERTY) {
+            final String methodName = ((MethodInvocation) node.getParent()).getName().getIdentifier();
+            return !ALIASING_LIST_METHODS.contains(methodName)
+                    && (!isInLoop || READ_ONLY_LIST_METHODS.contains(methodName));
+        }
+        return false;
+    }
+
+    private boolean isUsedIn(ASTNode node, final IVariableBinding varBinding) {
+        final boolean[] result = { false };
+        node.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                result[0] |= varBinding.equals(node.resolveBinding());
+                return !result[0];
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isAncestor(ASTNode ancestor, ASTNode node) {
+        for (ASTNode n = node; n != null; n = n.getParent()) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean areConstants(List<Expression> args) {
+        for (Expression arg : args) {
+            if (arg.resolveConstantExpressionValue() == null) {
+                return false;
+            }
+        }
+        return !args.isEmpty();
+    }
+
+    private boolean replaceWithSet(Statement loop, Expression list, ITypeBinding elementType,
+            List<MethodInvocation> checks) {
+        final Type setElementType = this.ctx.getImportsRewriter().newType(loop, elementType);
+        if (setElementType == null) {
+            return false;
+        }
+        final ASTBuilder b = this.ctx.getASTBuilder();
+        final Refactorings r = this.ctx.getRefactorings();
+        final String setName = this.ctx.getVariableNameGenerator().newLocalVariableName(loop,
+                list instanceof SimpleName ? ((SimpleName) list).getIdentifier() + "Set" : "valueSet");
+
+        final ParameterizedType setType = b.getAST().newParameterizedType(
+                b.type(this.ctx.getImportsRewriter().addImport(loop, "java.util.Set")));
+        typeArguments(setType).add(setElementType);
+        final ParameterizedType hashSetType = b.getAST().newParameterizedType(
+                b.type(this.ctx.getImportsRewriter().addImport(loop, "java.util.HashSet")));
+        typeArguments(hashSetType).add(b.copySubtree(setElementType));
+        r.insertBefore(b.declareStmt(setType, b.simpleName(setName), b.new0(hashSetType, b.copy(list))), loop);
+
+        for (MethodInvocation check : checks) {
+            final InfixExpression indexOfCheck = getIndexOfCheck(check);
+            if (indexOfCheck == null) {
+                r.replace(check.getExpression(), b.simpleName(setName));
+            } else {
+                final MethodInvocation contains = b.invoke(b.simpleName(setName), "contains",
+                        b.copy(arguments(check).get(0)));
+                final InfixExpression.Operator operator = indexOfCheck.getOperator();
+                r.replace(indexOfCheck,
+                        LESS.equals(operator) || EQUALS.equals(operator) ? b.not(contains) : contains);
+            }
+        }
+        return true;
+    }
+}
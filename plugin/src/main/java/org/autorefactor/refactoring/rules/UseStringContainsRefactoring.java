@@ -27,6 +27,7 @@ package org.autorefactor.refactoring.rules;
 
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.InfixExpression;
@@ -40,7 +41,13 @@ import static org.autorefactor.refactoring.ASTHelper.*;
  * {@link String#lastIndexOf(String)} with {@link String#contains(CharSequence)}
  * where appropriate.
  */
-public class UseStringContainsRefactoring extends AbstractRefactoringRule {
+public class UseStringContainsRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "indexOf", "IndexOf" };
+    }
 
     @Override
     public boolean visit(MethodInvocation node) {
@@ -30,6 +30,7 @@ import java.util.List;
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.autorefactor.util.IllegalArgumentException;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.MethodInvocation;
@@ -40,7 +41,13 @@ import static org.eclipse.jdt.core.dom.MethodInvocation.*;
 /**
  * Replaces Vector pre Collections API with equivalent Collections API.
  */
-public class VectorOldToNewAPIRefactoring extends AbstractRefactoringRule {
+public class VectorOldToNewAPIRefactoring extends AbstractRefactoringRule implements TriggerTokensRefactoringRule {
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getTriggerTokens() {
+        return new String[] { "elementAt", "Element", "copyInto" };
+    }
 
     /** {@inheritDoc} */
     @Override
@@ -26,36 +26,42 @@
 package org.autorefactor.ui;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.preferences.Preferences;
 import org.autorefactor.refactoring.JavaProjectOptions;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TimeBudget;
+import org.autorefactor.refactoring.TriggerTokensRefactoringRule;
 import org.autorefactor.refactoring.rules.AggregateASTVisitor;
-import org.autorefactor.refactoring.rules.RefactoringContext;
 import org.autorefactor.util.IllegalStateException;
 import org.autorefactor.util.UnhandledException;
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
 import org.eclipse.core.filebuffers.ITextFileBufferManager;
 import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.ICompilationUnit;
-import org.eclipse.jdt.core.dom.AST;
-import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
-import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jface.text.IDocument;
-
-import static org.autorefactor.refactoring.ASTHelper.*;
+import org.eclipse.text.edits.TextEdit;
 
 /**
  * Eclipse job that applies the provided refactoring rules in background.
@@ -67,6 +73,16 @@ public class ApplyRefactoringsJob extends Job {
 
     private final Queue<RefactoringUnit> refactoringUnits;
     private final List<RefactoringRule> refactoringRulesToApply;
+    private final FixpointCache fixpointCache;
+    private final ConflictingRules conflictingRules;
+    private final MemoryGovernor memoryGovernor;
+    private final int nbCores = Runtime.getRuntime().availableProcessors();
+    /** Runs the analysis of large files in parallel, shared by all the workers, null when disabled. */
+    private final ExecutorService executor;
+    /** Memory footprint reserved with the {@link MemoryGovernor} for the compilation unit not parsed yet. */
+    private long footprintReserved;
+    /** Descriptions of the time budgets which ran out during this run. */
+    private final List<String> overBudgetEvents = new ArrayList<String>();
 
     /**
      * Builds an instance of this class.
@@ -76,10 +92,32 @@ public class ApplyRefactoringsJob extends Job {
      */
     public ApplyRefactoringsJob(
             Queue<RefactoringUnit> refactoringUnits, List<RefactoringRule> refactoringRulesToApply) {
+        this(refactoringUnits, refactoringRulesToApply, null, new ConflictingRules(), null, null);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param refactoringUnits the units to automatically refactor
+     * @param refactoringRulesToApply the refactorings to apply
+     * @param fixpointCache the cache where to record the files at fixpoint, can be null
+     * @param conflictingRules the refactoring rules which must not be applied together, shared by all the workers
+     * @param memoryGovernor limits the compilation units refactored at the same time by all the workers,
+     *        can be null
+     * @param executor runs the analysis of large files in parallel, shared by all the workers,
+     *        null to analyze files in the worker thread
+     */
+    ApplyRefactoringsJob(Queue<RefactoringUnit> refactoringUnits, List<RefactoringRule> refactoringRulesToApply,
+            FixpointCache fixpointCache, ConflictingRules conflictingRules, MemoryGovernor memoryGovernor,
+            ExecutorService executor) {
         super("Auto Refactor");
         setPriority(Job.LONG);
         this.refactoringUnits = refactoringUnits;
         this.refactoringRulesToApply = refactoringRulesToApply;
+        this.fixpointCache = fixpointCache;
+        this.conflictingRules = conflictingRules;
+        this.memoryGovernor = memoryGovernor;
+        this.executor = executor;
     }
 
     /** {@inheritDoc} */
@@ -87,7 +125,7 @@ public class ApplyRefactoringsJob extends Job {
     protected IStatus run(IProgressMonitor monitor) {
         AutoRefactorPlugin.register(this);
         try {
-            return run0(monitor);
+            return runInWorkspace(monitor);
         } catch (Exception e) {
             final String msg = "Error while applying refactorings.\n\n"
                     + "Please look at the Eclipse workspace logs and "
@@ -99,6 +137,30 @@ public class ApplyRefactoringsJob extends Job {
         }
     }
 
+    /**
+     * Runs as a workspace operation, so that the resource change notifications fired by saving each
+     * compilation unit are batched.
+     */
+    private IStatus runInWorkspace(IProgressMonitor monitor) throws Exception {
+        final IStatus[] status = new IStatus[1];
+        final Exception[] exception = new Exception[1];
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            /** {@inheritDoc} */
+            @Override
+            public void run(IProgressMonitor monitor) {
+                try {
+                    status[0] = run0(monitor);
+                } catch (Exception e) {
+                    exception[0] = e;
+                }
+            }
+        }, null, IWorkspace.AVOID_UPDATE, monitor);
+        if (exception[0] != null) {
+            throw exception[0];
+        }
+        return status[0];
+    }
+
     private IStatus run0(IProgressMonitor monitor) throws Exception {
         if (refactoringUnits.isEmpty()) {
             // No java project exists.
@@ -119,8 +181,7 @@ public class ApplyRefactoringsJob extends Job {
                 try {
                     monitor.subTask("Applying refactorings to " + getClassName(compilationUnit));
 
-                    final AggregateASTVisitor refactoring = new AggregateASTVisitor(refactoringRulesToApply);
-                    applyRefactoring(compilationUnit, refactoring, options);
+                    applyRefactoring(compilationUnit, options, monitor);
                 } catch (Exception e) {
                     final String msg = "Exception when applying refactorings to file \""
                             + compilationUnit.getPath() + "\": " + e.getMessage();
@@ -132,19 +193,34 @@ public class ApplyRefactoringsJob extends Job {
                 }
             }
         } finally {
+            logOverBudgetEvents();
+            if (fixpointCache != null) {
+                fixpointCache.save();
+            }
             monitor.done();
         }
         return Status.OK_STATUS;
     }
 
+    private void logOverBudgetEvents() {
+        if (!overBudgetEvents.isEmpty()) {
+            final StringBuilder sb = new StringBuilder("Some time budgets ran out while applying refactorings:");
+            for (String event : overBudgetEvents) {
+                sb.append("\n- ").append(event);
+            }
+            AutoRefactorPlugin.logInfo(sb.toString());
+            overBudgetEvents.clear();
+        }
+    }
+
     private String getClassName(final ICompilationUnit compilationUnit) {
         final String elName = compilationUnit.getElementName();
         final String simpleName = elName.substring(0, elName.lastIndexOf('.'));
         return compilationUnit.getParent().getElementName() + "." + simpleName;
     }
 
-    private void applyRefactoring(ICompilationUnit compilationUnit, AggregateASTVisitor refactoringToApply,
-            JavaProjectOptions options) throws Exception {
+    private void applyRefactoring(ICompilationUnit compilationUnit, JavaProjectOptions options,
+            IProgressMonitor monitor) throws Exception {
         final ITextFileBufferManager bufferManager = FileBuffers.getTextFileBufferManager();
         final IPath path = compilationUnit.getPath();
         final LocationKind locationKind = LocationKind.NORMALIZE;
@@ -164,12 +240,125 @@ public class ApplyRefactoringsJob extends Job {
                 return;
             }
             final IDocument document = textFileBuffer.getDocument();
-            applyRefactoring(document, compilationUnit, refactoringToApply, options);
+            if (applyTriggeredRules(document, compilationUnit, options, monitor) && fixpointCache != null) {
+                fixpointCache.recordFixpoint(path.toString(), document.get(), options);
+            }
         } finally {
             bufferManager.disconnect(path, locationKind, null);
         }
     }
 
+    /**
+     * Applies the refactoring rules triggered by the provided document until they reach a fixpoint.
+     * <p>
+     * Refactorings can add the trigger tokens of refactoring rules which were not triggered before
+     * (e.g. replacing {@code Vector} with {@code ArrayList}), so the triggered refactoring rules are looked up again
+     * each time the rules applied so far reach a fixpoint, until no new refactoring rule gets triggered.
+     *
+     * @return true if the document reached a fixpoint for all the refactoring rules to apply,
+     *         false if refactoring it was stopped before or if some refactoring rules could not be applied to it
+     */
+    private boolean applyTriggeredRules(IDocument document, ICompilationUnit compilationUnit,
+            JavaProjectOptions options, IProgressMonitor monitor) throws Exception {
+        final Set<RefactoringRule> triggeredRules = new HashSet<RefactoringRule>();
+        while (true) {
+            final int nbTriggeredRules = triggeredRules.size();
+            addTriggeredRules(document.get(), triggeredRules);
+            final List<RefactoringRule> rules = getRulesToApply(triggeredRules);
+            final boolean allRulesApplied = rules.size() == triggeredRules.size();
+            if (rules.isEmpty()) {
+                // when no rule can refactor this file, do not even parse it
+                return allRulesApplied;
+            } else if (nbTriggeredRules == triggeredRules.size()) {
+                // these rules already reached a fixpoint on the current source
+                return allRulesApplied;
+            } else if (!applyRefactoring(document, compilationUnit, newRefactoringPass(document, rules),
+                    options, monitor)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Applies the refactorings to the provided compilation unit once there is enough heap memory for it.
+     */
+    private boolean applyRefactoring(IDocument document, ICompilationUnit compilationUnit,
+            RefactoringPass refactoring, JavaProjectOptions options, IProgressMonitor monitor) throws Exception {
+        if (memoryGovernor == null) {
+            return applyRefactoring(document, compilationUnit, refactoring, options);
+        }
+        final long footprint = MemoryGovernor.estimateFootprint(document.getLength(), refactoring.getNbGroups());
+        if (!memoryGovernor.acquire(footprint, monitor)) {
+            return false;
+        }
+        footprintReserved = footprint;
+        try {
+            return applyRefactoring(document, compilationUnit, refactoring, options);
+        } finally {
+            unreserveFootprint();
+            memoryGovernor.release();
+        }
+    }
+
+    /** Signals to the {@link MemoryGovernor} that the compilation unit has been parsed. */
+    private void unreserveFootprint() {
+        if (footprintReserved > 0) {
+            memoryGovernor.unreserve(footprintReserved);
+            footprintReserved = 0;
+        }
+    }
+
+    /**
+     * Returns a pass analyzing large files in parallel with groups of the provided refactoring rules when enabled,
+     * or a pass analyzing files in the current thread otherwise.
+     */
+    private RefactoringPass newRefactoringPass(IDocument document, List<RefactoringRule> rules) {
+        final int nbGroups = Math.min(nbCores, rules.size());
+        if (executor != null
+                && nbGroups > 1
+                && document.getLength() >= RefactoringPass.MIN_PARALLEL_SOURCE_LENGTH) {
+            return new RefactoringPass(rules, nbGroups, executor);
+        }
+        return new RefactoringPass(new AggregateASTVisitor(rules));
+    }
+
+    /**
+     * Adds the refactoring rules which may refactor the provided source,
+     * by looking for the trigger tokens of the {@link TriggerTokensRefactoringRule}s in it.
+     */
+    private void addTriggeredRules(String source, Set<RefactoringRule> triggeredRules) {
+        for (RefactoringRule rule : refactoringRulesToApply) {
+            if (!(rule instanceof TriggerTokensRefactoringRule)
+                    || containsAny(source, ((TriggerTokensRefactoringRule) rule).getTriggerTokens())) {
+                triggeredRules.add(rule);
+            }
+        }
+    }
+
+    /**
+     * Returns the provided triggered refactoring rules in the order they must be applied.
+     * Refactoring rules found to refactor code back and forth earlier in the run are not applied together.
+     */
+    private List<RefactoringRule> getRulesToApply(Set<RefactoringRule> triggeredRules) {
+        final List<RefactoringRule> results = new ArrayList<RefactoringRule>(triggeredRules.size());
+        for (RefactoringRule rule : refactoringRulesToApply) {
+            if (triggeredRules.contains(rule)) {
+                results.add(rule);
+            }
+        }
+        conflictingRules.removeFrom(results);
+        return results;
+    }
+
+    private boolean containsAny(String source, String[] tokens) {
+        for (String token : tokens) {
+            if (source.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Applies the refactorings provided inside the {@link AggregateASTVisitor} to the provided
      * {@link ICompilationUnit}.
@@ -178,6 +367,8 @@ public class ApplyRefactoringsJob extends Job {
      * @param compilationUnit the compilation unit to refactor
      * @param refactoring the {@link AggregateASTVisitor} to apply to the compilation unit
      * @param options the Java project options used to compile the project
+     * @return true if the compilation unit reached a fixpoint where there is nothing more to refactor,
+     *         false if refactoring it was stopped before reaching a fixpoint
      * @throws Exception if any problem occurs
      *
      * @see <a
@@ -191,42 +382,65 @@ public class ApplyRefactoringsJob extends Job {
      * href="http://www.eclipse.org/articles/article.php?file=Article-JavaCodeManipulation_AST/index.html"
      * >Abstract Syntax Tree > Write it down</a>
      */
-    public void applyRefactoring(IDocument document, ICompilationUnit compilationUnit, AggregateASTVisitor refactoring,
-            JavaProjectOptions options) throws Exception {
-        // creation of DOM/AST from a ICompilationUnit
-        final ASTParser parser = ASTParser.newParser(AST.JLS4);
-        resetParser(compilationUnit, parser, options);
+    public boolean applyRefactoring(IDocument document, ICompilationUnit compilationUnit,
+            AggregateASTVisitor refactoring, JavaProjectOptions options) throws Exception {
+        return applyRefactoring(document, compilationUnit, new RefactoringPass(refactoring), options);
+    }
 
-        CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+    private boolean applyRefactoring(IDocument document, ICompilationUnit compilationUnit,
+            RefactoringPass refactoring, JavaProjectOptions options) throws Exception {
+        final Preferences prefs = AutoRefactorPlugin.getPreferenceHelper();
+        final TimeBudget timeBudget = new TimeBudget(prefs.fileTimeBudget(), prefs.ruleTimeBudget());
+        refactoring.setTimeBudget(timeBudget);
+        try {
+            return applyRefactoring(document, compilationUnit, refactoring, options, timeBudget);
+        } finally {
+            overBudgetEvents.addAll(timeBudget.getOverBudgetEvents());
+            // the ASTs and their bindings are not needed anymore
+            refactoring.release();
+        }
+    }
 
-        int totalNbLoops = 0;
-        List<ASTVisitor> lastLoopVisitors = Collections.emptyList();
-        int nbLoopsWithSameVisitors = 0;
+    private boolean applyRefactoring(IDocument document, ICompilationUnit compilationUnit,
+            RefactoringPass refactoring, JavaProjectOptions options, TimeBudget timeBudget) throws Exception {
+        // Hashes of the document contents already seen => number of the pass which produced them
+        final Map<Long, Integer> seenContents = new HashMap<Long, Integer>();
+        final List<List<ASTVisitor>> visitorsByPass = new ArrayList<List<ASTVisitor>>();
+        String source = document.get();
+        seenContents.put(FixpointCache.hash(source), 0);
         while (true) {
-            if (totalNbLoops > 100) {
+            if (visitorsByPass.size() > 100) {
                 // Oops! Something went wrong.
+                // The code keeps changing without ever coming back to a previous state
                 final String errorMsg = "An infinite loop has been detected for file "
-                        + getFileName(astRoot) + "."
-                        + " A possible cause is that code is being incorrectly"
-                        + " refactored one way then refactored back to what it was."
+                        + compilationUnit.getElementName() + "."
+                        + " A possible cause is that code is being incorrectly refactored again and again."
                         + " Fix the code before pursuing."
-                        + getPossibleCulprits(nbLoopsWithSameVisitors, lastLoopVisitors);
-                AutoRefactorPlugin.logError(errorMsg, new IllegalStateException(astRoot, errorMsg));
-                break;
+                        + " Possible culprit ASTVisitor classes are: "
+                        + getClassNames(visitorsByPass.get(visitorsByPass.size() - 1));
+                AutoRefactorPlugin.logError(errorMsg, new IllegalStateException(null, errorMsg));
+                return false;
             }
 
-            final RefactoringContext ctx = new RefactoringContext(compilationUnit, astRoot.getAST(), options);
-            refactoring.setRefactoringContext(ctx);
-
-            final Refactorings refactorings = refactoring.getRefactorings(astRoot);
-            if (!refactorings.hasRefactorings()) {
+            // I did not find any other way to directly modify the AST
+            // while still keeping the resolved type bindings working.
+            // Using astRoot.recordModifications() did not work:
+            // type bindings were lost. Is there a way to recover them?
+            // FIXME we should find a way to apply all the changes at
+            // the AST level and refresh the bindings
+            // So each pass parses the compilation unit again.
+            final TextEdit edits = refactoring.computeEdits(document, compilationUnit, options);
+            unreserveFootprint();
+            if (edits == null) {
                 // no new refactorings have been applied,
-                // we are done with applying the refactorings.
-                return;
+                // we are done with applying the refactorings,
+                // unless some refactoring rules ran out of time.
+                return !isFileOverBudget(compilationUnit, timeBudget, visitorsByPass.size())
+                        && timeBudget.getOverBudgetEvents().isEmpty();
             }
 
             // apply the refactorings and save the compilation unit
-            refactorings.applyTo(document);
+            Refactorings.applyTo(edits, document);
             final boolean hadUnsavedChanges = compilationUnit.hasUnsavedChanges();
             compilationUnit.getBuffer().setContents(document.get());
             // http://wiki.eclipse.org/FAQ_What_is_a_working_copy%3F
@@ -239,42 +453,103 @@ public class ApplyRefactoringsJob extends Job {
             if (!hadUnsavedChanges) {
                 compilationUnit.save(null, true);
             }
-            // I did not find any other way to directly modify the AST
-            // while still keeping the resolved type bindings working.
-            // Using astRoot.recordModifications() did not work:
-            // type bindings were lost. Is there a way to recover them?
-            // FIXME we should find a way to apply all the changes at
-            // the AST level and refresh the bindings
-            resetParser(compilationUnit, parser, options);
-            astRoot = (CompilationUnit) parser.createAST(null);
-            ++totalNbLoops;
+            visitorsByPass.add(new ArrayList<ASTVisitor>(refactoring.getVisitorsContributingRefactoring()));
+            if (isFileOverBudget(compilationUnit, timeBudget, visitorsByPass.size())) {
+                return false;
+            }
+
+            final String newSource = document.get();
+            final Integer previousPass = seenContents.put(FixpointCache.hash(newSource), visitorsByPass.size());
+            if (previousPass != null) {
+                // Oops! Something went wrong.
+                // The code came back to a previous state: it will now be refactored in circles
+                final Set<ASTVisitor> culprits = new LinkedHashSet<ASTVisitor>();
+                for (List<ASTVisitor> visitors : visitorsByPass.subList(previousPass, visitorsByPass.size())) {
+                    culprits.addAll(visitors);
+                }
+                conflictingRules.add(culprits);
+                final String errorMsg = "An infinite loop has been detected for file "
+                        + compilationUnit.getElementName() + "."
+                        + " The code has been refactored back to what it was "
+                        + (visitorsByPass.size() - previousPass) + " pass(es) before."
+                        + " Fix the code before pursuing."
+                        + " Culprit ASTVisitor classes are: " + getClassNames(culprits) + "."
+                        + " They will not be applied together for the rest of this run."
+                        + " Last change:\n" + getMinimalDiff(source, newSource);
+                AutoRefactorPlugin.logError(errorMsg, new IllegalStateException(null, errorMsg));
+                return false;
+            }
+            source = newSource;
+        }
+    }
 
+    private boolean isFileOverBudget(ICompilationUnit compilationUnit, TimeBudget timeBudget, int nbPasses) {
+        if (timeBudget.isFileBudgetExceeded()) {
+            timeBudget.addOverBudgetEvent("File " + compilationUnit.getPath()
+                    + " ran out of its time budget of " + timeBudget.getFileBudgetSeconds() + "s"
+                    + " after " + nbPasses + " pass(es), it has been partially refactored.");
+            return true;
+        }
+        return false;
+    }
+
+    private String getClassNames(Collection<ASTVisitor> visitors) {
+        final StringBuilder sb = new StringBuilder();
+        for (ASTVisitor visitor : visitors) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(visitor.getClass().getName());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the lines which differ between the two provided sources,
+     * i.e. all the lines between the first and the last changed characters.
+     */
+    private static String getMinimalDiff(String before, String after) {
+        int start = 0;
+        final int maxStart = Math.min(before.length(), after.length());
+        while (start < maxStart && before.charAt(start) == after.charAt(start)) {
+            start++;
+        }
+        int beforeEnd = before.length();
+        int afterEnd = after.length();
+        while (beforeEnd > start && afterEnd > start && before.charAt(beforeEnd - 1) == after.charAt(afterEnd - 1)) {
+            beforeEnd--;
+            afterEnd--;
+        }
+        // extend the differences to whole lines
+        final int lineStart = Math.max(before.lastIndexOf('\n', start - 1), after.lastIndexOf('\n', start - 1)) + 1;
+        final int lineNumber = countLines(before, lineStart) + 1;
+        return "@@ line " + lineNumber + " @@\n"
+                + prefixLines("-", before.substring(lineStart, toLineEnd(before, beforeEnd)))
+                + prefixLines("+", after.substring(lineStart, toLineEnd(after, afterEnd)));
+    }
 
-            final List<ASTVisitor> thisLoopVisitors = refactoring.getVisitorsContributingRefactoring();
-            if (!thisLoopVisitors.equals(lastLoopVisitors)) {
-                lastLoopVisitors = new ArrayList<ASTVisitor>(thisLoopVisitors);
-                nbLoopsWithSameVisitors = 0;
-            } else {
-                ++nbLoopsWithSameVisitors;
+    private static int countLines(String s, int end) {
+        int result = 0;
+        for (int i = 0; i < end; i++) {
+            if (s.charAt(i) == '\n') {
+                result++;
             }
         }
+        return result;
     }
 
-    private static void resetParser(ICompilationUnit cu, ASTParser parser, JavaProjectOptions options) {
-        parser.setSource(cu);
-        parser.setResolveBindings(true);
-        parser.setCompilerOptions(options.getCompilerOptions());
+    private static int toLineEnd(String s, int pos) {
+        final int lineEnd = s.indexOf('\n', pos);
+        return lineEnd != -1 ? lineEnd : s.length();
     }
 
-    private String getPossibleCulprits(int nbLoopsWithSameVisitors, List<ASTVisitor> lastLoopVisitors) {
-        if (nbLoopsWithSameVisitors < 100 || lastLoopVisitors.isEmpty()) {
+    private static String prefixLines(String prefix, String lines) {
+        if (lines.length() == 0) {
             return "";
         }
-        final StringBuilder sb = new StringBuilder(" Possible culprit ASTVisitor classes are: ");
-        final Iterator<ASTVisitor> iter = lastLoopVisitors.iterator();
-        sb.append(iter.next().getClass().getName());
-        while (iter.hasNext()) {
-            sb.append(", ").append(iter.next().getClass().getName());
+        final StringBuilder sb = new StringBuilder();
+        for (String line : lines.split("\r?\n", -1)) {
+            sb.append(prefix).append(line).append("\n");
         }
         return sb.toString();
     }
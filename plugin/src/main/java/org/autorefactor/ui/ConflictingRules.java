@@ -0,0 +1,101 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.autorefactor.refactoring.RefactoringRule;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+/**
+ * Records the groups of refactoring rules which refactor code back and forth,
+ * so that they are not applied together for the rest of the run.
+ * <p>
+ * Only the first refactoring rule of a group is applied when all the rules of the group apply to the same file.
+ * A refactoring rule cycling on its own is not applied anymore.
+ * <p>
+ * This class is thread-safe: all the workers of a run share the same instance.
+ */
+final class ConflictingRules {
+
+    /** Class names of the conflicting refactoring rules. */
+    private final List<Set<String>> groups = new ArrayList<Set<String>>();
+
+    /**
+     * Records the provided refactoring rules as conflicting with each other.
+     *
+     * @param rules the conflicting refactoring rules
+     */
+    synchronized void add(Collection<ASTVisitor> rules) {
+        final Set<String> classNames = new LinkedHashSet<String>();
+        for (ASTVisitor rule : rules) {
+            classNames.add(rule.getClass().getName());
+        }
+        if (!classNames.isEmpty()) {
+            groups.add(classNames);
+        }
+    }
+
+    /**
+     * Removes the conflicting refactoring rules from the provided refactoring rules.
+     *
+     * @param rules the refactoring rules to apply to a file, modified in place
+     */
+    synchronized void removeFrom(List<RefactoringRule> rules) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        final List<String> classNames = new ArrayList<String>(rules.size());
+        for (RefactoringRule rule : rules) {
+            classNames.add(rule.getClass().getName());
+        }
+        final Set<String> toRemove = new HashSet<String>();
+        for (Set<String> group : groups) {
+            if (group.size() == 1) {
+                toRemove.addAll(group);
+            } else if (classNames.containsAll(group)) {
+                // keep the first rule of the group
+                final Set<String> others = new HashSet<String>(group);
+                for (String className : classNames) {
+                    if (others.remove(className)) {
+                        break;
+                    }
+                }
+                toRemove.addAll(others);
+            }
+        }
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            if (toRemove.contains(classNames.get(i))) {
+                rules.remove(i);
+            }
+        }
+    }
+}
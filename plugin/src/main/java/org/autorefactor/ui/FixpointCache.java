@@ -0,0 +1,288 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.preferences.Preferences;
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.Release;
+import org.autorefactor.util.UnhandledException;
+
+/**
+ * Persistent cache of the files which were already at fixpoint, i.e. for which the refactoring rules
+ * did not find anything more to refactor.
+ * <p>
+ * Each file is recorded with a hash of its content and a fingerprint of everything that can change
+ * the refactorings: the plugin version, the refactoring rules, the preferences and the Java project options.
+ * A file whose content and fingerprint did not change since it was recorded does not need to be refactored again.
+ * <p>
+ * The cache is bounded: the least recently used files are evicted first.
+ * It is saved to a temporary file first, then renamed, so a crash never leaves a truncated cache behind.
+ * Reading a cache which cannot be understood simply starts from an empty cache.
+ */
+final class FixpointCache {
+
+    private static final String FILE_NAME = "fixpoint.cache";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_ENTRIES = 50000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** A file content hash and fingerprint. */
+    private static final class Fixpoint {
+        private final long contentHash;
+        private final long fingerprint;
+
+        private Fixpoint(long contentHash, long fingerprint) {
+            this.contentHash = contentHash;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final File file;
+    private final long rulesFingerprint;
+    /** File path => fixpoint, iterating from the least recently used file. */
+    private final LinkedHashMap<String, Fixpoint> fixpoints = new LinkedHashMap<String, Fixpoint>(16, 0.75f, true);
+    private final Map<JavaProjectOptions, Long> fingerprints = new IdentityHashMap<JavaProjectOptions, Long>();
+    private boolean dirty;
+
+    private FixpointCache(File file, long rulesFingerprint) {
+        this.file = file;
+        this.rulesFingerprint = rulesFingerprint;
+    }
+
+    /**
+     * Loads the fixpoint cache for the provided refactoring rules, as configured by the preferences.
+     *
+     * @param refactoringRules the refactoring rules to apply
+     * @param prefs the preferences
+     * @return the fixpoint cache, or null if it is disabled
+     */
+    static FixpointCache load(List<RefactoringRule> refactoringRules, Preferences prefs) {
+        if (!prefs.fixpointCacheOn()) {
+            return null;
+        }
+        final File directory = getDirectory(prefs);
+        if (directory == null) {
+            return null;
+        }
+        final FixpointCache cache =
+                new FixpointCache(new File(directory, FILE_NAME), fingerprint(refactoringRules, prefs));
+        cache.read();
+        return cache;
+    }
+
+    private static File getDirectory(Preferences prefs) {
+        final String directory = prefs.fixpointCacheDirectory();
+        if (directory != null && directory.length() > 0) {
+            return new File(directory);
+        }
+        final AutoRefactorPlugin plugin = AutoRefactorPlugin.getDefault();
+        return plugin != null ? plugin.getStateLocation().toFile() : null;
+    }
+
+    private static long fingerprint(List<RefactoringRule> refactoringRules, Preferences prefs) {
+        final List<String> ruleNames = new ArrayList<String>(refactoringRules.size());
+        for (RefactoringRule rule : refactoringRules) {
+            ruleNames.add(rule.getClass().getName());
+        }
+        Collections.sort(ruleNames);
+
+        final StringBuilder sb = new StringBuilder();
+        final AutoRefactorPlugin plugin = AutoRefactorPlugin.getDefault();
+        if (plugin != null) {
+            sb.append(plugin.getBundle().getVersion()).append('\n');
+        }
+        sb.append(ruleNames).append('\n');
+        sb.append(prefs.removeThisForNonStaticMethodAccess()).append('\n');
+        sb.append(prefs.addCurlyBracketsToStatementBodies()).append('\n');
+        sb.append(prefs.hoistedFactoryMethods()).append('\n');
+        return hash(sb.toString());
+    }
+
+    private long fingerprint(JavaProjectOptions options) {
+        Long result = fingerprints.get(options);
+        if (result == null) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(rulesFingerprint).append('\n');
+            final Release release = options.getJavaSERelease();
+            sb.append(release.getMajorVersion()).append('.').append(release.getMinorVersion())
+                    .append('.').append(release.getPatchVersion()).append('\n');
+            sb.append(options.getTabSize()).append('\n');
+            sb.append(new TreeMap<String, String>(options.getCompilerOptions()));
+            result = hash(sb.toString());
+            fingerprints.put(options, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a 64 bits hash of the provided string, based on SHA-1.
+     *
+     * @param s the string to hash
+     * @return a 64 bits hash of the provided string
+     */
+    static long hash(String s) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(UTF_8));
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (digest[i] & 0xFF);
+            }
+            return result;
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnhandledException(null, e);
+        }
+    }
+
+    /**
+     * Returns whether the provided file was already at fixpoint with the same content and options.
+     *
+     * @param path the file path
+     * @param source the current file content
+     * @param options the Java project options used to refactor the file
+     * @return true if the provided file does not need to be refactored again, false otherwise
+     */
+    synchronized boolean isAtFixpoint(String path, String source, JavaProjectOptions options) {
+        final Fixpoint fixpoint = fixpoints.get(path);
+        return fixpoint != null
+                && fixpoint.fingerprint == fingerprint(options)
+                && fixpoint.contentHash == hash(source);
+    }
+
+    /**
+     * Records that the provided file is at fixpoint with the provided content and options.
+     *
+     * @param path the file path
+     * @param source the file content at fixpoint
+     * @param options the Java project options used to refactor the file
+     */
+    synchronized void recordFixpoint(String path, String source, JavaProjectOptions options) {
+        put(path, new Fixpoint(hash(source), fingerprint(options)));
+        dirty = true;
+    }
+
+    private void put(String path, Fixpoint fixpoint) {
+        fixpoints.put(path, fixpoint);
+        if (fixpoints.size() > MAX_ENTRIES) {
+            final Iterator<String> it = fixpoints.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void read() {
+        if (!file.isFile()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String path = in.readUTF();
+                final long contentHash = in.readLong();
+                final long fingerprint = in.readLong();
+                put(path, new Fixpoint(contentHash, fingerprint));
+            }
+        } catch (IOException e) {
+            fixpoints.clear();
+            AutoRefactorPlugin.logInfo("Ignoring unreadable fixpoint cache \"" + file + "\": " + e);
+        } finally {
+            close(in);
+        }
+    }
+
+    /** Saves this cache if it was modified since it was loaded or last saved. */
+    synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            file.getParentFile().mkdirs();
+            final FileOutputStream fos = new FileOutputStream(tmpFile);
+            out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(fixpoints.size());
+            for (Entry<String, Fixpoint> entry : fixpoints.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().contentHash);
+                out.writeLong(entry.getValue().fingerprint);
+            }
+            out.flush();
+            fos.getFD().sync();
+            out.close();
+            out = null;
+            // File.renameTo() does not replace an existing file on all platforms
+            if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+                throw new IOException("Cannot rename \"" + tmpFile + "\" to \"" + file + "\"");
+            }
+            dirty = false;
+        } catch (IOException e) {
+            AutoRefactorPlugin.logInfo("Could not save fixpoint cache \"" + file + "\": " + e);
+        } finally {
+            close(out);
+            tmpFile.delete();
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // nothing more to do
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Limits the number of compilation units refactored at the same time by all the workers of a run,
+ * according to the heap memory left.
+ * <p>
+ * The memory footprint of a compilation unit is estimated from its source size.
+ * A compilation unit starts being refactored only if the heap headroom reported by the {@link MemoryMXBean}
+ * can hold its footprint on top of the footprints reserved by the compilation units admitted before.
+ * Otherwise it waits, and the compilation units arriving later wait behind it so that it does not starve.
+ * A compilation unit is always accepted when no other compilation unit is in flight,
+ * so large compilation units are refactored alone when headroom is low.
+ * <p>
+ * An admitted compilation unit reserves its footprint until it has been parsed, so the units admitted
+ * back to back do not all see the same headroom. Once parsed, the memory it uses is part of the used heap,
+ * so it is not counted again.
+ * <p>
+ * This class is thread-safe.
+ */
+final class MemoryGovernor {
+
+    /** Rough estimate of the heap used per source character by a binding-resolved AST and its rewrites. */
+    private static final long FOOTPRINT_PER_SOURCE_CHAR = 200;
+    /** Part of the heap headroom which can be used by a compilation unit starting to be refactored. */
+    private static final double MAX_HEADROOM_RATIO = 0.75;
+    /** The garbage collector frees memory without notice, so waiting units poll the heap usage. */
+    private static final long POLL_MILLIS = 500;
+
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private int nbUnitsInFlight;
+    private int nbUnitsWaiting;
+    private long footprintReserved;
+
+    /**
+     * Returns the estimated memory footprint for refactoring a compilation unit.
+     *
+     * @param sourceLength the length of the compilation unit source
+     * @param nbASTs the number of ASTs of this compilation unit in memory at the same time
+     * @return the estimated memory footprint for refactoring a compilation unit, in bytes
+     */
+    static long estimateFootprint(int sourceLength, int nbASTs) {
+        return sourceLength * FOOTPRINT_PER_SOURCE_CHAR * nbASTs;
+    }
+
+    /**
+     * Waits until there is enough heap memory to refactor a compilation unit with the provided footprint,
+     * then reserves this footprint until {@link #unreserve(long)} is called.
+     *
+     * @param footprint the estimated memory footprint of the compilation unit
+     * @param monitor the progress monitor of the worker
+     * @return true if the compilation unit can be refactored,
+     *         false if the worker was canceled while waiting
+     * @throws InterruptedException if the worker was interrupted while waiting
+     */
+    synchronized boolean acquire(long footprint, IProgressMonitor monitor) throws InterruptedException {
+        boolean waiting = false;
+        try {
+            while (nbUnitsInFlight > 0
+                    && ((nbUnitsWaiting > 0 && !waiting) || !hasHeadroomFor(footprint))) {
+                if (monitor.isCanceled()) {
+                    return false;
+                }
+                if (!waiting) {
+                    waiting = true;
+                    nbUnitsWaiting++;
+                }
+                wait(POLL_MILLIS);
+            }
+        } finally {
+            if (waiting) {
+                nbUnitsWaiting--;
+            }
+        }
+        nbUnitsInFlight++;
+        footprintReserved += footprint;
+        return true;
+    }
+
+    /**
+     * Signals that a compilation unit has been parsed, so the memory it uses is now part of the used heap.
+     *
+     * @param footprint the estimated memory footprint reserved for the compilation unit
+     */
+    synchronized void unreserve(long footprint) {
+        footprintReserved -= footprint;
+        notifyAll();
+    }
+
+    /** Signals that a compilation unit is done and that its memory can be reused. */
+    synchronized void release() {
+        nbUnitsInFlight--;
+        notifyAll();
+    }
+
+    private boolean hasHeadroomFor(long footprint) {
+        final MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        if (heap.getMax() < 0) {
+            // the maximum heap size is not defined
+            return true;
+        }
+        final long headroom = heap.getMax() - heap.getUsed();
+        return footprintReserved + footprint <= headroom * MAX_HEADROOM_RATIO;
+    }
+}
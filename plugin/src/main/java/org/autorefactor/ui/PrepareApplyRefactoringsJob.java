@@ -32,12 +32,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.autorefactor.AutoRefactorPlugin;
 import org.autorefactor.refactoring.JavaProjectOptions;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.autorefactor.util.UnhandledException;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -57,6 +63,7 @@ public class PrepareApplyRefactoringsJob extends Job {
     private final List<IJavaElement> javaElements;
     private final List<RefactoringRule> refactoringRulesToApply;
     private final Map<IJavaElement, JavaProjectOptions> javaProjects = new HashMap<IJavaElement, JavaProjectOptions>();
+    private FixpointCache fixpointCache;
 
     /**
      * Builds an instance of this class.
@@ -90,18 +97,68 @@ public class PrepareApplyRefactoringsJob extends Job {
 
     private IStatus run0(IProgressMonitor monitor) throws Exception {
         if (!javaElements.isEmpty()) {
+            fixpointCache = FixpointCache.load(refactoringRulesToApply, AutoRefactorPlugin.getPreferenceHelper());
             final Queue<RefactoringUnit> toRefactor = collectRefactoringUnits(javaElements);
             final int nbCores = Runtime.getRuntime().availableProcessors();
             final int nbWorkers = computeNbWorkers(toRefactor.size(), nbCores);
+            final ConflictingRules conflictingRules = new ConflictingRules();
+            final MemoryGovernor memoryGovernor = new MemoryGovernor();
+            final List<List<RefactoringRule>> rulesByWorker = new ArrayList<List<RefactoringRule>>(nbWorkers);
             for (int i = 0; i < nbWorkers; i++) {
-                new ApplyRefactoringsJob(
+                rulesByWorker.add(clone(refactoringRulesToApply));
+            }
+            final ExecutorService executor = nbCores > 1
+                    && AutoRefactorPlugin.getPreferenceHelper().parallelAnalysisOn()
+                    ? Executors.newFixedThreadPool(nbCores) : null;
+            final List<ApplyRefactoringsJob> workers = new ArrayList<ApplyRefactoringsJob>(nbWorkers);
+            for (List<RefactoringRule> rules : rulesByWorker) {
+                workers.add(new ApplyRefactoringsJob(
                         toRefactor,
-                        clone(refactoringRulesToApply)).schedule();
+                        rules,
+                        fixpointCache,
+                        conflictingRules,
+                        memoryGovernor,
+                        executor));
+            }
+            try {
+                runWorkers(workers, monitor);
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
             }
         }
         return Status.OK_STATUS;
     }
 
+    /**
+     * Runs the provided workers and waits until they are all done, inside a single workspace operation.
+     * <p>
+     * The workspace only triggers the auto-build at the end of the outermost workspace operation in progress,
+     * so the operations run by the workers to save the compilation units do not trigger it.
+     * When auto-build is on, it builds all the changes once at the end of the run.
+     * This operation does not hold any scheduling rule, so the workers can still save files in parallel.
+     */
+    private void runWorkers(final List<ApplyRefactoringsJob> workers, IProgressMonitor monitor)
+            throws CoreException {
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            /** {@inheritDoc} */
+            @Override
+            public void run(IProgressMonitor monitor) {
+                for (ApplyRefactoringsJob worker : workers) {
+                    worker.schedule();
+                }
+                try {
+                    for (ApplyRefactoringsJob worker : workers) {
+                        worker.join();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, null, IWorkspace.AVOID_UPDATE, monitor);
+    }
+
     /**
      * Clones all the refactorings to apply.
      * In fairness, this method is only useful for stateful refactorings.
@@ -167,11 +224,16 @@ public class PrepareApplyRefactoringsJob extends Job {
         if (!cu.isConsistent()) {
             cu.makeConsistent(null);
         }
-        if (!cu.isReadOnly()) {
+        if (!cu.isReadOnly() && !isAtFixpoint(cu, options)) {
             results.add(new RefactoringUnit(cu, options));
         }
     }
 
+    private boolean isAtFixpoint(ICompilationUnit cu, JavaProjectOptions options) throws JavaModelException {
+        return fixpointCache != null
+                && fixpointCache.isAtFixpoint(cu.getPath().toString(), cu.getSource(), options);
+    }
+
     @SuppressWarnings("unchecked")
     private JavaProjectOptions getJavaProjectOptions(IJavaElement javaElement) {
         final IJavaProject javaProject = getIJavaProject(javaElement);
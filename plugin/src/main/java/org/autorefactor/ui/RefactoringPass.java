@@ -0,0 +1,293 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.SourceRanges;
+import org.autorefactor.refactoring.TimeBudget;
+import org.autorefactor.refactoring.rules.AggregateASTVisitor;
+import org.autorefactor.refactoring.rules.RefactoringContext;
+import org.autorefactor.util.UnhandledException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.TextEdit;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Computes one pass of refactorings over a compilation unit.
+ * <p>
+ * The refactoring rules can be split into groups analyzed in parallel.
+ * The JDT AST and its bindings are not thread-safe,
+ * so each group parses its own AST and records its refactorings into its own {@link Refactorings}.
+ * Only the analysis runs in parallel: the text edits of the groups are then merged in the groups order,
+ * dropping the groups whose text edits overlap the text edits of a previous group,
+ * or which declare new names in the same scope as a previous group.
+ * The dropped refactorings will be computed again by the next pass.
+ */
+final class RefactoringPass {
+
+    /** Files smaller than this number of characters are not worth analyzing in parallel. */
+    static final int MIN_PARALLEL_SOURCE_LENGTH = 100000;
+
+    private final List<AggregateASTVisitor> groups;
+    private final ExecutorService executor;
+    private final List<ASTVisitor> visitorsContributingRefactoring = new ArrayList<ASTVisitor>();
+
+    /**
+     * Builds a pass which analyzes the compilation unit with the provided visitor in the current thread.
+     *
+     * @param refactoring the visitor applying the refactoring rules
+     */
+    RefactoringPass(AggregateASTVisitor refactoring) {
+        this.groups = Collections.singletonList(refactoring);
+        this.executor = null;
+    }
+
+    /**
+     * Builds a pass which analyzes the compilation unit in parallel with groups of the provided refactoring rules.
+     *
+     * @param refactoringRules the refactoring rules to apply
+     * @param nbGroups the number of groups of refactoring rules to analyze in parallel
+     * @param executor the executor running the analysis of each group
+     */
+    RefactoringPass(List<RefactoringRule> refactoringRules, int nbGroups, ExecutorService executor) {
+        final List<List<RefactoringRule>> rulesByGroup = new ArrayList<List<RefactoringRule>>(nbGroups);
+        for (int i = 0; i < nbGroups; i++) {
+            rulesByGroup.add(new ArrayList<RefactoringRule>());
+        }
+        for (int i = 0; i < refactoringRules.size(); i++) {
+            rulesByGroup.get(i % nbGroups).add(refactoringRules.get(i));
+        }
+        this.groups = new ArrayList<AggregateASTVisitor>(nbGroups);
+        for (List<RefactoringRule> rules : rulesByGroup) {
+            this.groups.add(new AggregateASTVisitor(rules));
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the time budgets to enforce while analyzing the compilation unit.
+     *
+     * @param timeBudget the time budgets to enforce while analyzing the compilation unit
+     */
+    void setTimeBudget(TimeBudget timeBudget) {
+        for (AggregateASTVisitor refactoring : groups) {
+            refactoring.setTimeBudget(timeBudget);
+        }
+    }
+
+    /**
+     * Returns the number of ASTs this pass holds in memory at the same time.
+     *
+     * @return the number of ASTs this pass holds in memory at the same time
+     */
+    int getNbGroups() {
+        return groups.size();
+    }
+
+    /** Releases the ASTs, their bindings and the refactorings of the last pass. */
+    void release() {
+        for (AggregateASTVisitor refactoring : groups) {
+            refactoring.setRefactoringContext(null);
+        }
+    }
+
+    /**
+     * Returns the visitors which contributed the text edits returned by the last pass.
+     *
+     * @return the visitors which contributed the text edits returned by the last pass
+     */
+    List<ASTVisitor> getVisitorsContributingRefactoring() {
+        return visitorsContributingRefactoring;
+    }
+
+    /**
+     * Computes the refactorings of the provided compilation unit, without applying them.
+     *
+     * @param document the document where the compilation unit comes from
+     * @param compilationUnit the compilation unit to refactor
+     * @param options the Java project options used to compile the project
+     * @return the text edits to apply to the document, or null if there is nothing to refactor
+     * @throws Exception if any problem occurs
+     */
+    TextEdit computeEdits(IDocument document, ICompilationUnit compilationUnit, JavaProjectOptions options)
+            throws Exception {
+        visitorsContributingRefactoring.clear();
+        if (executor == null) {
+            final AggregateASTVisitor refactoring = groups.get(0);
+            final TextEdit edits = computeEdits(refactoring, document, compilationUnit, options, null);
+            if (edits != null) {
+                visitorsContributingRefactoring.addAll(refactoring.getVisitorsContributingRefactoring());
+            }
+            return edits;
+        }
+        final List<SourceRanges> scopesByGroup = new ArrayList<SourceRanges>(groups.size());
+        for (int i = 0; i < groups.size(); i++) {
+            scopesByGroup.add(new SourceRanges());
+        }
+        return mergeEdits(computeEditsInParallel(document.get(), compilationUnit, options, scopesByGroup),
+                scopesByGroup);
+    }
+
+    private List<TextEdit> computeEditsInParallel(final String source, final ICompilationUnit compilationUnit,
+            final JavaProjectOptions options, List<SourceRanges> scopesByGroup) throws Exception {
+        final List<Future<TextEdit>> futures = new ArrayList<Future<TextEdit>>(groups.size());
+        try {
+            for (int i = 0; i < groups.size(); i++) {
+                final AggregateASTVisitor refactoring = groups.get(i);
+                final SourceRanges declarationScopes = scopesByGroup.get(i);
+                futures.add(executor.submit(new Callable<TextEdit>() {
+                    @Override
+                    public TextEdit call() throws Exception {
+                        // Each group computes its text edits against its own copy of the source
+                        return computeEdits(refactoring, new Document(source), compilationUnit, options,
+                                declarationScopes);
+                    }
+                }));
+            }
+            final List<TextEdit> results = new ArrayList<TextEdit>(futures.size());
+            for (Future<TextEdit> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new UnhandledException(null, e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            // do not let any group run concurrently with the next pass
+            for (Future<TextEdit> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private TextEdit computeEdits(AggregateASTVisitor refactoring, IDocument document,
+            ICompilationUnit compilationUnit, JavaProjectOptions options, SourceRanges declarationScopes) {
+        final ASTParser parser = ASTParser.newParser(AST.JLS4);
+        parser.setSource(compilationUnit);
+        parser.setResolveBindings(true);
+        parser.setCompilerOptions(options.getCompilerOptions());
+        final CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+
+        final RefactoringContext ctx = new RefactoringContext(compilationUnit, astRoot.getAST(), options);
+        refactoring.setRefactoringContext(ctx);
+        final Refactorings refactorings = refactoring.getRefactorings(astRoot);
+        if (!refactorings.hasRefactorings()) {
+            return null;
+        }
+        if (declarationScopes != null) {
+            addDeclarationScopes(ctx, astRoot, declarationScopes);
+        }
+        return refactorings.toTextEdit(document);
+    }
+
+    /**
+     * Adds the source ranges where the provided refactorings declare new names.
+     * These are the body declarations where they declare new local variables,
+     * the whole compilation unit when they declare new members (their names are unique in the compilation unit),
+     * and the import declarations when they add imports.
+     */
+    private void addDeclarationScopes(RefactoringContext ctx, CompilationUnit astRoot,
+            SourceRanges declarationScopes) {
+        for (BodyDeclaration bodyDecl : ctx.getVariableNameGenerator().getBodyDeclarationsWithNewNames()) {
+            declarationScopes.add(bodyDecl.getStartPosition(), bodyDecl.getStartPosition() + bodyDecl.getLength());
+        }
+        if (ctx.getStaticMembersRewriter().hasNewMembers()) {
+            declarationScopes.add(0, astRoot.getStartPosition() + astRoot.getLength());
+        }
+        if (ctx.getImportsRewriter().hasNewImports()) {
+            final List<AbstractTypeDeclaration> types = types(astRoot);
+            final int importsEnd = !types.isEmpty()
+                    ? types.get(0).getStartPosition()
+                    : astRoot.getStartPosition() + astRoot.getLength();
+            declarationScopes.add(0, Math.max(importsEnd, 1));
+        }
+    }
+
+    /**
+     * Merges the text edits of the groups in the groups order.
+     * The text edits of a group are dropped when they overlap the text edits of a previous group,
+     * or when the group declares new names in the scope where a previous group declares new names,
+     * because both groups could have chosen the same name.
+     */
+    private TextEdit mergeEdits(List<TextEdit> editsByGroup, List<SourceRanges> scopesByGroup) {
+        final SourceRanges editedRanges = new SourceRanges();
+        final SourceRanges declarationScopes = new SourceRanges();
+        MultiTextEdit result = null;
+        for (int i = 0; i < editsByGroup.size(); i++) {
+            final TextEdit edits = editsByGroup.get(i);
+            if (edits == null
+                    || overlaps(editedRanges, edits)
+                    || declarationScopes.overlaps(scopesByGroup.get(i))) {
+                continue;
+            }
+            declarationScopes.addAll(scopesByGroup.get(i));
+            if (result == null) {
+                result = new MultiTextEdit();
+            }
+            for (TextEdit edit : edits.removeChildren()) {
+                editedRanges.add(edit.getOffset(), edit.getOffset() + Math.max(edit.getLength(), 1));
+                result.addChild(edit);
+            }
+            visitorsContributingRefactoring.addAll(groups.get(i).getVisitorsContributingRefactoring());
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the provided text edits overlap the provided ranges.
+     * Insertions at the same offset are considered to overlap
+     * because their relative order, for example between two added imports, is not known.
+     */
+    private boolean overlaps(SourceRanges editedRanges, TextEdit edits) {
+        for (TextEdit edit : edits.getChildren()) {
+            if (editedRanges.overlaps(edit.getOffset(), edit.getOffset() + Math.max(edit.getLength(), 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
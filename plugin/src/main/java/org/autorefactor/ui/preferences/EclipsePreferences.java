@@ -51,6 +51,14 @@ public class EclipsePreferences implements Preferences {
         return preferenceStore.getBoolean(pref.getName());
     }
 
+    private int getInt(PreferenceConstants pref) {
+        return preferenceStore.getInt(pref.getName());
+    }
+
+    private String getString(PreferenceConstants pref) {
+        return preferenceStore.getString(pref.getName());
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean debugModeOn() {
@@ -68,4 +76,40 @@ public class EclipsePreferences implements Preferences {
     public boolean addCurlyBracketsToStatementBodies() {
         return getBoolean(ADD_CURLY_BRACKETS_TO_STATEMENT_BODIES);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean fixpointCacheOn() {
+        return getBoolean(FIXPOINT_CACHE_ON);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String fixpointCacheDirectory() {
+        return getString(FIXPOINT_CACHE_DIRECTORY);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean parallelAnalysisOn() {
+        return getBoolean(PARALLEL_ANALYSIS_ON);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int fileTimeBudget() {
+        return getInt(FILE_TIME_BUDGET);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int ruleTimeBudget() {
+        return getInt(RULE_TIME_BUDGET);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String hoistedFactoryMethods() {
+        return getString(HOISTED_FACTORY_METHODS);
+    }
 }
@@ -28,7 +28,10 @@ package org.autorefactor.ui.preferences;
 import org.autorefactor.AutoRefactorPlugin;
 import org.autorefactor.preferences.PreferenceConstants;
 import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.DirectoryFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
@@ -52,6 +55,12 @@ public class WorkspacePreferencePage extends FieldEditorPreferencePage implement
     protected void createFieldEditors() {
         addBooleanField(REMOVE_THIS_FOR_NON_STATIC_METHOD_ACCESS);
         addBooleanField(ADD_CURLY_BRACKETS_TO_STATEMENT_BODIES);
+        addBooleanField(FIXPOINT_CACHE_ON);
+        addDirectoryField(FIXPOINT_CACHE_DIRECTORY);
+        addBooleanField(PARALLEL_ANALYSIS_ON);
+        addIntegerField(FILE_TIME_BUDGET);
+        addIntegerField(RULE_TIME_BUDGET);
+        addStringField(HOISTED_FACTORY_METHODS);
 
         addBooleanField(DEBUG_MODE_ON);
     }
@@ -60,6 +69,18 @@ public class WorkspacePreferencePage extends FieldEditorPreferencePage implement
         addField(new BooleanFieldEditor(pref.getName(), pref.getDescription(), getFieldEditorParent()));
     }
 
+    private void addIntegerField(PreferenceConstants pref) {
+        addField(new IntegerFieldEditor(pref.getName(), pref.getDescription(), getFieldEditorParent()));
+    }
+
+    private void addStringField(PreferenceConstants pref) {
+        addField(new StringFieldEditor(pref.getName(), pref.getDescription(), getFieldEditorParent()));
+    }
+
+    private void addDirectoryField(PreferenceConstants pref) {
+        addField(new DirectoryFieldEditor(pref.getName(), pref.getDescription(), getFieldEditorParent()));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void init(IWorkbench workbench) {
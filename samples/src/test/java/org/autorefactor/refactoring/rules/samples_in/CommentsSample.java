@@ -56,6 +56,9 @@ public class CommentsSample implements Runnable {
     private int j; // This must be attached as a javadoc to field 'j'
     //uppercase
     private int k;
+    private int l;
+    { l = 1; } // This is not attached to the initializer, but becomes a javadoc for field 'm'
+    private int m;
 
     // Convert to a javadoc
     public CommentsSample() {
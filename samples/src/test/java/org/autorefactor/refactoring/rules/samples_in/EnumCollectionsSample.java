@@ -0,0 +1,111 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class EnumCollectionsSample {
+
+    public enum State {
+        STARTED, RUNNING, STOPPED
+    }
+
+    private Map<State, String> labels = new HashMap<State, String>();
+
+    public Map<State, Integer> replaceHashMap() {
+        Map<State, Integer> counts = new HashMap<State, Integer>();
+        counts.put(State.STARTED, 1);
+        return counts;
+    }
+
+    public Map<State, Integer> replaceHashMapWithCapacity() {
+        Map<State, Integer> counts = new HashMap<State, Integer>(8);
+        return counts;
+    }
+
+    public Map<State, Integer> replaceTreeMap() {
+        Map<State, Integer> counts;
+        counts = new TreeMap<State, Integer>();
+        return counts;
+    }
+
+    public Set<State> replaceHashSet() {
+        Set<State> states = new HashSet<State>();
+        states.add(State.RUNNING);
+        return states;
+    }
+
+    public Collection<State> replaceTreeSet() {
+        Collection<State> states = new TreeSet<State>();
+        return states;
+    }
+
+    public HashMap<State, Integer> doNotReplaceWhenDeclaredWithClass() {
+        HashMap<State, Integer> counts = new HashMap<State, Integer>();
+        return counts;
+    }
+
+    public SortedMap<State, Integer> doNotReplaceSortedMap() {
+        SortedMap<State, Integer> counts = new TreeMap<State, Integer>();
+        return counts;
+    }
+
+    public Map<State, Integer> doNotReplaceTreeMapWithComparator(Comparator<State> comparator) {
+        Map<State, Integer> counts = new TreeMap<State, Integer>(comparator);
+        return counts;
+    }
+
+    public Map<State, Integer> doNotReplaceCopyConstructor(Map<State, Integer> map) {
+        Map<State, Integer> counts = new HashMap<State, Integer>(map);
+        return counts;
+    }
+
+    public Map<State, Integer> doNotReplaceLinkedHashMap() {
+        Map<State, Integer> counts = new LinkedHashMap<State, Integer>();
+        return counts;
+    }
+
+    public Set<String> doNotReplaceNonEnumKeys() {
+        Set<String> names = new HashSet<String>();
+        return names;
+    }
+
+    public Map<State, Integer> doNotReplaceAnonymousClass() {
+        Map<State, Integer> counts = new HashMap<State, Integer>() {
+            private static final long serialVersionUID = 1L;
+        };
+        return counts;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+public class HoistReflectionLookupsSample {
+
+    private static final Class<StringBuilder> BUILDER_CLASS = StringBuilder.class;
+    private static final String COUNT_FIELD_NAME = "count";
+    private static final Method GET_NAME_METHOD_IN_FIELD;
+
+    static {
+        try {
+            GET_NAME_METHOD_IN_FIELD = HoistReflectionLookupsSample.class.getMethod("getName");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private int count;
+
+    public String getName() {
+        return "sample";
+    }
+
+    private void reset() {
+        count = 0;
+    }
+
+    public String invokeGetName() throws Exception {
+        Method getName = HoistReflectionLookupsSample.class.getMethod("getName");
+        return (String) getName.invoke(this);
+    }
+
+    public Object invokeGetNameAgain() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("getName").invoke(this);
+    }
+
+    public int readField() throws Exception {
+        Field field = HoistReflectionLookupsSample.class.getDeclaredField(COUNT_FIELD_NAME);
+        return field.getInt(this);
+    }
+
+    public int invokeLength(String s) throws Exception {
+        return (Integer) String.class.getMethod("length").invoke(s);
+    }
+
+    public Object invokeReverse(StringBuilder sb) throws Exception {
+        return BUILDER_CLASS.getMethod("reverse").invoke(sb);
+    }
+
+    public Object newList() throws Exception {
+        Constructor<ArrayList> constructor = ArrayList.class.getConstructor(int.class);
+        return constructor.newInstance(10);
+    }
+
+    public Class<?> loadClass() {
+        try {
+            return Class.forName("java.util.ArrayList");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public Method doNotHoistWhenCatchingLookupException() {
+        try {
+            return HoistReflectionLookupsSample.class.getMethod("getName");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public Method doNotHoistWhenDeclaringLookupException() throws NoSuchMethodException {
+        return HoistReflectionLookupsSample.class.getMethod("getName");
+    }
+
+    public Object doNotHoistWhenDeclaringLookupExceptions() throws ClassNotFoundException, NoSuchFieldException {
+        return Class.forName("java.util.ArrayList").getDeclaredField("size");
+    }
+
+    public Method doNotHoistUnknownMethod() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("getUnknownName");
+    }
+
+    public Method doNotHoistNonPublicMethod() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("reset");
+    }
+
+    public Method doNotHoistWrongParameterTypes() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("getName", String.class);
+    }
+
+    public Class<?> doNotHoistUnknownClass() throws Exception {
+        return Class.forName("com.example.UnknownClass");
+    }
+
+    public Method doNotHoistNonConstantName(String methodName) throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod(methodName);
+    }
+
+    public Method doNotHoistLocalConstantName() throws Exception {
+        final String methodName = "getName";
+        return HoistReflectionLookupsSample.class.getMethod(methodName);
+    }
+
+    public Method doNotHoistNonConstantClass(Object o) throws Exception {
+        return o.getClass().getMethod("toString");
+    }
+
+    public Callable<Method> doNotHoistInAnonymousClass() {
+        return new Callable<Method>() {
+            @Override
+            public Method call() throws Exception {
+                return HoistReflectionLookupsSample.class.getMethod("getName");
+            }
+        };
+    }
+
+    public void doNotHoistStatements() throws Exception {
+        Class.forName("java.lang.String");
+        String.class.getMethod("length");
+    }
+}
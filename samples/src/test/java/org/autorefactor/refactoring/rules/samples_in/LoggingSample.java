@@ -0,0 +1,107 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class LoggingSample {
+
+    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(LoggingSample.class);
+    private final Logger julLogger = Logger.getLogger(LoggingSample.class.getName());
+
+    public void replaceConcatenation(String name, int count) {
+        LOG.info("Processing " + name + " with " + count + " items");
+        LOG.warn("Count: " + count);
+    }
+
+    public void replaceConcatenationWithVarargs(String a, String b, String c) {
+        LOG.error("Values: " + a + ", " + b + ", " + c);
+    }
+
+    public void replaceAndGuardDebug(String[] names) {
+        LOG.debug("Names: " + names.length + " in " + Arrays.toString(names));
+    }
+
+    public void guardTrace(List<String> names) {
+        LOG.trace(names.toString());
+    }
+
+    public void guardParameterizedDebug(String[] names) {
+        LOG.debug("Names: {}", Arrays.toString(names));
+    }
+
+    public void doNotGuardPassiveArguments(String name) {
+        LOG.debug("Name: " + name);
+        LOG.debug("Name: {}", name);
+    }
+
+    public void doNotGuardSideEffects(int counter, Iterator<String> it, List<String> names) {
+        LOG.debug("count=" + counter++);
+        LOG.debug("next=" + it.next());
+        LOG.debug("Names: " + computeDescription(names));
+    }
+
+    public void doNotGuardAlreadyGuarded(List<String> names) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Names: " + computeDescription(names));
+        }
+    }
+
+    public void doNotGuardWithoutBlock(boolean b, List<String> names) {
+        if (b)
+            LOG.debug("Names: " + computeDescription(names));
+        else
+            LOG.info("Done");
+    }
+
+    public void doNotReplaceNumericAddition(int i, int j) {
+        LOG.info(i + j + " items");
+    }
+
+    public void doNotReplaceTrailingException(Exception e) {
+        LOG.info("Failure: " + e);
+    }
+
+    public void doNotReplacePlaceholdersInLiterals(String name) {
+        LOG.info("Braces {} for " + name);
+    }
+
+    public void doNotReplaceArrays(Object[] names) {
+        LOG.info("Names: " + names);
+    }
+
+    public void guardJavaUtilLogging(String[] names) {
+        julLogger.fine("Names: " + Arrays.toString(names));
+        julLogger.info("Names: " + Arrays.toString(names));
+    }
+
+    private String computeDescription(List<String> names) {
+        return names.toString();
+    }
+}
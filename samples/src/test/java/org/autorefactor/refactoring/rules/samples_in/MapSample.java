@@ -0,0 +1,144 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014-2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class MapSample {
+
+    private ConcurrentMap<String, Integer> cache = new ConcurrentHashMap<String, Integer>();
+
+    public int replaceAssignmentWithElse(ConcurrentMap<String, Integer> map, String key) {
+        int result;
+        if (map.containsKey(key)) {
+            result = map.get(key);
+        } else {
+            result = 0;
+        }
+        return result;
+    }
+
+    public int replaceNegatedAssignmentWithElse(Hashtable<String, Integer> map, String key) {
+        Integer result;
+        if (!map.containsKey(key)) {
+            result = 0;
+        } else {
+            result = map.get(key);
+        }
+        return result;
+    }
+
+    public Integer replaceAssignmentWithoutElse(ConcurrentMap<String, Integer> map, String key) {
+        Integer result = -1;
+        if (map.containsKey(key)) {
+            result = map.get(key);
+        }
+        return result;
+    }
+
+    public int replaceDeclaration(ConcurrentMap<String, Integer> map, String key) {
+        if (map.containsKey(key)) {
+            Integer i = map.get(key);
+            return i + 1;
+        }
+        return 0;
+    }
+
+    public Date replaceReturn(ConcurrentHashMap<String, Date> map, String key) {
+        if (map.containsKey(key)) {
+            return map.get(key);
+        }
+        return new Date();
+    }
+
+    public Integer replaceFieldMap(String key) {
+        if (this.cache.containsKey(key)) {
+            return this.cache.get(key);
+        }
+        return null;
+    }
+
+    public void replaceWithPutIfAbsent(ConcurrentMap<String, Integer> map, String key) {
+        if (!map.containsKey(key)) {
+            map.put(key, 0);
+        }
+    }
+
+    public void doNotReplacePutWithAllocation(ConcurrentMap<String, Date> map, String key) {
+        if (!map.containsKey(key)) {
+            map.put(key, new Date());
+        }
+    }
+
+    public void doNotReplacePutOnHashtableBeforeJava8(Hashtable<String, Integer> map, String key) {
+        if (!map.containsKey(key)) {
+            map.put(key, 0);
+        }
+    }
+
+    public Integer doNotReplaceWhenNullValuesAreAllowed(Map<String, Integer> map, String key) {
+        if (map.containsKey(key)) {
+            return map.get(key);
+        }
+        return -1;
+    }
+
+    public Integer doNotReplaceWithHashMap(HashMap<String, Integer> map, String key) {
+        if (map.containsKey(key)) {
+            return map.get(key);
+        }
+        return -1;
+    }
+
+    public Integer doNotReplaceWithSideEffectingKey(ConcurrentMap<String, Integer> map, List<String> keys) {
+        if (map.containsKey(keys.remove(0))) {
+            return map.get(keys.remove(0));
+        }
+        return -1;
+    }
+
+    public Integer doNotReplaceWithDifferentKey(ConcurrentMap<String, Integer> map, String key1, String key2) {
+        if (map.containsKey(key1)) {
+            return map.get(key2);
+        }
+        return -1;
+    }
+
+    public int replaceWhenElseReadsVariable(ConcurrentMap<String, Integer> map, String key, int result) {
+        if (map.containsKey(key)) {
+            result = map.get(key);
+        } else {
+            result = result + 1;
+        }
+        return result;
+    }
+}
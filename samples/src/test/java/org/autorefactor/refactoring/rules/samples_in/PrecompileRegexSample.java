@@ -0,0 +1,102 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014-2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.util.List;
+
+public class PrecompileRegexSample {
+
+    public boolean replaceMatches(String s) {
+        return s.matches("[a-z]+");
+    }
+
+    public String replaceReplaceAll(String s) {
+        return s.replaceAll("\\s+", " ");
+    }
+
+    public String replaceReplaceFirst(String s, String replacement) {
+        return s.replaceFirst("^\\d+", replacement);
+    }
+
+    public String[] replaceSplit(String s) {
+        return s.split("\\s*,\\s*");
+    }
+
+    public String[] replaceSplitWithLimit(String s) {
+        return s.split("::", 2);
+    }
+
+    public boolean reuseSamePattern(String s1, String s2) {
+        return s1.matches("[0-9]+") && s2.matches("[0-9]+");
+    }
+
+    public boolean reuseExistingPattern(String s) {
+        return s.matches("[A-Z]+");
+    }
+
+    public String[] useSplitFastPathForSingleCharacterClass(String s) {
+        return s.split("[.]");
+    }
+
+    public String[] doNotReplaceSplitOnSingleCharacter(String s) {
+        return s.split(",");
+    }
+
+    public String[] doNotReplaceSplitOnEscapedCharacter(String s) {
+        return s.split("\\|");
+    }
+
+    public boolean doNotReplaceNonConstantRegex(String s, String regex) {
+        return s.matches(regex);
+    }
+
+    public boolean doNotReplaceInvalidRegex(String s) {
+        return s.matches("[a-z");
+    }
+
+    public void replaceInAnonymousClass(final List<String> results) {
+        new Runnable() {
+            @Override
+            public void run() {
+                results.add("a-b".replaceAll("-+", "_"));
+            }
+        };
+    }
+
+    public static class StaticNestedClass {
+        public boolean replaceInStaticNestedClass(String s) {
+            return s.matches("[a-z]*");
+        }
+    }
+
+    public class InnerClass {
+        public boolean replaceInOuterClass(String s) {
+            return s.matches("\\w*");
+        }
+    }
+
+    private static final java.util.regex.Pattern EXISTING_PATTERN = java.util.regex.Pattern.compile("[A-Z]+");
+}
@@ -141,4 +141,49 @@ public class StringBuilderSample {
         new StringBuilder().append(s.substring(1));
         new StringBuffer().append(s.substring(1));
     }
+
+    public String addCapacityForLongAppends(String name, int id, long timestamp, boolean enabled) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("name=").append(name);
+        sb.append(", id=").append(id);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append(", enabled=").append(enabled);
+        return sb.toString();
+    }
+
+    public String addCapacityForAppendChain(int x, int y) {
+        StringBuffer sb = new StringBuffer().append("Point[x=").append(x).append(", y=").append(y).append(']');
+        return sb.toString();
+    }
+
+    public String addCapacityForAppendsInLoop(int[] values) {
+        StringBuilder sb;
+        sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            sb.append(values[i]).append(',');
+        }
+        return sb.toString();
+    }
+
+    public String addBoundedCapacityForAppendsInLongLoop(int bit) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 150000000; i++) {
+            sb.append(bit);
+        }
+        return sb.toString();
+    }
+
+    public String doNotAddCapacityForShortAppends(int id) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("id=").append(id);
+        return sb.toString();
+    }
+
+    public String doNotAddCapacityForUnknownLoops(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            sb.append(values[i]).append(", ");
+        }
+        return sb.toString();
+    }
 }
@@ -25,6 +25,8 @@
  */
 package org.autorefactor.refactoring.rules.samples_in;
 
+import java.util.Locale;
+
 public class StringSample {
 
     public String replaceNewString() {
@@ -135,6 +137,58 @@ public class StringSample {
         return s1 + s2 + s3 + s4 + s5 + s6 + s7 + s8 + s9;
     }
 
+    public boolean replaceCaseConversionInEquals(String s) {
+        boolean b1 = s.toLowerCase().equals("true");
+        boolean b2 = "on".equals(s.toLowerCase());
+        boolean b3 = s.toUpperCase(Locale.ENGLISH).equals("GET");
+        return b1 || b2 || b3;
+    }
+
+    public boolean replaceCaseConversionInStartsWith(String s) {
+        return s.toLowerCase().startsWith("http:");
+    }
+
+    public boolean doNotReplaceLocaleSensitiveCaseConversion(String s) {
+        boolean b1 = s.toLowerCase().equals("title");
+        boolean b2 = s.toUpperCase().equals("FILE");
+        boolean b3 = s.toUpperCase().startsWith("JAR");
+        boolean b4 = s.toLowerCase().equals("Mixed");
+        boolean b5 = s.toLowerCase().equals(getS());
+        return b1 || b2 || b3 || b4 || b5;
+    }
+
+    public boolean replaceSubstringInEquals(String s) {
+        boolean b1 = s.substring(0, 4).equals("http");
+        boolean b2 = s.substring(2, 5).equals("abc");
+        boolean b3 = s.substring(2, 5).equalsIgnoreCase("abc");
+        return b1 || b2 || b3;
+    }
+
+    public boolean replaceSubstringOfPrefixLength(String s, String prefix) {
+        return s.substring(0, prefix.length()).equals(prefix);
+    }
+
+    public boolean doNotReplaceSubstringWithOtherLength(String s) {
+        return s.substring(0, 3).equals("http");
+    }
+
+    public String replaceSplitForFirstPart(String s) {
+        String first = s.split(",")[0];
+        return s.split(":")[0] + first;
+    }
+
+    public String doNotReplaceSplitWhenNotEvaluatedFirst(String s) {
+        String first = s != null ? s.split(",")[0] : null;
+        return s.trim() + s.split(":")[0] + first;
+    }
+
+    public String doNotReplaceSplitWithRegex(String s) {
+        String s1 = s.split(".")[0];
+        String s2 = s.split(",")[1];
+        String s3 = s.split(", ")[0];
+        return s1 + s2 + s3;
+    }
+
     // TODO JNR which operand must be removed here?
     // String s = "" + Integer.toString(42);
 
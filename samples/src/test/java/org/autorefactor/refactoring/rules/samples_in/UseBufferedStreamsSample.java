@@ -0,0 +1,230 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+public class UseBufferedStreamsSample {
+
+    public int countBytes(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int count = 0;
+            while (in.read() != -1) {
+                count++;
+            }
+            return count;
+        } finally {
+            in.close();
+        }
+    }
+
+    public String readChars(File file, int length) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        Reader reader = new FileReader(file);
+        try {
+            for (int i = 0; i < length; i++) {
+                sb.append((char) reader.read());
+            }
+        } finally {
+            reader.close();
+        }
+        return sb.toString();
+    }
+
+    public void writeBytes(File file, byte[] data) throws IOException {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            for (byte b : data) {
+                out.write(b);
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    public void writeChars(File file, String s) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            for (int i = 0; i < s.length(); i++) {
+                writer.write(s.charAt(i));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void writeBytesClosingQuietly(File file, byte[] data) throws IOException {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            for (byte b : data) {
+                out.write(b);
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    public void doNotBufferOutputNotFlushedOnAllPaths(File file, byte[] data) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (byte b : data) {
+                if (b == 0) {
+                    return;
+                }
+                out.write(b);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public void doNotBufferOutputNotClosedOnAllPaths(File file, String s) throws IOException {
+        Writer writer = new FileWriter(file);
+        for (int i = 0; i < s.length(); i++) {
+            writer.write(s.charAt(i));
+        }
+        writer.close();
+    }
+
+    public void doNotBufferOutputOnlyClosedOnFailure(File file, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (byte b : data) {
+                out.write(b);
+            }
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    public void doNotBufferUnclosedOutput(File file, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        for (byte b : data) {
+            out.write(b);
+        }
+        out.flush();
+    }
+
+    public int doNotBufferBulkReads(File file, byte[] buffer) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            int count = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                count += n;
+            }
+            return count;
+        } finally {
+            in.close();
+        }
+    }
+
+    public int doNotBufferReadOutsideLoop(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return in.read();
+        } finally {
+            in.close();
+        }
+    }
+
+    public int doNotBufferStreamCreatedInLoop(File[] files) throws IOException {
+        int sum = 0;
+        for (File file : files) {
+            InputStream in = new FileInputStream(file);
+            try {
+                sum += in.read();
+            } finally {
+                in.close();
+            }
+        }
+        return sum;
+    }
+
+    public int doNotBufferEscapingStream(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int count = 0;
+            while (in.read() != -1) {
+                count++;
+            }
+            return count + skipHeader(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    public long doNotBufferFileSpecificUse(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            while (in.read() != -1) {
+                // consume
+            }
+            return in.getChannel().position();
+        } finally {
+            in.close();
+        }
+    }
+
+    public int doNotBufferAlreadyBufferedStream(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            int count = 0;
+            while (in.read() != -1) {
+                count++;
+            }
+            return count;
+        } finally {
+            in.close();
+        }
+    }
+
+    private int skipHeader(InputStream in) throws IOException {
+        return (int) in.skip(4);
+    }
+}
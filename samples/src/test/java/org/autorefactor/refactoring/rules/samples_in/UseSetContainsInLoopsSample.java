@@ -0,0 +1,174 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class UseSetContainsInLoopsSample {
+
+    public List<String> replaceListContains(List<String> items, List<String> allowed) {
+        final List<String> results = new ArrayList<String>();
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+
+    public int replaceListIndexOf(String[] items, List<String> forbidden) {
+        int count = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (forbidden.indexOf(items[i]) == -1) {
+                count++;
+            } else if (forbidden.indexOf(items[i].trim()) >= 0) {
+                count--;
+            }
+        }
+        return count;
+    }
+
+    public int replaceArraysAsList(List<Integer> values) {
+        int count = 0;
+        for (Integer value : values) {
+            if (Arrays.asList(1, 2, 3, 5, 8).contains(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void doNotReplaceWhenListIsModifiedInLoop(List<String> items, List<String> seen) {
+        for (String item : items) {
+            if (!seen.contains(item)) {
+                seen.add(item);
+            }
+        }
+    }
+
+    public int doNotReplaceWhenListEscapes(List<String> items, List<String> allowed) {
+        int count = 0;
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                count += process(allowed);
+            }
+        }
+        return count;
+    }
+
+    public int doNotReplaceWhenListIsReassigned(List<String> items, List<String> allowed) {
+        int count = 0;
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                count++;
+            }
+        }
+        allowed = new ArrayList<String>();
+        return count + allowed.size();
+    }
+
+    public int doNotReplaceWithInconsistentEquals(List<Item> items, List<Item> allowed) {
+        int count = 0;
+        for (Item item : items) {
+            if (allowed.contains(item)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int doNotReplaceListDeclaredInLoop(List<String> items) {
+        int count = 0;
+        for (String item : items) {
+            final List<String> parts = Arrays.asList(item.split(","));
+            if (parts.contains(item)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int replaceNewLocalList(List<String> items, List<String> names) {
+        final List<String> allowed = new ArrayList<String>(names);
+        int count = 0;
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                count += process(names);
+            }
+        }
+        return count;
+    }
+
+    public void doNotReplaceWhenIteratorRemovesFromList(List<String> items, List<String> allowed) {
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                Iterator<String> it = allowed.iterator();
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public void doNotReplaceWhenIteratorIsCreatedBeforeLoop(List<String> items, List<String> allowed) {
+        final Iterator<String> it = allowed.iterator();
+        for (String item : items) {
+            if (allowed.contains(item) && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public int doNotReplaceWhenAliasMayBeModifiedInLoop(List<String> items, List<String> allowed) {
+        int count = 0;
+        for (String item : items) {
+            if (allowed.contains(item)) {
+                count += process(items);
+            }
+        }
+        return count;
+    }
+
+    private int process(List<String> list) {
+        return list.size();
+    }
+
+    private static class Item {
+        private final String name;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Item && name.equals(((Item) obj).name);
+        }
+    }
+}
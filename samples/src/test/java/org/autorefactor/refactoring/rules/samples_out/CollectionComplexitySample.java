@@ -0,0 +1,142 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class CollectionComplexitySample {
+
+    public int replaceLinkedListIndexLoop(LinkedList<Integer> values) {
+        int sum = 0;
+        for (Integer value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    public void replaceLinkedListIndexLoopReusingElementVariable(LinkedList<String> names) {
+        for (final String name : names) {
+            System.out.println(name + name.length());
+        }
+    }
+
+    public int replaceLinkedListIndexLoopWithReassignedElementVariable(LinkedList<String> names) {
+        int total = 0;
+        for (String name2 : names) {
+            String name = name2;
+            name = name.trim();
+            total += name.length() + name2.length();
+        }
+        return total;
+    }
+
+    public void doNotReplaceLinkedListIndexLoopUsingIndex(LinkedList<String> names) {
+        for (int i = 0; i < names.size(); i++) {
+            System.out.println(i + ": " + names.get(i));
+        }
+    }
+
+    public void doNotReplaceLinkedListIndexLoopModifyingList(LinkedList<String> names) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).isEmpty()) {
+                names.add("");
+            }
+        }
+    }
+
+    public void doNotReplaceArrayListIndexLoop(ArrayList<String> names) {
+        for (int i = 0; i < names.size(); i++) {
+            System.out.println(names.get(i));
+        }
+    }
+
+    public int replaceArrayListUsedAsQueue(int root) {
+        final Deque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(root);
+        int count = 0;
+        while (!queue.isEmpty()) {
+            final int current = queue.removeFirst();
+            if (current < 100) {
+                queue.add(current * 2);
+                queue.add(current * 2 + 1);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    public int replaceArrayListUsedAsQueueWithDeclaredClass(int n) {
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>(n);
+        for (int i = 0; i < n; i++) {
+            queue.add(i);
+        }
+        int sum = 0;
+        while (queue.size() > 0) {
+            sum += queue.getFirst();
+            queue.removeFirst();
+        }
+        return sum;
+    }
+
+    public List<String> doNotReplaceEscapingArrayList(String start) {
+        final List<String> queue = new ArrayList<String>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            queue.remove(0);
+        }
+        return queue;
+    }
+
+    public void doNotReplaceArrayListWithNullElements(String start) {
+        final List<String> queue = new ArrayList<String>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            queue.remove(0);
+        }
+    }
+
+    public void doNotReplaceArrayListRemovingOnce() {
+        final List<String> list = new ArrayList<String>();
+        list.add("a");
+        list.remove(0);
+    }
+
+    public boolean replaceConcurrentQueueSizeComparisons(ConcurrentLinkedQueue<String> queue) {
+        if (queue.isEmpty()) {
+            return false;
+        }
+        return !queue.isEmpty() && !queue.isEmpty();
+    }
+
+    public boolean doNotReplaceConcurrentQueueSizeComparedToOtherValues(ConcurrentLinkedQueue<String> queue) {
+        return queue.size() > 10;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class HoistAnonymousClassesSample {
+
+    private static final Comparator<String> SORT_BY_LENGTH_COMPARATOR = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            return compareInts(s1.length(), s2.length());
+        }
+    };
+
+    private static final FileFilter DIRECTORIES_ONLY = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.isDirectory();
+        }
+    };
+
+    private static final Runnable HOIST_WHEN_USING_OWN_MEMBERS_RUNNABLE = new Runnable() {
+        @Override
+        public void run() {
+            System.out.println(this.toString() + hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return "run";
+        }
+    };
+
+    private final Comparator<String> fieldComparator = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            return s1.length() - s2.length();
+        }
+    };
+
+    private int count;
+
+    public void sortByLength(List<String> list) {
+        Collections.sort(list, SORT_BY_LENGTH_COMPARATOR);
+    }
+
+    public File[] listDirectories(File dir) {
+        final FileFilter directoriesOnly = DIRECTORIES_ONLY;
+        return dir.listFiles(directoriesOnly);
+    }
+
+    public Runnable doNotHoistWhenCapturingLocalVariable(final String message) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                System.out.println(message);
+            }
+        };
+    }
+
+    public Runnable doNotHoistWhenCapturingThis() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                count++;
+            }
+        };
+    }
+
+    public Callable<Integer> doNotHoistWhenCallingInstanceMethod() {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return getCount();
+            }
+        };
+    }
+
+    public Runnable doNotHoistWhenUsingOuterThis() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                System.out.println(HoistAnonymousClassesSample.this);
+            }
+        };
+    }
+
+    public <T extends Comparable<T>> Comparator<T> doNotHoistWhenUsingTypeVariables() {
+        return new Comparator<T>() {
+            @Override
+            public int compare(T o1, T o2) {
+                return o1.compareTo(o2);
+            }
+        };
+    }
+
+    public Iterator<Integer> doNotHoistWithInstanceState() {
+        return new Iterator<Integer>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < 3;
+            }
+
+            @Override
+            public Integer next() {
+                return i++;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public Object doNotHoistClasses() {
+        return new ArrayList<String>() {
+            {
+                add("a");
+            }
+        };
+    }
+
+    public void doNotHoistStatements() {
+        new Runnable() {
+            @Override
+            public void run() {
+                System.out.println("run");
+            }
+        };
+    }
+
+    public Runnable doNotHoistWhenCreatingInnerClass() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                new Inner().run();
+            }
+        };
+    }
+
+    public Comparator<Object> doNotHoistWhenUsingLocalClasses() {
+        class Local {
+            static final int ORDER = 1;
+        }
+        return new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return o1 instanceof Local ? Local.ORDER : 0;
+            }
+        };
+    }
+
+    public Runnable hoistWhenUsingOwnMembers() {
+        return HOIST_WHEN_USING_OWN_MEMBERS_RUNNABLE;
+    }
+
+    private static int compareInts(int i1, int i2) {
+        return i1 < i2 ? -1 : (i1 == i2 ? 0 : 1);
+    }
+
+    private int getCount() {
+        return count;
+    }
+
+    private class Inner implements Runnable {
+        @Override
+        public void run() {
+            count--;
+        }
+    }
+}
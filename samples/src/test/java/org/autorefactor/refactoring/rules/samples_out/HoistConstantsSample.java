@@ -0,0 +1,134 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class HoistConstantsSample {
+
+    private static final BigDecimal BIG_DECIMAL_1_50 = new BigDecimal("1.50");
+    private static final BigDecimal BIG_DECIMAL_2_5 = new BigDecimal("2.5");
+    private static final BigInteger BIG_INTEGER_FF = new BigInteger("ff", 16);
+    private static final Pattern PATTERN_A_Z_D = Pattern.compile("[a-z]+\\d*");
+    private static final Pattern PATTERN_A_Z = Pattern.compile("[a-z]+", Pattern.CASE_INSENSITIVE);
+    private static final List<String> HOIST_READ_ONLY_LIST_VALUES = Arrays.asList("red", "green", "blue");
+    private static final BigDecimal BIG_DECIMAL_3_14 = new BigDecimal("3.14");
+    private static final BigDecimal RATE = new BigDecimal("0.05");
+    private static final int RADIX = 16;
+    private static final String PERCENT = System.getProperty("percent", "5");
+    private static final double FACTOR = Double.parseDouble(System.getProperty("factor", "1"));
+
+    private final BigDecimal fee = BIG_DECIMAL_1_50;
+
+    public BigDecimal replaceWithExistingConstant(BigDecimal amount) {
+        return amount.multiply(RATE);
+    }
+
+    public BigDecimal hoistBigDecimal(BigDecimal amount) {
+        return amount.add(BIG_DECIMAL_2_5).subtract(BIG_DECIMAL_2_5);
+    }
+
+    public BigInteger hoistBigIntegerWithConstantRadix() {
+        return BIG_INTEGER_FF;
+    }
+
+    public BigInteger doNotHoistForwardReferences() {
+        return new BigInteger("ff", RADIX);
+    }
+
+    public boolean hoistPattern(String s) {
+        return PATTERN_A_Z_D.matcher(s).matches();
+    }
+
+    public boolean hoistPatternWithFlags(String s) {
+        return PATTERN_A_Z.matcher(s).matches();
+    }
+
+    public boolean hoistReadOnlyList(String color) {
+        return HOIST_READ_ONLY_LIST_VALUES.contains(color);
+    }
+
+    public List<String> doNotHoistModifiableList() {
+        return Arrays.asList("red", "green", "blue");
+    }
+
+    public BigDecimal doNotHoistNonConstantArguments(String s, long l) {
+        return new BigDecimal(s).add(BigDecimal.valueOf(l));
+    }
+
+    public BigDecimal doNotHoistInvalidValues() {
+        return new BigDecimal("not a number");
+    }
+
+    public Pattern doNotHoistInvalidPattern() {
+        return Pattern.compile("[a-z");
+    }
+
+    public void doNotHoistStatements() {
+        new BigDecimal("1.5");
+        Pattern.compile("a+b", Pattern.CASE_INSENSITIVE);
+    }
+
+    public Pattern doNotHoistInvalidPatternWithFlags() {
+        return Pattern.compile("(", Pattern.CASE_INSENSITIVE);
+    }
+
+    public BigInteger doNotHoistInvalidRadix() {
+        return new BigInteger("ff", 42);
+    }
+
+    public BigDecimal doNotHoistNotANumber() {
+        return BigDecimal.valueOf(Double.NaN);
+    }
+
+    public BigDecimal doNotHoistNonConstantStaticFinalArguments() {
+        return new BigDecimal(PERCENT).add(BigDecimal.valueOf(FACTOR));
+    }
+
+    public BigDecimal doNotHoistValuesWithExistingConstants() {
+        return BigDecimal.valueOf(10);
+    }
+
+    public BigDecimal hoistFromInnerClass() {
+        return new Object() {
+            BigDecimal get() {
+                return BIG_DECIMAL_3_14;
+            }
+        }.get();
+    }
+
+    public static class Nested {
+        private static final BigDecimal BIG_DECIMAL_42_1 = new BigDecimal("42.1");
+
+        public BigDecimal hoistIntoNestedClass() {
+            return BIG_DECIMAL_42_1;
+        }
+    }
+}
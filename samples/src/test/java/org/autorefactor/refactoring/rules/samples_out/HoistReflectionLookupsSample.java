@@ -0,0 +1,217 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+public class HoistReflectionLookupsSample {
+
+    private static final Class<StringBuilder> BUILDER_CLASS = StringBuilder.class;
+    private static final String COUNT_FIELD_NAME = "count";
+    private static final Method GET_NAME_METHOD_IN_FIELD;
+
+    static {
+        try {
+            GET_NAME_METHOD_IN_FIELD = HoistReflectionLookupsSample.class.getMethod("getName");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private int count;
+
+    public String getName() {
+        return "sample";
+    }
+
+    private void reset() {
+        count = 0;
+    }
+
+    public String invokeGetName() throws Exception {
+        Method getName = GetNameMethodHolder.GET_NAME_METHOD;
+        return (String) getName.invoke(this);
+    }
+
+    public Object invokeGetNameAgain() throws Exception {
+        return GetNameMethodHolder.GET_NAME_METHOD.invoke(this);
+    }
+
+    public int readField() throws Exception {
+        Field field = CountFieldHolder.COUNT_FIELD;
+        return field.getInt(this);
+    }
+
+    public int invokeLength(String s) throws Exception {
+        return (Integer) StringLengthMethodHolder.STRING_LENGTH_METHOD.invoke(s);
+    }
+
+    public Object invokeReverse(StringBuilder sb) throws Exception {
+        return StringBuilderReverseMethodHolder.STRING_BUILDER_REVERSE_METHOD.invoke(sb);
+    }
+
+    public Object newList() throws Exception {
+        Constructor<ArrayList> constructor = ArrayListConstructorHolder.ARRAY_LIST_CONSTRUCTOR;
+        return constructor.newInstance(10);
+    }
+
+    public Class<?> loadClass() {
+        try {
+            return ArrayListClassHolder.ARRAY_LIST_CLASS;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public Method doNotHoistWhenCatchingLookupException() {
+        try {
+            return HoistReflectionLookupsSample.class.getMethod("getName");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public Method doNotHoistWhenDeclaringLookupException() throws NoSuchMethodException {
+        return HoistReflectionLookupsSample.class.getMethod("getName");
+    }
+
+    public Object doNotHoistWhenDeclaringLookupExceptions() throws ClassNotFoundException, NoSuchFieldException {
+        return Class.forName("java.util.ArrayList").getDeclaredField("size");
+    }
+
+    public Method doNotHoistUnknownMethod() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("getUnknownName");
+    }
+
+    public Method doNotHoistNonPublicMethod() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("reset");
+    }
+
+    public Method doNotHoistWrongParameterTypes() throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod("getName", String.class);
+    }
+
+    public Class<?> doNotHoistUnknownClass() throws Exception {
+        return Class.forName("com.example.UnknownClass");
+    }
+
+    public Method doNotHoistNonConstantName(String methodName) throws Exception {
+        return HoistReflectionLookupsSample.class.getMethod(methodName);
+    }
+
+    public Method doNotHoistLocalConstantName() throws Exception {
+        final String methodName = "getName";
+        return HoistReflectionLookupsSample.class.getMethod(methodName);
+    }
+
+    public Method doNotHoistNonConstantClass(Object o) throws Exception {
+        return o.getClass().getMethod("toString");
+    }
+
+    public Callable<Method> doNotHoistInAnonymousClass() {
+        return new Callable<Method>() {
+            @Override
+            public Method call() throws Exception {
+                return HoistReflectionLookupsSample.class.getMethod("getName");
+            }
+        };
+    }
+
+    public void doNotHoistStatements() throws Exception {
+        Class.forName("java.lang.String");
+        String.class.getMethod("length");
+    }
+
+    private static final class GetNameMethodHolder {
+        static final Method GET_NAME_METHOD;
+        static {
+            try {
+                GET_NAME_METHOD = HoistReflectionLookupsSample.class.getMethod("getName");
+            } catch (NoSuchMethodException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private static final class CountFieldHolder {
+        static final Field COUNT_FIELD;
+        static {
+            try {
+                COUNT_FIELD = HoistReflectionLookupsSample.class.getDeclaredField(COUNT_FIELD_NAME);
+            } catch (NoSuchFieldException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private static final class StringLengthMethodHolder {
+        static final Method STRING_LENGTH_METHOD;
+        static {
+            try {
+                STRING_LENGTH_METHOD = String.class.getMethod("length");
+            } catch (NoSuchMethodException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private static final class StringBuilderReverseMethodHolder {
+        static final Method STRING_BUILDER_REVERSE_METHOD;
+        static {
+            try {
+                STRING_BUILDER_REVERSE_METHOD = BUILDER_CLASS.getMethod("reverse");
+            } catch (NoSuchMethodException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private static final class ArrayListConstructorHolder {
+        static final Constructor<ArrayList> ARRAY_LIST_CONSTRUCTOR;
+        static {
+            try {
+                ARRAY_LIST_CONSTRUCTOR = ArrayList.class.getConstructor(int.class);
+            } catch (NoSuchMethodException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private static final class ArrayListClassHolder {
+        static final Class<?> ARRAY_LIST_CLASS;
+        static {
+            try {
+                ARRAY_LIST_CLASS = Class.forName("java.util.ArrayList");
+            } catch (ClassNotFoundException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+}
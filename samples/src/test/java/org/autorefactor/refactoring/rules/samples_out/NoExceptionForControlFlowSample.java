@@ -0,0 +1,145 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014-2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class NoExceptionForControlFlowSample {
+
+    private int[] values;
+
+    public int replaceArrayAccess(int[] array, int i) {
+        if (i >= 0 && i < array.length) {
+            return array[i];
+        } else {
+            return -1;
+        }
+    }
+
+    public int replaceFieldArrayAccess(int i) {
+        int result = 0;
+        if (i >= 0 && i < this.values.length) {
+            result = this.values[i];
+        }
+        return result;
+    }
+
+    public char replaceCharAt(String s, int i) {
+        char c;
+        if (i >= 0 && i < s.length()) {
+            c = s.charAt(i);
+        } else {
+            c = ' ';
+        }
+        return c;
+    }
+
+    public String replaceArrayListGet(ArrayList<String> list, int i) {
+        if (i >= 0 && i < list.size()) {
+            return list.get(i);
+        } else {
+            return null;
+        }
+    }
+
+    public String replaceIteratorNext(Iterator<String> it) {
+        if (it.hasNext()) {
+            return it.next();
+        } else {
+            return "";
+        }
+    }
+
+    public String replaceCast(Object o) {
+        if (o == null || o instanceof String) {
+            return (String) o;
+        } else {
+            return o.toString();
+        }
+    }
+
+    public String doNotReplaceListGet(List<String> list, int i) {
+        try {
+            return list.get(i);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    public int doNotReplaceWithSideEffectingIndex(int[] array, int i) {
+        try {
+            return array[i++];
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    public int doNotReplaceWhenCatchingSuperType(int[] array, int i) {
+        try {
+            return array[i];
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public int doNotReplaceWhenExceptionIsUsed(int[] array, int i) {
+        try {
+            return array[i];
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public int doNotReplaceWithSeveralStatements(int[] array, int i) {
+        try {
+            int result = array[i];
+            return result + 1;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    public boolean doNotReplaceNumberParsing(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public String doNotReplaceNullPointerException(Map<String, Object> map, String key) {
+        try {
+            return map.get(key).toString();
+        } catch (NullPointerException e) {
+            return "";
+        }
+    }
+}
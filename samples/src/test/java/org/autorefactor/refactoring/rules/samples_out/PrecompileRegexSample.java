@@ -0,0 +1,114 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014-2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class PrecompileRegexSample {
+
+    private static final Pattern REPLACE_MATCHES_PATTERN = Pattern.compile("[a-z]+");
+    private static final Pattern REPLACE_REPLACE_ALL_PATTERN = Pattern.compile("\\s+");
+    private static final Pattern REPLACE_REPLACE_FIRST_PATTERN = Pattern.compile("^\\d+");
+    private static final Pattern REPLACE_SPLIT_PATTERN = Pattern.compile("\\s*,\\s*");
+    private static final Pattern REPLACE_SPLIT_WITH_LIMIT_PATTERN = Pattern.compile("::");
+    private static final Pattern REUSE_SAME_PATTERN_PATTERN = Pattern.compile("[0-9]+");
+    private static final Pattern RUN_PATTERN = Pattern.compile("-+");
+    private static final Pattern REPLACE_IN_OUTER_CLASS_PATTERN = Pattern.compile("\\w*");
+
+    public boolean replaceMatches(String s) {
+        return REPLACE_MATCHES_PATTERN.matcher(s).matches();
+    }
+
+    public String replaceReplaceAll(String s) {
+        return REPLACE_REPLACE_ALL_PATTERN.matcher(s).replaceAll(" ");
+    }
+
+    public String replaceReplaceFirst(String s, String replacement) {
+        return REPLACE_REPLACE_FIRST_PATTERN.matcher(s).replaceFirst(replacement);
+    }
+
+    public String[] replaceSplit(String s) {
+        return REPLACE_SPLIT_PATTERN.split(s);
+    }
+
+    public String[] replaceSplitWithLimit(String s) {
+        return REPLACE_SPLIT_WITH_LIMIT_PATTERN.split(s, 2);
+    }
+
+    public boolean reuseSamePattern(String s1, String s2) {
+        return REUSE_SAME_PATTERN_PATTERN.matcher(s1).matches() && REUSE_SAME_PATTERN_PATTERN.matcher(s2).matches();
+    }
+
+    public boolean reuseExistingPattern(String s) {
+        return EXISTING_PATTERN.matcher(s).matches();
+    }
+
+    public String[] useSplitFastPathForSingleCharacterClass(String s) {
+        return s.split("\\.");
+    }
+
+    public String[] doNotReplaceSplitOnSingleCharacter(String s) {
+        return s.split(",");
+    }
+
+    public String[] doNotReplaceSplitOnEscapedCharacter(String s) {
+        return s.split("\\|");
+    }
+
+    public boolean doNotReplaceNonConstantRegex(String s, String regex) {
+        return s.matches(regex);
+    }
+
+    public boolean doNotReplaceInvalidRegex(String s) {
+        return s.matches("[a-z");
+    }
+
+    public void replaceInAnonymousClass(final List<String> results) {
+        new Runnable() {
+            @Override
+            public void run() {
+                results.add(RUN_PATTERN.matcher("a-b").replaceAll("_"));
+            }
+        };
+    }
+
+    public static class StaticNestedClass {
+        private static final Pattern REPLACE_IN_STATIC_NESTED_CLASS_PATTERN = Pattern.compile("[a-z]*");
+
+        public boolean replaceInStaticNestedClass(String s) {
+            return REPLACE_IN_STATIC_NESTED_CLASS_PATTERN.matcher(s).matches();
+        }
+    }
+
+    public class InnerClass {
+        public boolean replaceInOuterClass(String s) {
+            return REPLACE_IN_OUTER_CLASS_PATTERN.matcher(s).matches();
+        }
+    }
+
+    private static final java.util.regex.Pattern EXISTING_PATTERN = java.util.regex.Pattern.compile("[A-Z]+");
+}
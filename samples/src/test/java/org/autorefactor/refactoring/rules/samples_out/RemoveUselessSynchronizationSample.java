@@ -0,0 +1,168 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014-2015 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_out;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+public class RemoveUselessSynchronizationSample {
+
+    private List<String> field;
+
+    public int replaceVector(Collection<String> col) {
+        ArrayList<String> v = new ArrayList<String>(col);
+        v.add("foo");
+        v.ensureCapacity(10);
+        for (String s : v) {
+            System.out.println(s);
+        }
+        return v.size();
+    }
+
+    public String replaceVectorDeclaredAsList() {
+        List<String> l = new ArrayList<String>();
+        l.add("foo");
+        return l.get(0);
+    }
+
+    public boolean replaceHashtable(String key) {
+        HashMap<String, Integer> map = new HashMap<String, Integer>(16);
+        map.put(key, 42);
+        for (String k : map.keySet()) {
+            System.out.println(k);
+        }
+        return map.containsKey(key);
+    }
+
+    public String replaceStringBuffer(int i) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("foo").append(i);
+        sb.insert(0, '[').append(']');
+        return sb.toString();
+    }
+
+    public String replaceStringBufferUsedInStringConcatenation() {
+        StringBuilder sb = new StringBuilder("foo");
+        sb.reverse();
+        return "oof: " + sb;
+    }
+
+    public int replaceSynchronizedList() {
+        List<String> l = new ArrayList<String>();
+        l.add("foo");
+        return l.iterator().hasNext() ? l.size() : 0;
+    }
+
+    public int replaceSynchronizedMap() {
+        Map<String, String> m = new HashMap<String, String>();
+        m.put("foo", "bar");
+        return m.entrySet().size();
+    }
+
+    public Vector<String> doNotReplaceReturnedVector() {
+        Vector<String> v = new Vector<String>();
+        v.add("foo");
+        return v;
+    }
+
+    public void doNotReplacePassedAsArgument(List<String> output) {
+        Vector<String> v = new Vector<String>();
+        v.add("foo");
+        output.addAll(v);
+    }
+
+    public void doNotReplaceStoredVector() {
+        List<String> l = new Vector<String>();
+        field = l;
+    }
+
+    public String replaceStringBufferAppendUsedInStringConcatenation() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append("foo").toString() + sb.append("bar");
+    }
+
+    public void doNotReplaceStringBufferEscapingThroughAppend(List<Object> output) {
+        StringBuffer sb = new StringBuffer();
+        output.add(sb.append("foo"));
+    }
+
+    public void doNotReplaceUsedAsLock() {
+        Vector<String> v = new Vector<String>();
+        synchronized (v) {
+            v.add("foo");
+        }
+    }
+
+    public int doNotReplaceVectorSpecificMethods() {
+        Vector<String> v = new Vector<String>();
+        v.addElement("foo");
+        return v.capacity();
+    }
+
+    public boolean doNotReplaceHashtableSpecificMethods(Hashtable<String, Integer> input) {
+        Hashtable<String, Integer> map = new Hashtable<String, Integer>(input);
+        return map.contains(42);
+    }
+
+    public int doNotReplaceDictionary() {
+        Dictionary<String, Integer> d = new Hashtable<String, Integer>();
+        d.put("foo", 42);
+        return d.size();
+    }
+
+    public Iterator<String> doNotReplaceEscapingView() {
+        List<String> l = Collections.synchronizedList(new ArrayList<String>());
+        l.add("foo");
+        return l.iterator();
+    }
+
+    public Runnable doNotReplaceCapturedVariable() {
+        final Vector<String> v = new Vector<String>();
+        return new Runnable() {
+            public void run() {
+                v.add("foo");
+            }
+        };
+    }
+
+    public int doNotReplaceUninitializedVariable(boolean b) {
+        Vector<String> v;
+        if (b) {
+            v = new Vector<String>();
+        } else {
+            v = new Vector<String>(10);
+        }
+        return v.size();
+    }
+}
@@ -66,7 +66,7 @@ public class StringBuilderSample {
 
     public void removeUselessCallsToValueOfWithStringBuilderAppend(
         Object o, boolean b, char c, int i, long l, float f, double d) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(152);
         sb.append(o);
         sb.append(b);
         sb.append(b);
@@ -84,7 +84,7 @@ public class StringBuilderSample {
 
     public void removeUselessCallsToValueOfWithStringBufferAppend(
             Object o, boolean b, char c, int i, long l, float f, double d) {
-        StringBuffer sb = new StringBuffer();
+        StringBuffer sb = new StringBuffer(152);
         sb.append(o);
         sb.append(b);
         sb.append(b);
@@ -102,7 +102,7 @@ public class StringBuilderSample {
 
     public void removeUselessCallsToToStringOfWithStringBuilderAppend(
             Object o, boolean bo, byte by, char c, short s, int i, long l, float f, double d) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(86);
         sb.append(this);
         sb.append(o);
         sb.append(bo);
@@ -117,7 +117,7 @@ public class StringBuilderSample {
 
     public void removeUselessCallsToToStringOfWithStringBufferAppend(
             Object o, boolean bo, byte by, char c, short s, int i, long l, float f, double d) {
-        StringBuffer sb = new StringBuffer();
+        StringBuffer sb = new StringBuffer(86);
         sb.append(this);
         sb.append(o);
         sb.append(bo);
@@ -141,4 +141,49 @@ public class StringBuilderSample {
         new StringBuilder().append(s.substring(1));
         new StringBuffer().append(s.substring(1));
     }
+
+    public String addCapacityForLongAppends(String name, int id, long timestamp, boolean enabled) {
+        StringBuilder sb = new StringBuilder(68);
+        sb.append("name=").append(name);
+        sb.append(", id=").append(id);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append(", enabled=").append(enabled);
+        return sb.toString();
+    }
+
+    public String addCapacityForAppendChain(int x, int y) {
+        StringBuffer sb = new StringBuffer(35).append("Point[x=").append(x).append(", y=").append(y).append(']');
+        return sb.toString();
+    }
+
+    public String addCapacityForAppendsInLoop(int[] values) {
+        StringBuilder sb;
+        sb = new StringBuilder(96);
+        for (int i = 0; i < 8; i++) {
+            sb.append(values[i]).append(',');
+        }
+        return sb.toString();
+    }
+
+    public String addBoundedCapacityForAppendsInLongLoop(int bit) {
+        StringBuilder sb = new StringBuilder(8192);
+        for (int i = 0; i < 150000000; i++) {
+            sb.append(bit);
+        }
+        return sb.toString();
+    }
+
+    public String doNotAddCapacityForShortAppends(int id) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("id=").append(id);
+        return sb.toString();
+    }
+
+    public String doNotAddCapacityForUnknownLoops(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            sb.append(values[i]).append(", ");
+        }
+        return sb.toString();
+    }
 }
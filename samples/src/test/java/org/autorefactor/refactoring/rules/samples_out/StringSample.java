@@ -25,6 +25,8 @@
  */
 package org.autorefactor.refactoring.rules.samples_out;
 
+import java.util.Locale;
+
 public class StringSample {
 
     public String replaceNewString() {
@@ -135,6 +137,60 @@ public class StringSample {
         return s1 + s2 + s3 + s4 + s5 + s6 + s7 + s8 + s9;
     }
 
+    public boolean replaceCaseConversionInEquals(String s) {
+        boolean b1 = s.equalsIgnoreCase("true");
+        boolean b2 = s.equalsIgnoreCase("on");
+        boolean b3 = s.equalsIgnoreCase("GET");
+        return b1 || b2 || b3;
+    }
+
+    public boolean replaceCaseConversionInStartsWith(String s) {
+        return s.regionMatches(true, 0, "http:", 0, 5);
+    }
+
+    public boolean doNotReplaceLocaleSensitiveCaseConversion(String s) {
+        boolean b1 = s.toLowerCase().equals("title");
+        boolean b2 = s.toUpperCase().equals("FILE");
+        boolean b3 = s.toUpperCase().startsWith("JAR");
+        boolean b4 = s.toLowerCase().equals("Mixed");
+        boolean b5 = s.toLowerCase().equals(getS());
+        return b1 || b2 || b3 || b4 || b5;
+    }
+
+    public boolean replaceSubstringInEquals(String s) {
+        boolean b1 = s.startsWith("http");
+        boolean b2 = s.regionMatches(2, "abc", 0, 3);
+        boolean b3 = s.regionMatches(true, 2, "abc", 0, 3);
+        return b1 || b2 || b3;
+    }
+
+    public boolean replaceSubstringOfPrefixLength(String s, String prefix) {
+        return s.startsWith(prefix);
+    }
+
+    public boolean doNotReplaceSubstringWithOtherLength(String s) {
+        return s.substring(0, 3).equals("http");
+    }
+
+    public String replaceSplitForFirstPart(String s) {
+        int index = s.indexOf(',');
+        String first = index != -1 ? s.substring(0, index) : s;
+        int index2 = s.indexOf(':');
+        return (index2 != -1 ? s.substring(0, index2) : s) + first;
+    }
+
+    public String doNotReplaceSplitWhenNotEvaluatedFirst(String s) {
+        String first = s != null ? s.split(",")[0] : null;
+        return s.trim() + s.split(":")[0] + first;
+    }
+
+    public String doNotReplaceSplitWithRegex(String s) {
+        String s1 = s.split(".")[0];
+        String s2 = s.split(",")[1];
+        String s3 = s.split(", ")[0];
+        return s1 + s2 + s3;
+    }
+
     // TODO JNR which operand must be removed here?
     // String s = "" + Integer.toString(42);
 